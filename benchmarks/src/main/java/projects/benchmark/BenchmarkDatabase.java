@@ -0,0 +1,60 @@
+package projects.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import ch.vorburger.exec.ManagedProcessException;
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+
+/*
+ * Starts an embedded MariaDB for the DAO benchmarks and points DbConnection at it through the
+ * projects.db.* system properties. Has to run before anything loads DbConnection, since those properties
+ * are read once. If projects.db.host is already set the benchmarks use that database instead.
+ */
+public class BenchmarkDatabase
+{
+	private static DB db;
+
+	public static synchronized void start() throws ManagedProcessException, SQLException
+	{
+		if(db != null || System.getProperty("projects.db.host") != null)
+		{
+			return;
+		}
+
+		DBConfigurationBuilder config = DBConfigurationBuilder.newBuilder();
+		//port 0 picks a free port
+		config.setPort(0);
+		//mysqld won't start as the root OS user without this, which is the norm in CI containers
+		config.addArg("--user=root");
+
+		db = DB.newEmbeddedDB(config.build());
+		db.start();
+
+		//created over JDBC rather than DB.createDB, which shells out to the mysql client and its ncurses dependency
+		String url = "jdbc:mysql://localhost:" + db.getConfiguration().getPort() + "/?user=root&useSSL=false";
+
+		try(Connection conn = DriverManager.getConnection(url); Statement stat = conn.createStatement())
+		{
+			stat.execute("CREATE DATABASE IF NOT EXISTS projects");
+		}
+
+		System.setProperty("projects.db.host", "localhost");
+		System.setProperty("projects.db.port", String.valueOf(db.getConfiguration().getPort()));
+		System.setProperty("projects.db.schema", "projects");
+		System.setProperty("projects.db.user", "root");
+		System.setProperty("projects.db.password", "");
+	}
+
+	public static synchronized void stop() throws ManagedProcessException
+	{
+		if(db != null)
+		{
+			db.stop();
+			db = null;
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package projects.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class BenchmarkMain
+{
+	public static void main(String[] args) throws Exception
+	{
+		List<String> jmhArgs = new ArrayList<>(Arrays.asList(args));
+
+		//machine readable results by default so two runs can be diffed for regressions
+		if(!jmhArgs.contains("-rf"))
+		{
+			jmhArgs.addAll(List.of("-rf", "json", "-rff", "jmh-result.json"));
+		}
+
+		org.openjdk.jmh.Main.main(jmhArgs.toArray(new String[0]));
+	}
+}
@@ -0,0 +1,133 @@
+package projects.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import projects.dao.ProjectDao;
+import projects.dao.ProjectLoadStrategy;
+import projects.entity.Project;
+import projects.service.ProjectService;
+
+/*
+ * ProjectDao CRUD against a real database, see BenchmarkDatabase. Goes straight to the DAO so the service
+ * cache doesn't hide the database round trips.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DaoBenchmark
+{
+	@Param({"PER_TABLE", "SINGLE_ROUND_TRIP"})
+	private ProjectLoadStrategy loadStrategy;
+
+	//projects loaded before measuring, each with this many materials, steps and categories
+	@Param({"1000"})
+	private int projectCount;
+
+	@Param({"10"})
+	private int children;
+
+	private ProjectDao projectDao;
+	private List<Integer> projectIds;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception
+	{
+		BenchmarkDatabase.start();
+		new ProjectService().createAndPopulateTables();
+
+		projectDao = new ProjectDao();
+		projectDao.setLoadStrategy(loadStrategy);
+
+		List<Project> projects = new ArrayList<>(projectCount);
+
+		for(int index = 0; index < projectCount; index++)
+		{
+			projects.add(Fixtures.project("Project " + index, children));
+		}
+
+		projectIds = new ArrayList<>(projectCount);
+
+		for(Project project : projectDao.insertProjects(projects, 500, false))
+		{
+			projectIds.add(project.getProjectId());
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception
+	{
+		BenchmarkDatabase.stop();
+	}
+
+	@Benchmark
+	public Project grabSpecificProject()
+	{
+		return projectDao.grabSpecificProject(randomProjectId()).orElseThrow();
+	}
+
+	@Benchmark
+	public List<Project> grabAllThoseProjects()
+	{
+		return projectDao.grabAllThoseProjects();
+	}
+
+	@Benchmark
+	public List<Project> grabProjectPage()
+	{
+		return projectDao.grabProjectsAfter(randomProjectId(), 50);
+	}
+
+	@Benchmark
+	public List<Project> grabProjectsWithDetails()
+	{
+		int from = ThreadLocalRandom.current().nextInt(projectIds.size() - 50);
+		return projectDao.grabProjectsWithDetails(projectIds.subList(from, from + 50));
+	}
+
+	@Benchmark
+	public Project insertProject()
+	{
+		return projectDao.insertProject(Fixtures.project("Inserted", 0));
+	}
+
+	@Benchmark
+	public boolean modifyProjectDetails()
+	{
+		Project project = Fixtures.project("Modified", 0);
+		project.setProjectId(randomProjectId());
+		project.setActualHours(BigDecimal.valueOf(ThreadLocalRandom.current().nextInt(100)));
+		return projectDao.modifyProjectDetails(project);
+	}
+
+	@Benchmark
+	public boolean insertAndRemoveProject()
+	{
+		return projectDao.removeProject(projectDao.insertProject(Fixtures.project("Removed", 0)));
+	}
+
+	private int randomProjectId()
+	{
+		return projectIds.get(ThreadLocalRandom.current().nextInt(projectIds.size()));
+	}
+}
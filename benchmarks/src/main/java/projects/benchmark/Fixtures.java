@@ -0,0 +1,45 @@
+package projects.benchmark;
+
+import java.math.BigDecimal;
+
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+
+//sample data shared by the benchmarks
+public class Fixtures
+{
+	public static Project project(String name, int children)
+	{
+		Project project = new Project();
+		project.setProjectName(name);
+		project.setEstimatedHours(new BigDecimal("12.50"));
+		project.setActualHours(new BigDecimal("14.00"));
+		project.setDifficulty(3);
+		project.setNotes("Check the weather before starting. Borrow the big ladder from next door.");
+
+		for(int index = 1; index <= children; index++)
+		{
+			Material material = new Material();
+			material.setMaterialName("Material " + index);
+			material.setNumRequired(index);
+			material.setCost(new BigDecimal("3.25"));
+			project.getMaterials().add(material);
+
+			Step step = new Step();
+			step.setStepText("Step number " + index + " of the build");
+			step.setStepOrder(index);
+			project.getSteps().add(step);
+
+			//a handful of shared categories, the way real projects reuse them
+			if(index <= 5)
+			{
+				Category category = new Category();
+				category.setCategoryName("Category " + index);
+				project.getCategories().add(category);
+			}
+		}
+		return project;
+	}
+}
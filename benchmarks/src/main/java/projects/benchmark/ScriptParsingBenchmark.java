@@ -0,0 +1,65 @@
+package projects.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import projects.util.SqlScriptReader;
+
+/*
+ * Parses the bundled schema script, repeated to make larger inputs, with the same tokenizer
+ * ProjectService uses when it runs a script.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScriptParsingBenchmark
+{
+	//copies of project_schema.sql concatenated into one script
+	@Param({"1", "100", "1000"})
+	private int copies;
+
+	private String script;
+
+	@Setup
+	public void setUp() throws IOException
+	{
+		try(InputStream in = getClass().getClassLoader().getResourceAsStream("project_schema.sql"))
+		{
+			String schema = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+			script = (schema + "\n").repeat(copies);
+		}
+	}
+
+	@Benchmark
+	public int parseScript() throws IOException
+	{
+		int count = 0;
+
+		try(SqlScriptReader reader = new SqlScriptReader(new StringReader(script)))
+		{
+			while(reader.nextStatement() != null)
+			{
+				count++;
+			}
+		}
+		return count;
+	}
+}
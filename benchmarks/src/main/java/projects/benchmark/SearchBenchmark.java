@@ -0,0 +1,117 @@
+package projects.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import projects.entity.Project;
+import projects.search.InMemorySearchBackend;
+import projects.search.SearchPage;
+import projects.service.ProjectService;
+
+/*
+ * ProjectService.searchProjects against a real database, see BenchmarkDatabase, once with the FULLTEXT
+ * indexes (fulltext) and once with the in-process index (memory). Project names are two words from WORDS,
+ * so a single word matches a few percent of the projects, while the notes, steps and materials every
+ * fixture shares match all of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark
+{
+	private static final String[] WORDS = {"cedar", "maple", "walnut", "birch", "garden", "kitchen", "garage", "attic",
+			"bench", "shelf", "table", "cabinet", "fence", "deck", "pergola", "planter", "birdhouse", "bookcase",
+			"workbench", "trellis", "lantern", "mailbox", "doghouse", "footstool", "sandbox", "headboard", "coatrack",
+			"spice", "wine", "tool", "shoe", "plant", "rustic", "modern", "painted", "floating", "folding", "rolling",
+			"corner", "outdoor"};
+
+	//matches every project, in the notes, steps and materials Fixtures gives them
+	private static final String COMMON_QUERY = "ladder weather build";
+
+	@Param({"fulltext", "memory"})
+	private String backend;
+
+	//projects loaded before measuring, each with this many materials, steps and categories
+	@Param({"10000"})
+	private int projectCount;
+
+	@Param({"5"})
+	private int children;
+
+	private ProjectService projectService;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception
+	{
+		BenchmarkDatabase.start();
+		projectService = new ProjectService();
+		projectService.createAndPopulateTables();
+
+		List<Project> projects = new ArrayList<>(projectCount);
+
+		for(int index = 0; index < projectCount; index++)
+		{
+			String name = WORDS[index % WORDS.length] + " " + WORDS[(index / WORDS.length) % WORDS.length] + " " + index;
+			projects.add(Fixtures.project(name, children));
+		}
+
+		projectService.addProjects(projects, 500, false);
+
+		//filled from the tables just loaded, the FULLTEXT backend needs nothing more
+		if("memory".equals(backend))
+		{
+			projectService.setSearchBackend(new InMemorySearchBackend());
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception
+	{
+		BenchmarkDatabase.stop();
+	}
+
+	@Benchmark
+	public SearchPage searchRareWord()
+	{
+		return projectService.searchProjects(WORDS[ThreadLocalRandom.current().nextInt(WORDS.length)], 0, 20);
+	}
+
+	@Benchmark
+	public SearchPage searchTwoWords()
+	{
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return projectService.searchProjects(WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)], 0, 20);
+	}
+
+	@Benchmark
+	public SearchPage searchCommonWords()
+	{
+		return projectService.searchProjects(COMMON_QUERY, 0, 20);
+	}
+
+	//a page near the end of the search window, every hit before it has to be ranked too
+	@Benchmark
+	public SearchPage searchDeepPage()
+	{
+		return projectService.searchProjects(COMMON_QUERY, Math.max(0, Math.min(projectCount, 10_000) - 20), 20);
+	}
+}
@@ -0,0 +1,80 @@
+package projects.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/*
+ * In-memory stand-ins for the JDBC objects the mapping code touches, so the CPU cost of mapping can be
+ * measured without a database or network in the way.
+ */
+public class StubJdbc
+{
+	//a result set sitting on one row, it never runs out
+	public static ResultSet resultSet(String[] labels, Object[] row)
+	{
+		ResultSetMetaData meta = (ResultSetMetaData)Proxy.newProxyInstance(StubJdbc.class.getClassLoader(),
+				new Class<?>[] {ResultSetMetaData.class}, (proxy, method, args) ->
+		{
+			switch(method.getName())
+			{
+			case "getColumnCount":
+				return labels.length;
+			case "getColumnLabel":
+			case "getColumnName":
+				return labels[(Integer)args[0] - 1];
+			default:
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+
+		return (ResultSet)Proxy.newProxyInstance(StubJdbc.class.getClassLoader(),
+				new Class<?>[] {ResultSet.class}, (proxy, method, args) ->
+		{
+			switch(method.getName())
+			{
+			case "getMetaData":
+				return meta;
+			case "next":
+				return true;
+			case "close":
+				return null;
+			case "findColumn":
+				return indexOf(labels, (String)args[0]);
+			case "getObject":
+				if(args[0] instanceof Integer)
+				{
+					return row[(Integer)args[0] - 1];
+				}
+				return row[indexOf(labels, (String)args[0]) - 1];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "equals":
+				return proxy == args[0];
+			default:
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+	//a prepared statement that accepts and drops every parameter
+	public static PreparedStatement preparedStatement()
+	{
+		return (PreparedStatement)Proxy.newProxyInstance(StubJdbc.class.getClassLoader(),
+				new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> null);
+	}
+
+	private static int indexOf(String[] labels, String label) throws SQLException
+	{
+		for(int index = 0; index < labels.length; index++)
+		{
+			if(labels[index].equalsIgnoreCase(label))
+			{
+				return index + 1;
+			}
+		}
+		throw new SQLException("Column '" + label + "' not found.");
+	}
+}
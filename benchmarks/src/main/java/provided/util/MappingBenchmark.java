@@ -0,0 +1,109 @@
+package provided.util;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import projects.benchmark.StubJdbc;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+
+/*
+ * Row mapping and parameter binding in DaoBase, measured against stub JDBC objects. Lives in
+ * provided.util so it can reach the package-private camelCaseToSnakeCase.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark extends DaoBase
+{
+	private ResultSet projectRow;
+	private ResultSet materialRow;
+	private ResultSet stepRow;
+	private ResultSet categoryRow;
+	private PreparedStatement statement;
+	private RowMapper<Project> projectMapper;
+
+	@Setup
+	public void setUp()
+	{
+		projectRow = StubJdbc.resultSet(
+				new String[] {"project_id", "project_name", "estimated_hours", "actual_hours", "difficulty", "notes"},
+				new Object[] {42, "Hang a door", new BigDecimal("4.50"), new BigDecimal("6.25"), 3, "Use the long screws."});
+		materialRow = StubJdbc.resultSet(
+				new String[] {"material_id", "project_id", "material_name", "num_required", "cost"},
+				new Object[] {7, 42, "Door hinge", 3, new BigDecimal("12.99")});
+		stepRow = StubJdbc.resultSet(
+				new String[] {"step_id", "project_id", "step_text", "step_order"},
+				new Object[] {9, 42, "Mark the hinge positions", 1});
+		categoryRow = StubJdbc.resultSet(
+				new String[] {"category_id", "category_name"},
+				new Object[] {2, "Doors and Windows"});
+		statement = StubJdbc.preparedStatement();
+		projectMapper = rowMapper(projectRow, Project.class);
+	}
+
+	@Benchmark
+	public Project extractProject()
+	{
+		return extract(projectRow, Project.class);
+	}
+
+	@Benchmark
+	public Material extractMaterial()
+	{
+		return extract(materialRow, Material.class);
+	}
+
+	@Benchmark
+	public Step extractStep()
+	{
+		return extract(stepRow, Step.class);
+	}
+
+	@Benchmark
+	public Category extractCategory()
+	{
+		return extract(categoryRow, Category.class);
+	}
+
+	@Benchmark
+	public Project boundMapperProject()
+	{
+		return projectMapper.extract(projectRow);
+	}
+
+	@Benchmark
+	public String camelCaseToSnakeCase()
+	{
+		return DaoBase.camelCaseToSnakeCase("estimatedHours");
+	}
+
+	@Benchmark
+	public PreparedStatement setParameters() throws SQLException
+	{
+		setParameter(statement, 1, "Hang a door", String.class);
+		setParameter(statement, 2, new BigDecimal("4.50"), BigDecimal.class);
+		setParameter(statement, 3, null, BigDecimal.class);
+		setParameter(statement, 4, 3, Integer.class);
+		return statement;
+	}
+}
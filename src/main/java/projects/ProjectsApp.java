@@ -1,13 +1,31 @@
 package projects;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.sql.Connection;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Scanner;
 
+import projects.entity.PortfolioTotal;
 import projects.entity.Project;
+import projects.entity.ProjectSummary;
 import projects.exception.DbException;
+import projects.exception.OptimisticLockException;
+import projects.facet.BitmapFacetBackend;
+import projects.facet.CategoryCount;
+import projects.facet.CategoryFilter;
+import projects.facet.CategoryMatch;
+import projects.facet.FacetPage;
+import projects.metrics.JsonMetricsExporter;
+import projects.metrics.MetricsEndpoint;
+import projects.metrics.MetricsRegistry;
+import projects.search.InMemorySearchBackend;
+import projects.search.SearchHit;
+import projects.search.SearchPage;
+import projects.service.CategoryCleanupConfig;
 import projects.service.ProjectService;
 
 public class ProjectsApp 
@@ -19,19 +37,113 @@ public class ProjectsApp
 			"2) List projects" + "\n" +
 			"3) Select a project" + "\n" +
 			"4) Update project details" + "\n" + 
-			"5) Remove selected project"
+			"5) Remove selected project" + "\n" +
+			"6) Search projects" + "\n" +
+			"7) Browse projects by category" + "\n" +
+			"8) Show portfolio totals"
 			);
 	//@formatter:on
 	private Scanner scanner = new Scanner(System.in);
 	ProjectService projectService = new ProjectService();
 	private Project currentProject;
 	private int printOp = 1;
+	private static final int PAGE_SIZE = 50;
+	private static final int WRITE_BEHIND_MAX_PENDING = 10_000;
+	private static final int SEARCH_PAGE_SIZE = 10;
 	
 	public static void main(String[] args) 
 	{
-		//new instance of projects app calling method processUserSelections
-		new ProjectsApp().processUserSelections();
+		//new instance of projects app, brings the schema up to date and then calls processUserSelections
+		ProjectsApp app = new ProjectsApp();
+		app.projectService.migrateSchema();
 		
+		//-Dprojects.diagnostics=true prints the query plans so missing indexes show up before they hurt
+		if(Boolean.getBoolean("projects.diagnostics"))
+		{
+			app.projectService.explainQueries().forEach(System.out::println);
+		}
+		
+		//-Dprojects.search=memory keeps an in-process index instead of asking the database's FULLTEXT indexes
+		if("memory".equalsIgnoreCase(System.getProperty("projects.search")))
+		{
+			app.projectService.setSearchBackend(new InMemorySearchBackend());
+		}
+		
+		//-Dprojects.facets=memory answers category counts from in-process bitmaps instead of GROUP BY queries
+		if("memory".equalsIgnoreCase(System.getProperty("projects.facets")))
+		{
+			app.projectService.setFacetBackend(new BitmapFacetBackend());
+		}
+		
+		//-Dprojects.writeBehindMillis=200 batches detail updates instead of writing each one as it is made
+		Long writeBehindMillis = Long.getLong("projects.writeBehindMillis");
+		
+		if(Objects.nonNull(writeBehindMillis))
+		{
+			app.projectService.enableWriteBehind(writeBehindMillis, WRITE_BEHIND_MAX_PENDING);
+		}
+		
+		//-Dprojects.categoryCleanup=true clears out categories no project uses any more in the background
+		if(Boolean.getBoolean("projects.categoryCleanup"))
+		{
+			app.projectService.startCategoryCleanup(CategoryCleanupConfig.fromSystemProperties());
+		}
+		
+		MetricsEndpoint endpoint = startMetricsEndpoint();
+		
+		try
+		{
+			app.processUserSelections();
+		}
+		finally
+		{
+			//nothing queued is lost on the way out
+			app.projectService.disableWriteBehind();
+			app.projectService.stopCategoryCleanup();
+			
+			if(Objects.nonNull(endpoint))
+			{
+				endpoint.close();
+			}
+		}
+		
+		//-Dprojects.metrics.file=metrics.json keeps the numbers from the session after the app is gone
+		String metricsFile = System.getProperty("projects.metrics.file");
+		
+		if(Objects.nonNull(metricsFile))
+		{
+			try
+			{
+				MetricsRegistry.getDefault().dumpTo(Path.of(metricsFile), new JsonMetricsExporter());
+			}
+			catch(IOException e)
+			{
+				System.out.println("Could not write metrics to " + metricsFile + ": " + e);
+			}
+		}
+	}
+	
+	//-Dprojects.metrics.port=9400 serves http://localhost:9400/metrics while the app runs, null when not asked for
+	private static MetricsEndpoint startMetricsEndpoint()
+	{
+		Integer port = Integer.getInteger("projects.metrics.port");
+		
+		if(Objects.isNull(port))
+		{
+			return null;
+		}
+		
+		try
+		{
+			MetricsEndpoint endpoint = new MetricsEndpoint(MetricsRegistry.getDefault(), port);
+			System.out.println("Metrics at http://localhost:" + endpoint.getPort() + "/metrics");
+			return endpoint;
+		}
+		catch(IOException e)
+		{
+			System.out.println("Could not start the metrics endpoint: " + e);
+			return null;
+		}
 	}
 
 	private void processUserSelections() 
@@ -70,6 +182,18 @@ public class ProjectsApp
 					deleteAProject();
 					break;
 					
+				case 6:
+					searchProjects();
+					break;
+					
+				case 7:
+					browseByCategory();
+					break;
+					
+				case 8:
+					showPortfolioTotals();
+					break;
+					
 				default: System.out.println("\n" + select + " is not a valid selection. Try again.");
 				}
 			}
@@ -80,6 +204,120 @@ public class ProjectsApp
 		}
 	}
 
+	private void searchProjects() 
+	{
+		String query = getStringInput("Enter words to search for");
+		
+		if(Objects.isNull(query))
+		{
+			return;
+		}
+		
+		//one page at a time, best matches first, Enter shows the next page
+		int offset = 0;
+		SearchPage page;
+		
+		do
+		{
+			page = projectService.searchProjects(query, offset, SEARCH_PAGE_SIZE);
+			
+			if(page.getHits().isEmpty() && offset == 0)
+			{
+				System.out.println("\nNo projects match \"" + query + "\".");
+				return;
+			}
+			
+			for(SearchHit hit : page.getHits())
+			{
+				System.out.println(" " + hit.getProjectId() + ": " + hit.getProjectName());
+			}
+			
+			offset = page.getNextOffset();
+		}while(page.hasMore() && Objects.isNull(getStringInput("Press Enter for more, or type anything to stop")));
+		System.out.println();
+	}
+
+	private void browseByCategory() 
+	{
+		System.out.println("\nCategories:");
+		
+		for(CategoryCount count : projectService.countProjectsByCategory(CategoryFilter.everyProject()))
+		{
+			System.out.println(" " + count.getCategoryId() + ": " + count.getCategoryName() + " (" + count.getProjectCount() + ")");
+		}
+		
+		String input = getStringInput("Enter category IDs separated by commas");
+		
+		if(Objects.isNull(input))
+		{
+			return;
+		}
+		
+		List<Integer> categoryIds = new ArrayList<>();
+		
+		for(String categoryId : input.split(","))
+		{
+			try
+			{
+				categoryIds.add(Integer.valueOf(categoryId.trim()));
+			}
+			catch(NumberFormatException e)
+			{
+				throw new DbException(categoryId.trim() + " is not a valid category ID.");
+			}
+		}
+		
+		//with more than one category, ask whether a project needs all of them or any one
+		CategoryMatch match = CategoryMatch.ANY;
+		
+		if(categoryIds.size() > 1)
+		{
+			System.out.println("Only projects in every one of these categories?");
+			match = yesNo() == 1 ? CategoryMatch.ALL : CategoryMatch.ANY;
+		}
+		
+		CategoryFilter filter = CategoryFilter.of(categoryIds, match);
+		FacetPage page = null;
+		
+		//one page at a time in ID order, Enter shows the next page
+		do
+		{
+			page = projectService.grabProjectsByCategories(filter, page == null ? 0 : page.getNextAfterProjectId(), PAGE_SIZE);
+			
+			for(ProjectSummary project : page.getProjects())
+			{
+				System.out.println(" " + project.getProjectId() + ": " + project.getProjectName());
+			}
+		}while(page.hasMore() && Objects.isNull(getStringInput("Press Enter for more, or type anything to stop")));
+		System.out.println();
+	}
+
+	private void showPortfolioTotals() 
+	{
+		//read from the precomputed rollup rows, no materials are loaded
+		System.out.println("\nBy category:");
+		
+		for(PortfolioTotal total : projectService.grabPortfolioByCategory())
+		{
+			System.out.println(" " + total.getGroupName() + ": " + formatTotal(total));
+		}
+		
+		System.out.println("\nBy difficulty:");
+		
+		for(PortfolioTotal total : projectService.grabPortfolioByDifficulty())
+		{
+			String difficulty = Objects.isNull(total.getGroupId()) ? "none" : total.getGroupId().toString();
+			System.out.println(" " + difficulty + ": " + formatTotal(total));
+		}
+		System.out.println();
+	}
+	
+	private String formatTotal(PortfolioTotal total)
+	{
+		return total.getProjectCount() + " projects, material cost " + total.getMaterialCost() + ", hours "
+				+ total.getActualHours() + " of " + total.getEstimatedHours() + " estimated (variance " + total.getHoursVariance() + ")";
+	}
+
 	private void deleteAProject() 
 	{
 		//Shows projects, then asks for id of desired deletion
@@ -91,16 +329,15 @@ public class ProjectsApp
 		
 		try 
 		{
-			//This may actually be not needed
-			if(projectService.grabSpecificProject(projectId) == null)
+			//makes current the project from given ID, one lookup is enough since it throws if the ID is missing
+			currentProject = projectService.grabSpecificProject(projectId);
+			
+			if(currentProject == null)
 			{
 				//This may never do anything because of the try/catch
 				System.out.println("Please select an ID");
 			}else
 			{
-				//makes current the project from given ID
-				currentProject = projectService.grabSpecificProject(projectId);
-				
 				//Second chance if user mistyped delete
 				System.out.println("Are you sure you would like to remove the selected project: " + currentProject.getProjectName() + "?");
 				try
@@ -160,19 +397,59 @@ public class ProjectsApp
 			String notes = getStringInput("Enter the project notes [" + currentProject.getNotes() + "]");
 			
 			
-			//temp project instance
+			//temp project instance, starts out as the current details so only what the user changes is marked dirty
 			Project project = new Project();
-			
-			//I love this. Super easy boolean if/else statement that checks for null then sets data
-			project.setProjectName(Objects.isNull(projectName) ? currentProject.getProjectName() : projectName);
-			project.setEstimatedHours(Objects.isNull(estimatedHours) ? currentProject.getEstimatedHours() : estimatedHours);
-			project.setActualHours(Objects.isNull(actualHours) ? currentProject.getActualHours() : actualHours);
-			project.setDifficulty(Objects.isNull(difficulty) ? currentProject.getDifficulty() : difficulty);
-			project.setNotes(Objects.isNull(notes) ? currentProject.getNotes() : notes);
+			project.setProjectName(currentProject.getProjectName());
+			project.setEstimatedHours(currentProject.getEstimatedHours());
+			project.setActualHours(currentProject.getActualHours());
+			project.setDifficulty(currentProject.getDifficulty());
+			project.setNotes(currentProject.getNotes());
 			project.setProjectId(currentProject.getProjectId());
+			project.setVersion(currentProject.getVersion());
+			project.markClean();
 			
-			//sends changes to service then on to dao to update.
-			projectService.modifyProjectDetails(project);
+			//blank input keeps the current value, a value equal to the current one isn't a change either
+			if(Objects.nonNull(projectName))
+			{
+				project.setProjectName(projectName);
+			}
+			
+			if(Objects.nonNull(estimatedHours))
+			{
+				project.setEstimatedHours(estimatedHours);
+			}
+			
+			if(Objects.nonNull(actualHours))
+			{
+				project.setActualHours(actualHours);
+			}
+			
+			if(Objects.nonNull(difficulty))
+			{
+				project.setDifficulty(difficulty);
+			}
+			
+			if(Objects.nonNull(notes))
+			{
+				project.setNotes(notes);
+			}
+			
+			if(!project.isDirty())
+			{
+				System.out.println("\nNothing changed.");
+				return;
+			}
+			
+			//sends changes to service then on to dao to update. Nothing is locked while the prompts above wait,
+			//if someone else saved in the meantime the update is refused and the latest version is shown instead
+			try
+			{
+				projectService.modifyProjectDetails(project);
+			}
+			catch(OptimisticLockException e)
+			{
+				System.out.println("\n" + e.getMessage() + ", reloading it. Please review and update again.");
+			}
 			
 			//adjusts currentProject to reflect changes made. Now all iterations should match.
 			currentProject = projectService.grabSpecificProject(currentProject.getProjectId());
@@ -200,15 +477,23 @@ public class ProjectsApp
 
 	private void viewProjects() 
 	{
-		//makes an instance of a project list to replicate from called classes/methods
-		List<Project> projects = projectService.grabAllThoseProjects();
-		
 		System.out.println("\nProjects:");
 		
-		for(Project project : projects)
+		//pulls the list a page at a time so only one page is ever held in memory
+		//only the ID and name are shown, so only those columns are fetched
+		int afterProjectId = 0;
+		List<ProjectSummary> projects;
+		
+		do
 		{
-			System.out.println(" " + project.getProjectId() + ": " + project.getProjectName());
-		}
+			projects = projectService.grabProjectSummaryPage(afterProjectId, PAGE_SIZE);
+			
+			for(ProjectSummary project : projects)
+			{
+				System.out.println(" " + project.getProjectId() + ": " + project.getProjectName());
+				afterProjectId = project.getProjectId();
+			}
+		}while(projects.size() == PAGE_SIZE);
 		System.out.println();
 		
 		//testing further
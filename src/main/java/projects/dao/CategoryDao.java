@@ -0,0 +1,149 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import projects.exception.DbException;
+import projects.metrics.MetricsRegistry;
+import projects.metrics.OperationMetrics;
+import projects.metrics.QueryTimer;
+import provided.util.DaoBase;
+
+/*
+ * Maintenance on the shared category table. Deleting a project only removes its project_category links,
+ * so a category nobody links to any more stays behind until deleteOrphanCategories removes it.
+ */
+public class CategoryDao extends DaoBase
+{
+	private static final String CATEGORY_TABLE = "category";
+	private static final String PROJECT_CATEGORY_TABLE = "project_category";
+
+	private static final OperationMetrics DELETE_ORPHAN_CATEGORIES = MetricsRegistry.getDefault().operation("deleteOrphanCategories");
+
+	//anti-join on project_category_category_idx, walking category IDs upward so a row that can't go yet isn't found twice
+	// @formatter:off 
+	private static final String ORPHAN_CATEGORIES_SQL = ""
+	+ "SELECT c.category_id "
+	+ "FROM " + CATEGORY_TABLE + " c "
+	+ "LEFT JOIN " + PROJECT_CATEGORY_TABLE + " pc ON pc.category_id = c.category_id "
+	+ "WHERE c.category_id > ? AND pc.category_id IS NULL "
+	+ "ORDER BY c.category_id "
+	+ "LIMIT ?";
+	
+	//checked again as it deletes, a project may have linked the category since it was found
+	private static final String DELETE_ORPHAN_SQL = ""
+	+ "DELETE FROM " + CATEGORY_TABLE + " "
+	+ "WHERE category_id = ? "
+	+ "AND NOT EXISTS (SELECT 1 FROM " + PROJECT_CATEGORY_TABLE + " pc WHERE pc.category_id = ?)";
+	// @formatter:on
+
+	/*
+	 * Deletes up to batchSize unlinked categories with IDs above afterCategoryId in one short transaction,
+	 * so row locks are only held for one batch. The batch says where the next one should start. The number
+	 * deleted is added to the metrics as rows.
+	 */
+	public OrphanBatch deleteOrphanCategories(int afterCategoryId, int batchSize)
+	{
+		try(QueryTimer timer = DELETE_ORPHAN_CATEGORIES.start(); Connection conn = timer.acquired(DbConnection.getConnection()))
+		{
+			startTransaction(conn);
+
+			try
+			{
+				List<Integer> candidates = new ArrayList<>(batchSize);
+
+				try(PreparedStatement stat = conn.prepareStatement(ORPHAN_CATEGORIES_SQL))
+				{
+					setParameter(stat, 1, afterCategoryId, Integer.class);
+					setParameter(stat, 2, batchSize, Integer.class);
+
+					try(ResultSet rs = timer.executed(stat.executeQuery()))
+					{
+						while(rs.next())
+						{
+							candidates.add(rs.getInt("category_id"));
+						}
+					}
+				}
+
+				int deleted = 0;
+
+				if(!candidates.isEmpty())
+				{
+					try(PreparedStatement stat = conn.prepareStatement(DELETE_ORPHAN_SQL))
+					{
+						for(Integer categoryId : candidates)
+						{
+							setParameter(stat, 1, categoryId, Integer.class);
+							setParameter(stat, 2, categoryId, Integer.class);
+							stat.addBatch();
+						}
+
+						for(int count : timer.executed(stat.executeBatch()))
+						{
+							deleted += Math.max(0, count);
+						}
+					}
+				}
+
+				commitTransaction(conn);
+				timer.affected(deleted);
+				
+				if(deleted > 0)
+				{
+					CategoryDictionary.getDefault().invalidate();
+				}
+				timer.completed();
+
+				int lastCategoryId = candidates.isEmpty() ? -1 : candidates.get(candidates.size() - 1);
+				return new OrphanBatch(candidates.size(), deleted, lastCategoryId);
+			}
+			catch(Exception e)
+			{
+				System.out.println("Failed in CategoryDao.deleteOrphanCategories");
+				rollbackTransaction(conn);
+				throw new DbException(e);
+			}
+		}
+		catch(SQLException e)
+		{
+			System.out.println("Failed connection in CategoryDao.deleteOrphanCategories");
+			throw new DbException(e);
+		}
+	}
+
+	//what one batch found and removed
+	public static class OrphanBatch
+	{
+		private final int found;
+		private final int deleted;
+		private final int lastCategoryId;
+
+		OrphanBatch(int found, int deleted, int lastCategoryId)
+		{
+			this.found = found;
+			this.deleted = deleted;
+			this.lastCategoryId = lastCategoryId;
+		}
+
+		public int getFound()
+		{
+			return found;
+		}
+
+		public int getDeleted()
+		{
+			return deleted;
+		}
+
+		//where the next batch starts, -1 when this one found nothing
+		public int getLastCategoryId()
+		{
+			return lastCategoryId;
+		}
+	}
+}
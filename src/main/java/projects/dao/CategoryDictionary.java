@@ -0,0 +1,171 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import projects.entity.Category;
+import projects.metrics.MetricsRegistry;
+import projects.metrics.OperationMetrics;
+import projects.metrics.QueryTimer;
+import projects.util.IntObjectMap;
+
+/*
+ * Every category in the table, held once for the whole process. Projects are loaded with just their
+ * project_category IDs and get the shared Category instances from here, so a project view doesn't join
+ * category or allocate its own Category objects and name Strings.
+ *
+ * The shared instances can't be changed, their setters throw. The table is read again on the next lookup
+ * after invalidate(), after refreshMillis (-Dprojects.categories.refreshMillis, 5 minutes by default),
+ * or when a project links to an ID that isn't here yet, e.g. a category another process just created.
+ * Reloads go through the caller's connection, so they see the same data as the links just read with it
+ * and never wait on the pool for a second connection.
+ */
+public class CategoryDictionary
+{
+	private static final OperationMetrics LOAD = MetricsRegistry.getDefault().operation("loadCategoryDictionary");
+	private static final String ALL_CATEGORIES_SQL = "SELECT category_id, category_name FROM category";
+
+	private static final CategoryDictionary DEFAULT = new CategoryDictionary(Long.getLong("projects.categories.refreshMillis", 5 * 60_000));
+
+	private final long refreshMillis;
+
+	//bumped by invalidate(), a snapshot read before the last bump is stale
+	private final AtomicLong generation = new AtomicLong();
+	private final Object loadLock = new Object();
+
+	//replaced whole, never changed once published
+	private volatile Snapshot snapshot;
+
+	CategoryDictionary(long refreshMillis)
+	{
+		this.refreshMillis = refreshMillis;
+	}
+
+	public static CategoryDictionary getDefault()
+	{
+		return DEFAULT;
+	}
+
+	//the table changed, e.g. scripts ran or categories were deleted, the next lookup reads it again
+	public void invalidate()
+	{
+		generation.incrementAndGet();
+	}
+
+	//true for the instances handed out with loaded projects, which can't be changed and need no copying
+	public static boolean isShared(Category category)
+	{
+		return category instanceof SharedCategory;
+	}
+
+	//categories held right now, 0 before the first lookup
+	public int size()
+	{
+		Snapshot current = snapshot;
+		return current == null ? 0 : current.categories.size();
+	}
+
+	/*
+	 * The shared Category for an ID read from project_category on conn. An unknown ID reloads the table
+	 * once through conn and fails if it still isn't there.
+	 */
+	Category get(Connection conn, int categoryId) throws SQLException
+	{
+		Snapshot current = current(conn);
+		Category category = current.categories.get(categoryId);
+
+		if(category == null)
+		{
+			category = reload(conn, current).categories.get(categoryId);
+		}
+
+		if(category == null)
+		{
+			throw new SQLException("Category " + categoryId + " is linked to a project but isn't in the category table");
+		}
+		return category;
+	}
+
+	private Snapshot current(Connection conn) throws SQLException
+	{
+		Snapshot current = snapshot;
+
+		if(current == null || current.generation != generation.get()
+				|| System.currentTimeMillis() - current.loadedAt >= refreshMillis)
+		{
+			return reload(conn, current);
+		}
+		return current;
+	}
+
+	//one thread reads the table, the others wait and use what it read instead of reading it again
+	private Snapshot reload(Connection conn, Snapshot seen) throws SQLException
+	{
+		synchronized(loadLock)
+		{
+			if(snapshot != seen && snapshot.generation == generation.get())
+			{
+				return snapshot;
+			}
+
+			//taken before the read, an invalidate() while it runs leaves this snapshot stale
+			long loadingGeneration = generation.get();
+			IntObjectMap<Category> categories = new IntObjectMap<>(seen == null ? 64 : seen.categories.size());
+
+			try(QueryTimer timer = LOAD.start(); PreparedStatement stat = conn.prepareStatement(ALL_CATEGORIES_SQL);
+					ResultSet rs = timer.executed(stat.executeQuery()))
+			{
+				while(rs.next())
+				{
+					int categoryId = rs.getInt("category_id");
+					categories.put(categoryId, new SharedCategory(categoryId, rs.getString("category_name")));
+				}
+				timer.mapped(categories.size());
+				timer.completed();
+			}
+
+			snapshot = new Snapshot(categories, loadingGeneration, System.currentTimeMillis());
+			return snapshot;
+		}
+	}
+
+	private static class Snapshot
+	{
+		//only read once published, so sharing the map between threads is safe
+		private final IntObjectMap<Category> categories;
+		private final long generation;
+		private final long loadedAt;
+
+		Snapshot(IntObjectMap<Category> categories, long generation, long loadedAt)
+		{
+			this.categories = categories;
+			this.generation = generation;
+			this.loadedAt = loadedAt;
+		}
+	}
+
+	//handed to every project that links to the category, so nobody may change it
+	private static class SharedCategory extends Category
+	{
+		SharedCategory(int categoryId, String categoryName)
+		{
+			super.setCategoryId(categoryId);
+			super.setCategoryName(categoryName);
+		}
+
+		@Override
+		public void setCategoryId(Integer categoryId)
+		{
+			throw new UnsupportedOperationException("Categories loaded with a project are shared and can't be changed");
+		}
+
+		@Override
+		public void setCategoryName(String categoryName)
+		{
+			throw new UnsupportedOperationException("Categories loaded with a project are shared and can't be changed");
+		}
+	}
+}
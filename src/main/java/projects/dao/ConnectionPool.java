@@ -0,0 +1,574 @@
+package projects.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import projects.exception.DbException;
+
+/*
+ * Bounded pool of physical connections. Callers get a proxy back from borrow(), and calling close() on
+ * that proxy hands the physical connection back to the pool instead of closing it, so the DAO code can keep
+ * using try-with-resources exactly like it did with DriverManager.
+ */
+public class ConnectionPool implements AutoCloseable
+{
+	//opens a new physical connection, DbConnection owns the url so it supplies this
+	interface ConnectionFactory
+	{
+		Connection create() throws SQLException;
+	}
+	
+	//told about every borrow and every return, on the thread doing it. Whatever leased() returns is handed back to returned().
+	interface LeaseListener
+	{
+		Object leased();
+		
+		void returned(Object lease);
+	}
+	
+	private static final LeaseListener NO_LISTENER = new LeaseListener()
+	{
+		@Override
+		public Object leased()
+		{
+			return null;
+		}
+		
+		@Override
+		public void returned(Object lease)
+		{
+		}
+	};
+
+	private final ConnectionFactory factory;
+	private final PoolConfig config;
+	private final LeaseListener listener;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition available = lock.newCondition();
+
+	//most recently returned connection sits at the front, so the tail is always the longest idle
+	private final Deque<PooledConnection> idle = new ArrayDeque<>();
+	private final ScheduledExecutorService evictor;
+
+	//everything below is guarded by lock
+	private int total;
+	private int active;
+	private int waiters;
+	private boolean closed;
+	private long borrowCount;
+	private long timeoutCount;
+	private long totalBorrowNanos;
+	private long maxBorrowNanos;
+	
+	//shared by the statement caches of every connection in the pool
+	private final AtomicLong statementHits = new AtomicLong();
+	private final AtomicLong statementMisses = new AtomicLong();
+
+	ConnectionPool(ConnectionFactory factory, PoolConfig config)
+	{
+		this(factory, config, NO_LISTENER);
+	}
+	
+	ConnectionPool(ConnectionFactory factory, PoolConfig config, LeaseListener listener)
+	{
+		this.factory = factory;
+		this.config = config;
+		this.listener = listener;
+
+		evictor = Executors.newSingleThreadScheduledExecutor(runnable ->
+		{
+			Thread thread = new Thread(runnable, "connection-pool-evictor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		evictor.scheduleWithFixedDelay(this::evictIdle, config.getEvictionIntervalMillis(),
+				config.getEvictionIntervalMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	public Connection borrow()
+	{
+		long start = System.nanoTime();
+		long deadline = start + TimeUnit.MILLISECONDS.toNanos(config.getBorrowTimeoutMillis());
+
+		while(true)
+		{
+			PooledConnection pooled = null;
+			boolean create = false;
+
+			lock.lock();
+			try
+			{
+				while(pooled == null && !create)
+				{
+					if(closed)
+					{
+						throw new DbException("Connection pool is closed.");
+					}
+
+					if(!idle.isEmpty())
+					{
+						pooled = idle.pollFirst();
+						active++;
+					}
+					else if(total < config.getMaxSize())
+					{
+						//reserve the slot now, the actual connect happens outside the lock
+						total++;
+						active++;
+						create = true;
+					}
+					else
+					{
+						long remaining = deadline - System.nanoTime();
+
+						if(remaining <= 0)
+						{
+							timeoutCount++;
+							String message = "Timed out after " + config.getBorrowTimeoutMillis()
+								+ " ms waiting for a database connection (" + snapshot() + ")";
+
+							//the transient cause tells callers that retry, like the write-behind queue, it may work later
+							throw new DbException(message, new SQLTransientConnectionException(message));
+						}
+
+						waiters++;
+						try
+						{
+							available.awaitNanos(remaining);
+						}
+						catch(InterruptedException e)
+						{
+							Thread.currentThread().interrupt();
+							throw new DbException("Interrupted waiting for a database connection", e);
+						}
+						finally
+						{
+							waiters--;
+						}
+					}
+				}
+			}
+			finally
+			{
+				lock.unlock();
+			}
+
+			if(create)
+			{
+				try
+				{
+					pooled = new PooledConnection(factory.create(),
+							new StatementCache(config.getStatementCacheSize(), statementHits, statementMisses));
+				}
+				catch(Exception e)
+				{
+					discard(null);
+					throw new DbException(e);
+				}
+			}
+			else if(!isUsable(pooled))
+			{
+				//stale or dead connection, drop it and go around again
+				discard(pooled);
+				continue;
+			}
+
+			recordBorrow(System.nanoTime() - start);
+			return pooled.lease(this, listener.leased());
+		}
+	}
+
+	public PoolStats getStats()
+	{
+		lock.lock();
+		try
+		{
+			return snapshot();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void close()
+	{
+		List<PooledConnection> toClose;
+
+		lock.lock();
+		try
+		{
+			closed = true;
+			toClose = new ArrayList<>(idle);
+			total -= idle.size();
+			idle.clear();
+			available.signalAll();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+
+		evictor.shutdownNow();
+		toClose.forEach(PooledConnection::closeQuietly);
+	}
+
+	void release(PooledConnection pooled)
+	{
+		if(pooled.isBroken() || pooled.isExpired(config.getMaxLifetimeMillis()) || !pooled.reset())
+		{
+			discard(pooled);
+			return;
+		}
+
+		boolean closeNow = false;
+
+		lock.lock();
+		try
+		{
+			active--;
+
+			if(closed)
+			{
+				total--;
+				closeNow = true;
+			}
+			else
+			{
+				pooled.touch();
+				idle.addFirst(pooled);
+				available.signal();
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+
+		if(closeNow)
+		{
+			pooled.closeQuietly();
+		}
+	}
+
+	private boolean isUsable(PooledConnection pooled)
+	{
+		if(pooled.isExpired(config.getMaxLifetimeMillis()))
+		{
+			return false;
+		}
+
+		try
+		{
+			return pooled.getPhysical().isValid(config.getValidationTimeoutSeconds());
+		}
+		catch(SQLException e)
+		{
+			return false;
+		}
+	}
+
+	//gives back a slot that was counted as active, pooled is null when the connect itself failed
+	private void discard(PooledConnection pooled)
+	{
+		lock.lock();
+		try
+		{
+			total--;
+			active--;
+			available.signal();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+
+		if(pooled != null)
+		{
+			pooled.closeQuietly();
+		}
+	}
+
+	private void evictIdle()
+	{
+		List<PooledConnection> evicted = new ArrayList<>();
+		long now = System.currentTimeMillis();
+
+		lock.lock();
+		try
+		{
+			Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+
+			while(oldestFirst.hasNext())
+			{
+				PooledConnection pooled = oldestFirst.next();
+				boolean idleTooLong = now - pooled.getLastUsed() > config.getIdleTimeoutMillis() && total > config.getMinIdle();
+
+				if(idleTooLong || pooled.isExpired(config.getMaxLifetimeMillis()))
+				{
+					oldestFirst.remove();
+					total--;
+					evicted.add(pooled);
+				}
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+
+		evicted.forEach(PooledConnection::closeQuietly);
+	}
+
+	private void recordBorrow(long nanos)
+	{
+		lock.lock();
+		try
+		{
+			borrowCount++;
+			totalBorrowNanos += nanos;
+			maxBorrowNanos = Math.max(maxBorrowNanos, nanos);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	private PoolStats snapshot()
+	{
+		long averageMicros = borrowCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalBorrowNanos / borrowCount);
+
+		return new PoolStats(active, idle.size(), waiters, borrowCount, timeoutCount, averageMicros,
+				TimeUnit.NANOSECONDS.toMicros(maxBorrowNanos), statementHits.get(), statementMisses.get());
+	}
+
+	/*
+	 * One physical connection plus the bookkeeping the pool needs for it.
+	 */
+	static class PooledConnection
+	{
+		private final Connection physical;
+		private final StatementCache statements;
+		private final long createdAt = System.currentTimeMillis();
+		private volatile long lastUsed = createdAt;
+		private volatile boolean broken;
+
+		//the state the factory handed the connection out in, reset() puts a returned connection back to it
+		private final boolean initialReadOnly;
+		private final int initialIsolation;
+		private final String initialCatalog;
+
+		PooledConnection(Connection physical, StatementCache statements) throws SQLException
+		{
+			this.physical = physical;
+			this.statements = statements;
+
+			try
+			{
+				initialReadOnly = physical.isReadOnly();
+				initialIsolation = physical.getTransactionIsolation();
+				initialCatalog = physical.getCatalog();
+			}
+			catch(SQLException e)
+			{
+				closeQuietly();
+				throw e;
+			}
+		}
+
+		Connection getPhysical()
+		{
+			return physical;
+		}
+
+		StatementCache getStatements()
+		{
+			return statements;
+		}
+
+		long getLastUsed()
+		{
+			return lastUsed;
+		}
+
+		void touch()
+		{
+			lastUsed = System.currentTimeMillis();
+		}
+
+		boolean isBroken()
+		{
+			return broken;
+		}
+
+		void markBroken()
+		{
+			broken = true;
+		}
+
+		boolean isExpired(long maxLifetimeMillis)
+		{
+			return System.currentTimeMillis() - createdAt > maxLifetimeMillis;
+		}
+
+		/*
+		 * Puts the connection back the way the factory handed it out: anything left uncommitted gets rolled
+		 * back, and autocommit, read-only, isolation and catalog go back to what they were when it was opened.
+		 * False when any of that fails, the pool then throws the connection away instead of lending it again.
+		 */
+		boolean reset()
+		{
+			try
+			{
+				if(!physical.getAutoCommit())
+				{
+					physical.rollback();
+					physical.setAutoCommit(true);
+				}
+
+				if(physical.isReadOnly() != initialReadOnly)
+				{
+					physical.setReadOnly(initialReadOnly);
+				}
+
+				if(physical.getTransactionIsolation() != initialIsolation)
+				{
+					physical.setTransactionIsolation(initialIsolation);
+				}
+
+				if(!Objects.equals(physical.getCatalog(), initialCatalog))
+				{
+					physical.setCatalog(initialCatalog);
+				}
+
+				physical.clearWarnings();
+				return true;
+			}
+			catch(SQLException e)
+			{
+				return false;
+			}
+		}
+
+		void closeQuietly()
+		{
+			try
+			{
+				physical.close();
+			}
+			catch(SQLException e)
+			{
+				//nothing useful to do, the connection is being thrown away anyway
+			}
+		}
+
+		Connection lease(ConnectionPool pool, Object listenerLease)
+		{
+			return (Connection)Proxy.newProxyInstance(Connection.class.getClassLoader(),
+					new Class<?>[] {Connection.class}, new LeaseHandler(pool, this, listenerLease));
+		}
+	}
+
+	/*
+	 * Handler behind the proxy a caller gets. Each borrow gets its own handler, so a caller holding on to
+	 * a connection after closing it can't touch whoever borrowed the physical connection next.
+	 */
+	private static class LeaseHandler implements InvocationHandler
+	{
+		private final ConnectionPool pool;
+		private final PooledConnection pooled;
+		private final Object listenerLease;
+		private boolean returned;
+
+		LeaseHandler(ConnectionPool pool, PooledConnection pooled, Object listenerLease)
+		{
+			this.pool = pool;
+			this.pooled = pooled;
+			this.listenerLease = listenerLease;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+		{
+			switch(method.getName())
+			{
+			case "close":
+				if(!returned)
+				{
+					returned = true;
+					pool.release(pooled);
+					pool.listener.returned(listenerLease);
+				}
+				return null;
+
+			case "isClosed":
+				return returned || pooled.getPhysical().isClosed();
+
+			case "equals":
+				return proxy == args[0];
+
+			case "hashCode":
+				return System.identityHashCode(proxy);
+
+			case "toString":
+				return "Pooled[" + pooled.getPhysical() + "]";
+			}
+
+			if(returned)
+			{
+				throw new SQLException("Connection has already been returned to the pool.");
+			}
+
+			try
+			{
+				//prepareStatement(sql) and prepareStatement(sql, autoGeneratedKeys) go through the statement cache
+				if(method.getName().equals("prepareStatement"))
+				{
+					Class<?>[] types = method.getParameterTypes();
+					
+					if(types.length == 1)
+					{
+						return pooled.getStatements().prepare(pooled.getPhysical(), (String)args[0], -1);
+					}
+					
+					if(types.length == 2 && types[1] == int.class)
+					{
+						return pooled.getStatements().prepare(pooled.getPhysical(), (String)args[0], (Integer)args[1]);
+					}
+				}
+				
+				return method.invoke(pooled.getPhysical(), args);
+			}
+			catch(InvocationTargetException | SQLException e)
+			{
+				Throwable cause = e instanceof InvocationTargetException ? e.getCause() : e;
+
+				//SQLState class 08 is a connection exception, the physical connection is no good after that
+				if(cause instanceof SQLException && String.valueOf(((SQLException)cause).getSQLState()).startsWith("08"))
+				{
+					pooled.markBroken();
+				}
+				throw cause;
+			}
+		}
+	}
+}
@@ -0,0 +1,188 @@
+package projects.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+
+import projects.exception.DbException;
+
+/*
+ * Where the databases are. Settings come from a properties file, either the one named by
+ * -Dprojects.db.config or projects-db.properties on the class path, and any -D system property with the
+ * same name wins over the file. Everything is optional, the defaults are the single local database the
+ * app has always used:
+ *
+ *   projects.db.host=localhost
+ *   projects.db.port=3306
+ *   projects.db.schema=projects
+ *   projects.db.user=projects
+ *   projects.db.password=projects
+ *
+ *   #comma separated host:port list, reads go here when it is set
+ *   projects.db.replicas=localhost:3307,localhost:3308
+ *   #default to the primary's values
+ *   projects.db.replica.schema=
+ *   projects.db.replica.user=
+ *   projects.db.replica.password=
+ *   projects.db.replica.strategy=ROUND_ROBIN
+ *   projects.db.replica.healthCheckMillis=5000
+ *   #how long a read waits for a busy replica's pool before trying the next replica or the primary
+ *   projects.db.replica.borrowTimeoutMillis=250
+ *
+ *   #how long a thread keeps reading from the primary after it used a primary connection
+ *   projects.db.readYourWritesMillis=2000
+ */
+public class DbConfig
+{
+	private static final String CONFIG_FILE_PROPERTY = "projects.db.config";
+	private static final String CONFIG_RESOURCE = "projects-db.properties";
+
+	private DbEndpoint primary;
+	private List<DbEndpoint> replicas = new ArrayList<>();
+	private ReplicaStrategy replicaStrategy = ReplicaStrategy.ROUND_ROBIN;
+	private long healthCheckMillis = 5_000;
+	private long replicaBorrowTimeoutMillis = 250;
+	private long readYourWritesMillis = 2_000;
+
+	public static DbConfig load()
+	{
+		Properties settings = new Properties();
+
+		try
+		{
+			String file = System.getProperty(CONFIG_FILE_PROPERTY);
+
+			if(Objects.nonNull(file))
+			{
+				try(Reader reader = Files.newBufferedReader(Path.of(file), StandardCharsets.UTF_8))
+				{
+					settings.load(reader);
+				}
+			}
+			else
+			{
+				try(InputStream in = DbConfig.class.getClassLoader().getResourceAsStream(CONFIG_RESOURCE))
+				{
+					if(Objects.nonNull(in))
+					{
+						settings.load(in);
+					}
+				}
+			}
+		}
+		catch(IOException e)
+		{
+			throw new DbException("Could not read the database settings", e);
+		}
+
+		settings.putAll(System.getProperties());
+		return fromProperties(settings);
+	}
+
+	public static DbConfig fromProperties(Properties settings)
+	{
+		DbConfig config = new DbConfig();
+
+		String schema = settings.getProperty("projects.db.schema", "projects");
+		String user = settings.getProperty("projects.db.user", "projects");
+		String password = settings.getProperty("projects.db.password", "projects");
+
+		config.setPrimary(new DbEndpoint(settings.getProperty("projects.db.host", "localhost"),
+				Integer.parseInt(settings.getProperty("projects.db.port", "3306").trim()), schema, user, password));
+
+		String replicaSchema = nonBlank(settings.getProperty("projects.db.replica.schema"), schema);
+		String replicaUser = nonBlank(settings.getProperty("projects.db.replica.user"), user);
+		String replicaPassword = nonBlank(settings.getProperty("projects.db.replica.password"), password);
+
+		for(String hostAndPort : settings.getProperty("projects.db.replicas", "").split(","))
+		{
+			if(hostAndPort.isBlank())
+			{
+				continue;
+			}
+
+			String[] parts = hostAndPort.trim().split(":");
+			int port = parts.length > 1 ? Integer.parseInt(parts[1]) : 3306;
+			config.getReplicas().add(new DbEndpoint(parts[0], port, replicaSchema, replicaUser, replicaPassword));
+		}
+
+		config.setReplicaStrategy(ReplicaStrategy.fromName(settings.getProperty("projects.db.replica.strategy")));
+		config.setHealthCheckMillis(Long.parseLong(settings.getProperty("projects.db.replica.healthCheckMillis", "5000").trim()));
+		config.setReplicaBorrowTimeoutMillis(Long.parseLong(settings.getProperty("projects.db.replica.borrowTimeoutMillis", "250").trim()));
+		config.setReadYourWritesMillis(Long.parseLong(settings.getProperty("projects.db.readYourWritesMillis", "2000").trim()));
+
+		return config;
+	}
+
+	private static String nonBlank(String value, String fallback)
+	{
+		return Objects.isNull(value) || value.isBlank() ? fallback : value;
+	}
+
+	public DbEndpoint getPrimary()
+	{
+		return primary;
+	}
+
+	public void setPrimary(DbEndpoint primary)
+	{
+		this.primary = primary;
+	}
+
+	public List<DbEndpoint> getReplicas()
+	{
+		return replicas;
+	}
+
+	public void setReplicas(List<DbEndpoint> replicas)
+	{
+		this.replicas = replicas;
+	}
+
+	public ReplicaStrategy getReplicaStrategy()
+	{
+		return replicaStrategy;
+	}
+
+	public void setReplicaStrategy(ReplicaStrategy replicaStrategy)
+	{
+		this.replicaStrategy = replicaStrategy;
+	}
+
+	public long getHealthCheckMillis()
+	{
+		return healthCheckMillis;
+	}
+
+	public void setHealthCheckMillis(long healthCheckMillis)
+	{
+		this.healthCheckMillis = healthCheckMillis;
+	}
+
+	public long getReplicaBorrowTimeoutMillis()
+	{
+		return replicaBorrowTimeoutMillis;
+	}
+
+	public void setReplicaBorrowTimeoutMillis(long replicaBorrowTimeoutMillis)
+	{
+		this.replicaBorrowTimeoutMillis = replicaBorrowTimeoutMillis;
+	}
+
+	public long getReadYourWritesMillis()
+	{
+		return readYourWritesMillis;
+	}
+
+	public void setReadYourWritesMillis(long readYourWritesMillis)
+	{
+		this.readYourWritesMillis = readYourWritesMillis;
+	}
+}
@@ -3,40 +3,281 @@ package projects.dao;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
-import projects.exception.DbException;
-
-public class DbConnection 
+public class DbConnection
 {
-	//Keeps connection information
-	private static final String SCHEMA = "projects";
-	private static final String USER = "projects";
-	private static final String PASSWORD = "projects";
-	private static final String HOST = "localhost";
-	private static final int PORT = 3306;
-	
+	//Keeps connection information, see DbConfig for the settings file and the -Dprojects.db.* overrides (benchmarks use these)
+	private static final DbConfig CONFIG = DbConfig.load();
+
+	//one pool for the primary, connections are only opened the first time they are needed
+	private static final PoolConfig POOL_CONFIG = new PoolConfig();
+	private static final ConnectionPool POOL = new ConnectionPool(() -> openConnection(CONFIG.getPrimary(), false, false), POOL_CONFIG,
+			new PrimaryLeaseListener());
+
+	//one more pool per replica, empty when no replicas are configured
+	private static final ReplicaRouter REPLICAS = new ReplicaRouter(CONFIG, POOL_CONFIG,
+			endpoint -> () -> openConnection(endpoint, true, false));
+
+	//per thread state that decides whether a read may go to a replica
+	private static final ThreadLocal<ReadRouting> ROUTING = ThreadLocal.withInitial(ReadRouting::new);
+
+	//project ID to the end of its read-your-writes window, seen by every thread, not just the one that wrote
+	private static final Map<Integer, Long> WRITTEN = new ConcurrentHashMap<>();
+
+	//past this many entries markWritten() drops the expired ones
+	private static final int MAX_WRITTEN = 10_000;
+
+	//end of the window for a change to every project, e.g. a script
+	private static volatile long everythingWrittenUntil;
+
+	//a connection to the primary, for writes and for reads that have to see them
 	public static Connection getConnection()
 	{
-		//creates string formatted to give the command with given variables
-		String url = String.format("jdbc:mysql://%s:%d/%s?user=%s&password=%s&useSSL=false", 
-				HOST, PORT, SCHEMA, USER, PASSWORD);
-		
-		System.out.println("Connecting with url=" + url);
-		
+		//borrows from the pool, closing the returned connection hands it back instead of disconnecting
+		return POOL.borrow();
+	}
+
+	/*
+	 * A connection for a read that can stand a little replication lag. It comes from a replica unless this
+	 * thread has a primary connection open (the read is part of a write), used one within the last
+	 * readYourWritesMillis, is inside readFromPrimary(), or no replica is up or has a free connection within
+	 * replicaBorrowTimeoutMillis. In all of those cases it is a primary connection like getConnection().
+	 * That window only covers the thread that wrote, reads of a particular project go through
+	 * readAfterWrites() to see writes made on other threads.
+	 */
+	public static Connection getReadConnection()
+	{
+		if(REPLICAS.hasReplicas() && !ROUTING.get().mustReadPrimary())
+		{
+			Connection conn = REPLICAS.borrow();
+
+			if(conn != null)
+			{
+				return conn;
+			}
+		}
 		
-		//Tries to connect to server with url provided, throws exception if failed.
-		try 
+		//a read that lands on the primary doesn't restart the read-your-writes window
+		ReadRouting routing = ROUTING.get();
+		routing.borrowingForRead = true;
+
+		try
 		{
-			Connection conn = DriverManager.getConnection(url);
+			return POOL.borrow();
+		}
+		finally
+		{
+			routing.borrowingForRead = false;
+		}
+	}
+
+	/*
+	 * Records that the project was just written or invalidated. For readYourWritesMillis after this,
+	 * readAfterWrites() sends reads of it to the primary on any thread, so a reload on another thread (a
+	 * cache miss, an async call, the next request) can't fetch the row from a replica that hasn't caught up.
+	 */
+	public static void markWritten(Integer projectId)
+	{
+		long now = System.currentTimeMillis();
+		WRITTEN.put(projectId, now + CONFIG.getReadYourWritesMillis());
+
+		if(WRITTEN.size() > MAX_WRITTEN)
+		{
+			WRITTEN.values().removeIf(until -> until <= now);
+		}
+	}
+
+	//like markWritten() for every project, after changes that aren't tracked per project
+	public static void markAllWritten()
+	{
+		everythingWrittenUntil = System.currentTimeMillis() + CONFIG.getReadYourWritesMillis();
+	}
+
+	//true while the project is inside the window markWritten() or markAllWritten() opened
+	public static boolean wasWrittenRecently(Integer projectId)
+	{
+		long now = System.currentTimeMillis();
+
+		if(now < everythingWrittenUntil)
+		{
+			return true;
+		}
+
+		Long until = WRITTEN.get(projectId);
+
+		if(until == null)
+		{
+			return false;
+		}
+
+		if(now >= until)
+		{
+			WRITTEN.remove(projectId, until);
+			return false;
+		}
+		return true;
+	}
+
+	//runs work against the primary if any of the projects was written recently, otherwise routes it as usual
+	public static <T> T readAfterWrites(Collection<Integer> projectIds, Supplier<T> work)
+	{
+		for(Integer projectId : projectIds)
+		{
+			if(wasWrittenRecently(projectId))
+			{
+				return readFromPrimary(work);
+			}
+		}
+		return work.get();
+	}
+
+	/*
+	 * Wraps work to run on another thread with the calling thread's routing: if the caller would read from
+	 * the primary right now, so does work, until the caller's own window would have ended.
+	 */
+	public static <T> Supplier<T> withCallersRouting(Supplier<T> work)
+	{
+		ReadRouting routing = ROUTING.get();
+		long primaryUntil = routing.openPrimary > 0 || routing.primaryReads > 0 ? Long.MAX_VALUE : routing.stickyUntil;
+
+		return () -> System.currentTimeMillis() < primaryUntil ? readFromPrimary(work) : work.get();
+	}
+
+	//runs the reads in work against the primary, for callers that need read-your-writes beyond the automatic window
+	public static <T> T readFromPrimary(Supplier<T> work)
+	{
+		ReadRouting routing = ROUTING.get();
+		routing.primaryReads++;
+
+		try
+		{
+			return work.get();
+		}
+		finally
+		{
+			routing.primaryReads--;
+		}
+	}
+
+	/*
+	 * A primary connection that runs several ;-separated statements in one call, for
+	 * ProjectLoadStrategy.SINGLE_ROUND_TRIP. Only these connections have allowMultiQueries, so a statement
+	 * built from user input anywhere else can't have a second one stacked onto it. Their pool is opened the
+	 * first time one is asked for.
+	 */
+	public static Connection getMultiQueryConnection()
+	{
+		return MultiQueryPool.POOL.borrow();
+	}
+
+	public static PoolStats getPoolStats()
+	{
+		return POOL.getStats();
+	}
+
+	//replica host:port/schema to whether it is in rotation
+	public static Map<String, Boolean> getReplicaHealth()
+	{
+		return REPLICAS.getHealth();
+	}
+
+	//most connections the pool will ever open, callers running work in parallel size their limits from this
+	public static int getMaxPoolSize()
+	{
+		return POOL_CONFIG.getMaxSize();
+	}
+
+	private static Connection openConnection(DbEndpoint endpoint, boolean readOnly, boolean multiQueries) throws SQLException
+	{
+		//never log the real password
+		System.out.println("Connecting with url=" + endpoint.getMaskedUrl() + (multiQueries ? " (multiple statements allowed)" : ""));
+
+
+		//Tries to connect to server with url provided, the pool wraps the exception if it fails.
+		try
+		{
+			Connection conn = DriverManager.getConnection(multiQueries ? endpoint.getMultiQueryUrl() : endpoint.getUrl());
+
+			//replica connections stay read only for their whole life, a stray write fails instead of diverging the replica
+			if(readOnly)
+			{
+				conn.setReadOnly(true);
+			}
+
 			System.out.println("Successfully obtained connection.");
 			return conn;
-			
-		} catch (SQLException e) 
+
+		} catch (SQLException e)
 		{
 			System.out.println("Unable to get connection!");
-			throw new DbException(e);
+			throw e;
+		}
+	}
+
+	//holder class, so the pool and its evictor thread only exist once SINGLE_ROUND_TRIP is used
+	private static class MultiQueryPool
+	{
+		private static final ConnectionPool POOL = new ConnectionPool(() -> openConnection(CONFIG.getPrimary(), false, true), config());
+
+		//as big as the main pool but keeps nothing open while it isn't used
+		private static PoolConfig config()
+		{
+			PoolConfig config = new PoolConfig();
+			config.setMaxSize(POOL_CONFIG.getMaxSize());
+			config.setMinIdle(0);
+			return config;
+		}
+	}
+
+	private static class ReadRouting
+	{
+		private int openPrimary;
+		private int primaryReads;
+		private long stickyUntil;
+		private boolean borrowingForRead;
+
+		boolean mustReadPrimary()
+		{
+			return openPrimary > 0 || primaryReads > 0 || System.currentTimeMillis() < stickyUntil;
+		}
+	}
+
+	/*
+	 * Keeps track of the primary connections each thread has open for writing. Reads that fell back to the
+	 * primary aren't tracked. A connection handed back on a different thread than the one that borrowed it
+	 * (a stream closed elsewhere) can leave the count off, so it never goes below 0.
+	 */
+	private static class PrimaryLeaseListener implements ConnectionPool.LeaseListener
+	{
+		@Override
+		public Object leased()
+		{
+			ReadRouting routing = ROUTING.get();
+
+			if(routing.borrowingForRead)
+			{
+				return null;
+			}
+
+			routing.openPrimary++;
+			return Boolean.TRUE;
+		}
+
+		@Override
+		public void returned(Object lease)
+		{
+			if(lease == null)
+			{
+				return;
+			}
+
+			ReadRouting routing = ROUTING.get();
+			routing.openPrimary = Math.max(0, routing.openPrimary - 1);
+			routing.stickyUntil = System.currentTimeMillis() + CONFIG.getReadYourWritesMillis();
 		}
-		
-		
 	}
 }
@@ -0,0 +1,69 @@
+package projects.dao;
+
+//where one database lives and how to log in to it
+public class DbEndpoint
+{
+	private final String host;
+	private final int port;
+	private final String schema;
+	private final String user;
+	private final String password;
+
+	public DbEndpoint(String host, int port, String schema, String user, String password)
+	{
+		this.host = host;
+		this.port = port;
+		this.schema = schema;
+		this.user = user;
+		this.password = password;
+	}
+
+	public String getHost()
+	{
+		return host;
+	}
+
+	public int getPort()
+	{
+		return port;
+	}
+
+	public String getSchema()
+	{
+		return schema;
+	}
+
+	public String getUser()
+	{
+		return user;
+	}
+
+	//useCursorFetch lets a fetch size stream rows
+	//useServerPrepStmts prepares on the server once, the pool's statement cache keeps those statements open between calls
+	//rewriteBatchedStatements turns a batch of single row inserts into one multi-row INSERT
+	//connectTimeout keeps a dead host from hanging a borrow, the pool's health checks need an answer
+	String getUrl()
+	{
+		return String.format("jdbc:mysql://%s:%d/%s?user=%s&password=%s&useSSL=false&useCursorFetch=true"
+				+ "&useServerPrepStmts=true&rewriteBatchedStatements=true&connectTimeout=5000",
+				host, port, schema, user, password);
+	}
+
+	//the same with allowMultiQueries, only ProjectLoadStrategy.SINGLE_ROUND_TRIP sends several statements in one call
+	String getMultiQueryUrl()
+	{
+		return getUrl() + "&allowMultiQueries=true";
+	}
+
+	//the url for logs, never with the real password
+	String getMaskedUrl()
+	{
+		return getUrl().replace("password=" + password, "password=****");
+	}
+
+	@Override
+	public String toString()
+	{
+		return host + ":" + port + "/" + schema;
+	}
+}
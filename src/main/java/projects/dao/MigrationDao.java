@@ -0,0 +1,210 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import projects.entity.SchemaMigration;
+import projects.exception.DbException;
+import projects.util.SqlScriptReader;
+import provided.util.DaoBase;
+import provided.util.RowMapper;
+
+public class MigrationDao extends DaoBase
+{
+	private static final String HISTORY_TABLE = "schema_history";
+
+	//a named server lock, so only one process at a time checks and applies migrations
+	private static final String LOCK_NAME = "projects_migrations";
+
+	// @formatter:off
+	private static final String CREATE_HISTORY_SQL = ""
+	+ "CREATE TABLE IF NOT EXISTS " + HISTORY_TABLE + "("
+	+ "version int NOT NULL, "
+	+ "description varchar(200) NOT NULL, "
+	+ "script varchar(200) NOT NULL, "
+	+ "checksum bigint NOT NULL, "
+	+ "installed_on timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+	+ "execution_millis int NOT NULL, "
+	+ "PRIMARY KEY (version))";
+
+	private static final String ALL_MIGRATIONS_SQL = "SELECT * FROM " + HISTORY_TABLE + " ORDER BY version";
+
+	private static final String INSERT_MIGRATION_SQL = ""
+	+ "INSERT INTO " + HISTORY_TABLE + " "
+	+ "(version, description, script, checksum, execution_millis) "
+	+ "VALUES "
+	+ "(?, ?, ?, ?, ?)";
+
+	private static final String GET_LOCK_SQL = "SELECT GET_LOCK('" + LOCK_NAME + "', ?)";
+	private static final String RELEASE_LOCK_SQL = "SELECT RELEASE_LOCK('" + LOCK_NAME + "')";
+	// @formatter:on
+
+	/*
+	 * Waits up to timeoutSeconds for the migration lock. GET_LOCK belongs to the session that took it, so
+	 * the lock keeps its own connection until it is closed, and the server frees it if that connection dies.
+	 */
+	public MigrationLock lockMigrations(int timeoutSeconds)
+	{
+		Connection conn = null;
+
+		try
+		{
+			conn = DbConnection.getConnection();
+
+			try(PreparedStatement stat = conn.prepareStatement(GET_LOCK_SQL))
+			{
+				setParameter(stat, 1, timeoutSeconds, Integer.class);
+
+				try(ResultSet rs = stat.executeQuery())
+				{
+					rs.next();
+
+					if(rs.getInt(1) != 1)
+					{
+						throw new DbException("Another process held the " + LOCK_NAME + " lock for more than " + timeoutSeconds
+								+ " seconds, is a migration stuck?");
+					}
+				}
+			}
+			return new MigrationLock(conn);
+		}
+		catch(SQLException | RuntimeException e)
+		{
+			System.out.println("Failed to lock " + LOCK_NAME);
+			closeQuietly(conn);
+			throw e instanceof DbException ? (DbException)e : new DbException(e);
+		}
+	}
+
+	//creates the history table the first time, so a brand new database just has nothing applied
+	public List<SchemaMigration> grabAppliedMigrations()
+	{
+		try(Connection conn = DbConnection.getConnection())
+		{
+			startTransaction(conn);
+
+			try(Statement stat = conn.createStatement())
+			{
+				stat.execute(CREATE_HISTORY_SQL);
+
+				try(ResultSet rs = stat.executeQuery(ALL_MIGRATIONS_SQL))
+				{
+					List<SchemaMigration> migrations = new ArrayList<>();
+					RowMapper<SchemaMigration> mapper = rowMapper(rs, SchemaMigration.class);
+
+					while(rs.next())
+					{
+						migrations.add(mapper.extract(rs));
+					}
+
+					commitTransaction(conn);
+					return migrations;
+				}
+			}
+			catch(Exception e)
+			{
+				System.out.println("Failed to read " + HISTORY_TABLE);
+				rollbackTransaction(conn);
+				throw new DbException(e);
+			}
+		}
+		catch(SQLException e)
+		{
+			throw new DbException(e);
+		}
+	}
+
+	/*
+	 * Runs every statement of the script and records it in the history table in one transaction.
+	 * MySQL commits implicitly around DDL, so a script that fails half way can leave its earlier DDL
+	 * behind; since the history row is written last the migration is still pending and is retried next start.
+	 */
+	public void applyMigration(SchemaMigration migration, SqlScriptReader script)
+	{
+		long start = System.currentTimeMillis();
+
+		try(Connection conn = DbConnection.getConnection())
+		{
+			startTransaction(conn);
+
+			try(Statement stat = conn.createStatement())
+			{
+				String sql;
+
+				while((sql = script.nextStatement()) != null)
+				{
+					stat.execute(sql);
+				}
+
+				try(PreparedStatement insert = conn.prepareStatement(INSERT_MIGRATION_SQL))
+				{
+					setParameter(insert, 1, migration.getVersion(), Integer.class);
+					setParameter(insert, 2, migration.getDescription(), String.class);
+					setParameter(insert, 3, migration.getScript(), String.class);
+					insert.setLong(4, migration.getChecksum());
+					setParameter(insert, 5, (int)(System.currentTimeMillis() - start), Integer.class);
+					insert.executeUpdate();
+				}
+
+				commitTransaction(conn);
+			}
+			catch(Exception e)
+			{
+				System.out.println("Failed to apply " + migration.getScript() + ", rolled back");
+				rollbackTransaction(conn);
+				throw new DbException("Migration " + migration.getScript() + " failed", e);
+			}
+		}
+		catch(SQLException e)
+		{
+			throw new DbException(e);
+		}
+	}
+
+	private static void closeQuietly(Connection conn)
+	{
+		if(conn == null)
+		{
+			return;
+		}
+
+		try
+		{
+			conn.close();
+		}
+		catch(SQLException e)
+		{
+			//already failing, the original exception is the one worth reporting
+		}
+	}
+
+	//held while migrations are checked and applied, closing it releases the lock and the connection
+	public static class MigrationLock implements AutoCloseable
+	{
+		private final Connection conn;
+
+		private MigrationLock(Connection conn)
+		{
+			this.conn = conn;
+		}
+
+		@Override
+		public void close()
+		{
+			try(Connection held = conn; Statement stat = held.createStatement())
+			{
+				stat.executeQuery(RELEASE_LOCK_SQL).close();
+			}
+			catch(SQLException e)
+			{
+				//a connection that can't run RELEASE_LOCK is broken, and the server frees the lock when its session ends
+				System.out.println("Could not release " + LOCK_NAME + ": " + e);
+			}
+		}
+	}
+}
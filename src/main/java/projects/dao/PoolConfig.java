@@ -0,0 +1,113 @@
+package projects.dao;
+
+public class PoolConfig
+{
+	//defaults are sized for the single user console app, bump them for anything under load
+	private int maxSize = 10;
+	private int minIdle = 1;
+	private long borrowTimeoutMillis = 5_000;
+	private long idleTimeoutMillis = 5 * 60_000;
+	private long maxLifetimeMillis = 30 * 60_000;
+	private long evictionIntervalMillis = 30_000;
+	private int validationTimeoutSeconds = 2;
+
+	//prepared statements kept open per connection, 0 turns the cache off
+	private int statementCacheSize = 64;
+
+	public PoolConfig()
+	{
+	}
+
+	//the same settings, for a pool that changes a few of them
+	public PoolConfig(PoolConfig other)
+	{
+		maxSize = other.maxSize;
+		minIdle = other.minIdle;
+		borrowTimeoutMillis = other.borrowTimeoutMillis;
+		idleTimeoutMillis = other.idleTimeoutMillis;
+		maxLifetimeMillis = other.maxLifetimeMillis;
+		evictionIntervalMillis = other.evictionIntervalMillis;
+		validationTimeoutSeconds = other.validationTimeoutSeconds;
+		statementCacheSize = other.statementCacheSize;
+	}
+
+	public int getMaxSize()
+	{
+		return maxSize;
+	}
+
+	public void setMaxSize(int maxSize)
+	{
+		this.maxSize = maxSize;
+	}
+
+	public int getMinIdle()
+	{
+		return minIdle;
+	}
+
+	public void setMinIdle(int minIdle)
+	{
+		this.minIdle = minIdle;
+	}
+
+	public long getBorrowTimeoutMillis()
+	{
+		return borrowTimeoutMillis;
+	}
+
+	public void setBorrowTimeoutMillis(long borrowTimeoutMillis)
+	{
+		this.borrowTimeoutMillis = borrowTimeoutMillis;
+	}
+
+	public long getIdleTimeoutMillis()
+	{
+		return idleTimeoutMillis;
+	}
+
+	public void setIdleTimeoutMillis(long idleTimeoutMillis)
+	{
+		this.idleTimeoutMillis = idleTimeoutMillis;
+	}
+
+	public long getMaxLifetimeMillis()
+	{
+		return maxLifetimeMillis;
+	}
+
+	public void setMaxLifetimeMillis(long maxLifetimeMillis)
+	{
+		this.maxLifetimeMillis = maxLifetimeMillis;
+	}
+
+	public long getEvictionIntervalMillis()
+	{
+		return evictionIntervalMillis;
+	}
+
+	public void setEvictionIntervalMillis(long evictionIntervalMillis)
+	{
+		this.evictionIntervalMillis = evictionIntervalMillis;
+	}
+
+	public int getValidationTimeoutSeconds()
+	{
+		return validationTimeoutSeconds;
+	}
+
+	public void setValidationTimeoutSeconds(int validationTimeoutSeconds)
+	{
+		this.validationTimeoutSeconds = validationTimeoutSeconds;
+	}
+
+	public int getStatementCacheSize()
+	{
+		return statementCacheSize;
+	}
+
+	public void setStatementCacheSize(int statementCacheSize)
+	{
+		this.statementCacheSize = statementCacheSize;
+	}
+}
@@ -0,0 +1,82 @@
+package projects.dao;
+
+//snapshot of the pool counters, taken under the pool lock so the numbers line up with each other
+public class PoolStats
+{
+	private final int active;
+	private final int idle;
+	private final int waiters;
+	private final long borrowCount;
+	private final long timeoutCount;
+	private final long averageBorrowMicros;
+	private final long maxBorrowMicros;
+	private final long statementCacheHits;
+	private final long statementCacheMisses;
+
+	PoolStats(int active, int idle, int waiters, long borrowCount, long timeoutCount, long averageBorrowMicros, long maxBorrowMicros,
+			long statementCacheHits, long statementCacheMisses)
+	{
+		this.active = active;
+		this.idle = idle;
+		this.waiters = waiters;
+		this.borrowCount = borrowCount;
+		this.timeoutCount = timeoutCount;
+		this.averageBorrowMicros = averageBorrowMicros;
+		this.maxBorrowMicros = maxBorrowMicros;
+		this.statementCacheHits = statementCacheHits;
+		this.statementCacheMisses = statementCacheMisses;
+	}
+
+	public int getActive()
+	{
+		return active;
+	}
+
+	public int getIdle()
+	{
+		return idle;
+	}
+
+	public int getWaiters()
+	{
+		return waiters;
+	}
+
+	public long getBorrowCount()
+	{
+		return borrowCount;
+	}
+
+	public long getTimeoutCount()
+	{
+		return timeoutCount;
+	}
+
+	public long getAverageBorrowMicros()
+	{
+		return averageBorrowMicros;
+	}
+
+	public long getMaxBorrowMicros()
+	{
+		return maxBorrowMicros;
+	}
+
+	public long getStatementCacheHits()
+	{
+		return statementCacheHits;
+	}
+
+	public long getStatementCacheMisses()
+	{
+		return statementCacheMisses;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "active=" + active + ", idle=" + idle + ", waiters=" + waiters + ", borrows=" + borrowCount
+				+ ", timeouts=" + timeoutCount + ", avgBorrowMicros=" + averageBorrowMicros + ", maxBorrowMicros=" + maxBorrowMicros
+				+ ", statementCacheHits=" + statementCacheHits + ", statementCacheMisses=" + statementCacheMisses;
+	}
+}
@@ -6,18 +6,41 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import projects.entity.Category;
 import projects.entity.Material;
 import projects.entity.Project;
+import projects.entity.ProjectField;
 import projects.entity.Step;
 import projects.exception.DbException;
+import projects.exception.OptimisticLockException;
+import projects.metrics.MetricsRegistry;
+import projects.metrics.OperationMetrics;
+import projects.metrics.QueryTimer;
+import projects.util.IntObjectMap;
 import provided.util.DaoBase;
+import provided.util.RowMapper;
 
 public class ProjectDao extends DaoBase 
 {
@@ -25,11 +48,156 @@ public class ProjectDao extends DaoBase
 	private static final String MATERIAL_TABLE = "material";
 	private static final String PROJECT_TABLE = "project";
 	private static final String PROJECT_CATEGORY_TABLE = "project_category";
+	private static final String ROLLUP_TABLE = "project_rollup";
 	private static final String STEP_TABLE = "step";
 	
+	//the four aggregate selects sent as one statement, needs a DbConnection.getMultiQueryConnection()
+	// @formatter:off 
+	private static final String PROJECT_AGGREGATE_SQL = ""
+	+ "SELECT * FROM " + PROJECT_TABLE + " WHERE project_id = ?; "
+	+ "SELECT m.* FROM " + MATERIAL_TABLE + " m WHERE project_id = ?; "
+	+ "SELECT s.* FROM " + STEP_TABLE + " s WHERE project_id = ? ORDER BY step_order; "
+	+ "SELECT category_id FROM " + PROJECT_CATEGORY_TABLE + " WHERE project_id = ?";
+	// @formatter:on
+	
+	//statement text is built once here so the per-connection statement cache sees the same String every call
+	// @formatter:off 
+	private static final String INSERT_PROJECT_SQL = ""
+	+ "INSERT INTO " + PROJECT_TABLE + " "
+	+ "(project_name, estimated_hours, actual_hours, difficulty, notes)"
+	+ "VALUES "
+	+ "(?, ?, ?, ?, ?)";
+	
+	private static final String ALL_PROJECTS_SQL = ""
+	+ "SELECT * "
+	+ "FROM " + PROJECT_TABLE + " "
+	+ "ORDER BY project_id";
+	
+	private static final String PROJECT_BY_ID_SQL = ""
+	+ "SELECT * "
+	+ "FROM " + PROJECT_TABLE + " "
+	+ "WHERE project_id = ?";
+	
+	private static final String MATERIALS_FOR_PROJECT_SQL = ""
+	+ "SELECT m.* FROM " + MATERIAL_TABLE + " m "
+	+ "WHERE project_id = ?";
+	
+	private static final String STEPS_FOR_PROJECT_SQL = ""
+	+ "SELECT s.* FROM " + STEP_TABLE + " s "
+	+ "WHERE project_id = ? "
+	+ "ORDER BY step_order";
+	
+	//only the link IDs, the categories themselves come from CategoryDictionary
+	private static final String CATEGORIES_FOR_PROJECT_SQL = ""
+	+ "SELECT category_id "
+	+ "FROM " + PROJECT_CATEGORY_TABLE + " "
+	+ "WHERE project_id = ?";
+	
+	private static final String PROJECT_VERSION_SQL = ""
+	+ "SELECT version "
+	+ "FROM " + PROJECT_TABLE + " "
+	+ "WHERE project_id = ?";
+	
+	private static final String INSERT_MATERIAL_SQL = ""
+	+ "INSERT INTO " + MATERIAL_TABLE + " "
+	+ "(project_id, material_name, num_required, cost) "
+	+ "VALUES (?, ?, ?, ?)";
+	
+	private static final String INSERT_STEP_SQL = ""
+	+ "INSERT INTO " + STEP_TABLE + " "
+	+ "(project_id, step_text, step_order) "
+	+ "VALUES (?, ?, ?)";
+	
+	private static final String INSERT_CATEGORY_SQL = "INSERT INTO " + CATEGORY_TABLE + " (category_name) VALUES (?)";
+	private static final String INSERT_PROJECT_CATEGORY_SQL = "INSERT INTO " + PROJECT_CATEGORY_TABLE + " (project_id, category_id) VALUES (?, ?)";
+	
+	//a new project starts with no materials or steps, so its rollup row is all zeros
+	private static final String INSERT_ROLLUP_SQL = "INSERT INTO " + ROLLUP_TABLE + " (project_id) VALUES (?)";
+	
+	//a project's rollup row counted from its material and step rows, the same as V5__project_rollup.sql. RollupDao counts every project with it
+	static final String ROLLUP_COUNTS_SQL = ""
+	+ "SELECT p.project_id, "
+	+ "(SELECT COUNT(*) FROM " + MATERIAL_TABLE + " m WHERE m.project_id = p.project_id) AS material_count, "
+	+ "(SELECT COALESCE(SUM(m.num_required * m.cost), 0) FROM " + MATERIAL_TABLE + " m WHERE m.project_id = p.project_id) AS material_cost, "
+	+ "(SELECT COUNT(*) FROM " + STEP_TABLE + " s WHERE s.project_id = p.project_id) AS step_count "
+	+ "FROM " + PROJECT_TABLE + " p";
+	
+	//a project's rows, children first so this also works on a schema set up without ON DELETE CASCADE.
+	//categories are shared between projects and stay, only the project's links to them go
+	private static final String[] DELETE_PROJECT_SQL = {
+		"DELETE FROM " + MATERIAL_TABLE + " WHERE project_id = ?",
+		"DELETE FROM " + STEP_TABLE + " WHERE project_id = ?",
+		"DELETE FROM " + PROJECT_CATEGORY_TABLE + " WHERE project_id = ?",
+		"DELETE FROM " + ROLLUP_TABLE + " WHERE project_id = ?",
+		"DELETE FROM " + PROJECT_TABLE + " WHERE project_id = ?"
+	};
+	
+	private static final InListSql PROJECTS_BY_IDS = new InListSql("SELECT * FROM " + PROJECT_TABLE + " WHERE project_id IN ");
+	//the categories a chunk links to by name, share locked so CategoryDao.deleteOrphanCategories can't remove one before its links are in
+	private static final InListSql CATEGORIES_BY_NAMES = new InListSql("SELECT category_id, category_name FROM " + CATEGORY_TABLE
+			+ " WHERE category_name IN ", " ORDER BY category_id LOCK IN SHARE MODE");
+	private static final InListSql MATERIALS_BY_PROJECT_IDS = new InListSql("SELECT m.* FROM " + MATERIAL_TABLE + " m WHERE project_id IN ");
+	private static final InListSql STEPS_BY_PROJECT_IDS = new InListSql("SELECT s.* FROM " + STEP_TABLE + " s WHERE project_id IN ",
+	" ORDER BY project_id, step_order");
+	private static final InListSql CATEGORIES_BY_PROJECT_IDS = new InListSql("SELECT project_id, category_id FROM " + PROJECT_CATEGORY_TABLE
+	+ " WHERE project_id IN ");
+	
+	//same deletes as DELETE_PROJECT_SQL for a chunk of projects at a time
+	private static final InListSql[] DELETE_PROJECTS_BY_IDS = {
+		new InListSql("DELETE FROM " + MATERIAL_TABLE + " WHERE project_id IN "),
+		new InListSql("DELETE FROM " + STEP_TABLE + " WHERE project_id IN "),
+		new InListSql("DELETE FROM " + PROJECT_CATEGORY_TABLE + " WHERE project_id IN "),
+		new InListSql("DELETE FROM " + ROLLUP_TABLE + " WHERE project_id IN "),
+		new InListSql("DELETE FROM " + PROJECT_TABLE + " WHERE project_id IN ")
+	};
+	
+	//the rollup rows of projects just inserted, they have none yet so a plain INSERT ... SELECT is enough
+	private static final InListSql COUNT_ROLLUPS_BY_IDS = new InListSql("INSERT INTO " + ROLLUP_TABLE
+	+ " (project_id, material_count, material_cost, step_count) " + ROLLUP_COUNTS_SQL + " WHERE p.project_id IN ");
+	// @formatter:on
+	
+	//keyset page statements, one per projection class
+	private static final Map<Class<?>, String> PROJECT_PAGE_SQL = new ConcurrentHashMap<>();
+	
+	//UPDATE statements keyed by the ProjectField mask of the columns they set, at most 31 of them
+	private static final Map<Integer, String> UPDATE_PROJECT_SQL = new ConcurrentHashMap<>();
+	
+	//version a row gets when it is inserted, the column default in V3__row_versions.sql
+	private static final int INITIAL_VERSION = 0;
+	
+	//largest IN list sent in one statement when loading projects by ID
+	private static final int IN_CHUNK_SIZE = 1000;
+	
+	//latency, row and error counts for each public operation, looked up once so a call doesn't hit the registry map
+	private static final MetricsRegistry METRICS = MetricsRegistry.getDefault();
+	private static final OperationMetrics EXECUTE_BATCH = METRICS.operation("executeBatch");
+	private static final OperationMetrics INSERT_PROJECT = METRICS.operation("insertProject");
+	private static final OperationMetrics INSERT_PROJECTS = METRICS.operation("insertProjects");
+	private static final OperationMetrics GRAB_ALL_PROJECTS = METRICS.operation("grabAllThoseProjects");
+	private static final OperationMetrics GRAB_PROJECTS_AFTER = METRICS.operation("grabProjectsAfter");
+	private static final OperationMetrics STREAM_PROJECTS = METRICS.operation("streamProjects");
+	private static final OperationMetrics GRAB_SPECIFIC_PROJECT = METRICS.operation("grabSpecificProject");
+	private static final OperationMetrics GRAB_PROJECTS_WITH_DETAILS = METRICS.operation("grabProjectsWithDetails");
+	private static final OperationMetrics MODIFY_PROJECT_DETAILS = METRICS.operation("modifyProjectDetails");
+	private static final OperationMetrics MODIFY_PROJECTS_DETAILS = METRICS.operation("modifyProjectsDetails");
+	private static final OperationMetrics REMOVE_PROJECT = METRICS.operation("removeProject");
+	private static final OperationMetrics REMOVE_PROJECTS = METRICS.operation("removeProjects");
+	
+	//the grab and stream methods only read, so they take DbConnection.getReadConnection() and may be served by a replica
+	
+	private ProjectLoadStrategy loadStrategy = ProjectLoadStrategy.fromSystemProperty();
+	
+	//shared Category instances, projects are loaded with their category IDs only
+	private final CategoryDictionary categories = CategoryDictionary.getDefault();
+	
+	public void setLoadStrategy(ProjectLoadStrategy loadStrategy)
+	{
+		this.loadStrategy = loadStrategy;
+	}
+	
 	public void executeBatch(List<String> sqlBatch)
 	{
-		try(Connection conn = DbConnection.getConnection())
+		try(QueryTimer timer = EXECUTE_BATCH.start(); Connection conn = timer.acquired(DbConnection.getConnection()))
 		{
 			startTransaction(conn);
 			
@@ -40,9 +208,11 @@ public class ProjectDao extends DaoBase
 					stat.addBatch(sql);
 				}
 				
-				stat.executeBatch();
+				timer.executed(stat.executeBatch());
 				System.out.println("Successfull, commiting");
 				commitTransaction(conn);
+				timer.affected(sqlBatch.size());
+				timer.completed();
 				
 			}
 			catch (Exception e)
@@ -60,18 +230,11 @@ public class ProjectDao extends DaoBase
 
 	public Project insertProject(Project project) 
 	{
-		// @formatter:off 
-		String sql = ""
-		+ "INSERT INTO " + PROJECT_TABLE + " "
-		+ "(project_name, estimated_hours, actual_hours, difficulty, notes)"
-		+ "VALUES "
-		+ "(?, ?, ?, ?, ?)";
-		// @formatter:on
-		try(Connection conn = DbConnection.getConnection())
+		try(QueryTimer timer = INSERT_PROJECT.start(); Connection conn = timer.acquired(DbConnection.getConnection()))
 		{
 			startTransaction(conn);
 			
-			try(PreparedStatement stat = conn.prepareStatement(sql))
+			try(PreparedStatement stat = conn.prepareStatement(INSERT_PROJECT_SQL, Statement.RETURN_GENERATED_KEYS))
 			{
 				setParameter(stat, 1, project.getProjectName(), String.class); 
 				setParameter(stat, 2, project.getEstimatedHours (), BigDecimal.class); 
@@ -79,10 +242,20 @@ public class ProjectDao extends DaoBase
 				setParameter(stat, 4, project.getDifficulty(), Integer.class); 
 				setParameter(stat, 5, project.getNotes (), String.class);
 				
-				stat.executeUpdate();
-				Integer projectId = getLastInsertId(conn, PROJECT_TABLE);
+				timer.affected(timer.executed(stat.executeUpdate()));
+				//the key comes back with the insert, no second query against the table
+				Integer projectId = readGeneratedKeys(stat, 1)[0];
+				
+				try(PreparedStatement rollup = conn.prepareStatement(INSERT_ROLLUP_SQL))
+				{
+					setParameter(rollup, 1, projectId, Integer.class);
+					rollup.executeUpdate();
+				}
 				commitTransaction(conn);
 				project.setProjectId(projectId);
+				project.setVersion(INITIAL_VERSION);
+				project.markClean();
+				timer.completed();
 				return project;
 				
 			}
@@ -101,149 +274,986 @@ public class ProjectDao extends DaoBase
 	}
 
 	
-	public List<Project> grabAllThoseProjects() 
+	/*
+	 * Inserts the projects with their materials, steps, category links and rollup rows using JDBC batches, chunkSize
+	 * projects at a time. With rewriteBatchedStatements on the connection each batch goes out as one
+	 * multi-row INSERT, and the generated IDs are set back on the projects, materials and steps.
+	 * Categories without an ID are matched to an existing category by name or created. The matched rows are
+	 * read again and share locked for every chunk, so the category cleanup job can't delete one between the
+	 * lookup and the links, it waits for this transaction instead.
+	 * 
+	 * commitPerChunk commits after every chunk so a huge load doesn't hold one giant transaction open, but
+	 * a failure then leaves the earlier chunks in place. Otherwise the whole list is one transaction.
+	 * 
+	 * On a failure the projects that were rolled back get their IDs and versions cleared again, and the
+	 * DbException says how many were committed. Those are always the first ones in the list, the ones that
+	 * still have an ID.
+	 */
+	public List<Project> insertProjects(List<Project> projects, int chunkSize, boolean commitPerChunk) 
 	{
+		try(QueryTimer timer = INSERT_PROJECTS.start(); Connection conn = timer.acquired(DbConnection.getConnection()))
+		{
+			startTransaction(conn);
+			
+			int committed = 0;
+			List<Category> resolvedByName = new ArrayList<Category>();
+			
+			try
+			{
+				for(int from = 0; from < projects.size(); from += chunkSize)
+				{
+					List<Project> chunk = projects.subList(from, Math.min(projects.size(), from + chunkSize));
+					
+					insertProjectRows(conn, chunk);
+					insertMaterialRows(conn, chunk);
+					insertStepRows(conn, chunk);
+					insertCategoryLinks(conn, chunk, resolvedByName);
+					countRollups(conn, chunk);
+					
+					if(commitPerChunk)
+					{
+						commitTransaction(conn);
+						committed += chunk.size();
+					}
+				}
 				
-		//make formatted string for select statement
-		// @formatter:off 
-		String sql = ""
-		+ "SELECT * "
-		+ "FROM " + PROJECT_TABLE + " "
-		+ "ORDER BY project_id";
-		// @formatter:on
+				commitTransaction(conn);
+				timer.executed(projects);
+				timer.affected(projects.size());
+				timer.completed();
+				return projects;
+			}
+			catch(Exception e)
+			{
+				System.out.println("Failed in ProjectDao.insertProjects");
+				rollbackTransaction(conn);
+				forgetInsertedIds(projects.subList(committed, projects.size()), resolvedByName);
+				throw new DbException(committed + " of " + projects.size() + " projects were committed before the failure", e);
+			}
+		}
+		catch (SQLException e)
+		{
+			System.out.println("Failed connection in ProjectDao.insertProjects");
+			throw new DbException(e);
+		}
+	}
+	
+	//the rows behind these IDs were rolled back, so the projects go back to looking unsaved
+	private void forgetInsertedIds(List<Project> projects, List<Category> resolvedByName)
+	{
+		//a category matched by name may have been created in the rolled back part, it is matched again next time
+		Set<Category> resolved = Collections.newSetFromMap(new IdentityHashMap<Category, Boolean>());
+		resolved.addAll(resolvedByName);
+		
+		for(Project project : projects)
+		{
+			project.setProjectId(null);
+			project.setVersion(null);
+			
+			for(Material material : project.getMaterials())
+			{
+				material.setMaterialId(null);
+				material.setProjectId(null);
+			}
+			
+			for(Step step : project.getSteps())
+			{
+				step.setStepId(null);
+				step.setProjectId(null);
+			}
+			
+			for(Category category : project.getCategories())
+			{
+				if(resolved.contains(category))
+				{
+					category.setCategoryId(null);
+				}
+			}
+		}
+	}
+	
+	private void insertProjectRows(Connection conn, List<Project> projects) throws SQLException
+	{
+		try(PreparedStatement stat = conn.prepareStatement(INSERT_PROJECT_SQL, Statement.RETURN_GENERATED_KEYS))
+		{
+			for(Project project : projects)
+			{
+				setParameter(stat, 1, project.getProjectName(), String.class); 
+				setParameter(stat, 2, project.getEstimatedHours(), BigDecimal.class); 
+				setParameter(stat, 3, project.getActualHours(), BigDecimal.class); 
+				setParameter(stat, 4, project.getDifficulty(), Integer.class); 
+				setParameter(stat, 5, project.getNotes(), String.class);
+				stat.addBatch();
+			}
+			
+			stat.executeBatch();
+			int[] projectIds = readGeneratedKeys(stat, projects.size());
+			
+			for(int index = 0; index < projects.size(); index++)
+			{
+				projects.get(index).setProjectId(projectIds[index]);
+				projects.get(index).setVersion(INITIAL_VERSION);
+				projects.get(index).markClean();
+			}
+		}
+	}
+	
+	private void insertMaterialRows(Connection conn, List<Project> projects) throws SQLException
+	{
+		List<Material> materials = new ArrayList<Material>();
+		
+		try(PreparedStatement stat = conn.prepareStatement(INSERT_MATERIAL_SQL, Statement.RETURN_GENERATED_KEYS))
+		{
+			for(Project project : projects)
+			{
+				for(Material material : project.getMaterials())
+				{
+					material.setProjectId(project.getProjectId());
+					setParameter(stat, 1, material.getProjectId(), Integer.class);
+					setParameter(stat, 2, material.getMaterialName(), String.class);
+					setParameter(stat, 3, material.getNumRequired(), Integer.class);
+					setParameter(stat, 4, material.getCost(), BigDecimal.class);
+					stat.addBatch();
+					materials.add(material);
+				}
+			}
+			
+			if(materials.isEmpty())
+			{
+				return;
+			}
+			
+			stat.executeBatch();
+			int[] materialIds = readGeneratedKeys(stat, materials.size());
+			
+			for(int index = 0; index < materials.size(); index++)
+			{
+				materials.get(index).setMaterialId(materialIds[index]);
+			}
+		}
+	}
+	
+	private void insertStepRows(Connection conn, List<Project> projects) throws SQLException
+	{
+		List<Step> steps = new ArrayList<Step>();
+		
+		try(PreparedStatement stat = conn.prepareStatement(INSERT_STEP_SQL, Statement.RETURN_GENERATED_KEYS))
+		{
+			for(Project project : projects)
+			{
+				int position = 0;
+				
+				for(Step step : project.getSteps())
+				{
+					position++;
+					step.setProjectId(project.getProjectId());
+					
+					//steps without an order keep the order they are listed in
+					if(Objects.isNull(step.getStepOrder()))
+					{
+						step.setStepOrder(position);
+					}
+					
+					setParameter(stat, 1, step.getProjectId(), Integer.class);
+					setParameter(stat, 2, step.getStepText(), String.class);
+					setParameter(stat, 3, step.getStepOrder(), Integer.class);
+					stat.addBatch();
+					steps.add(step);
+				}
+			}
+			
+			if(steps.isEmpty())
+			{
+				return;
+			}
+			
+			stat.executeBatch();
+			int[] stepIds = readGeneratedKeys(stat, steps.size());
+			
+			for(int index = 0; index < steps.size(); index++)
+			{
+				steps.get(index).setStepId(stepIds[index]);
+			}
+		}
+	}
+	
+	private void insertCategoryLinks(Connection conn, List<Project> projects, List<Category> resolvedByName) throws SQLException
+	{
+		Set<String> names = new LinkedHashSet<String>();
+		
+		for(Project project : projects)
+		{
+			for(Category category : project.getCategories())
+			{
+				if(Objects.isNull(category.getCategoryId()))
+				{
+					names.add(category.getCategoryName());
+				}
+			}
+		}
+		
+		//looked up for this chunk, a category deleted since an earlier chunk is missing here and created again
+		Map<String, Integer> categoryIdsByName = names.isEmpty() ? new HashMap<String, Integer>() : lockCategoriesByName(conn, names);
+		
+		//new category names go in first as one batch so the links below have IDs to point at
+		List<String> newNames = new ArrayList<String>();
+		
+		for(String name : names)
+		{
+			if(!categoryIdsByName.containsKey(name))
+			{
+				newNames.add(name);
+			}
+		}
+		
+		if(!newNames.isEmpty())
+		{
+			try(PreparedStatement stat = conn.prepareStatement(INSERT_CATEGORY_SQL, Statement.RETURN_GENERATED_KEYS))
+			{
+				for(String name : newNames)
+				{
+					setParameter(stat, 1, name, String.class);
+					stat.addBatch();
+				}
+				
+				stat.executeBatch();
+				int[] categoryIds = readGeneratedKeys(stat, newNames.size());
+				
+				for(int index = 0; index < newNames.size(); index++)
+				{
+					categoryIdsByName.put(newNames.get(index), categoryIds[index]);
+				}
+			}
+		}
+		
+		try(PreparedStatement stat = conn.prepareStatement(INSERT_PROJECT_CATEGORY_SQL))
+		{
+			boolean anyLinks = false;
+			
+			for(Project project : projects)
+			{
+				//the same category listed twice on one project would break the project_category primary key
+				Set<Integer> linked = new HashSet<Integer>();
+				
+				for(Category category : project.getCategories())
+				{
+					if(Objects.isNull(category.getCategoryId()))
+					{
+						category.setCategoryId(categoryIdsByName.get(category.getCategoryName()));
+						resolvedByName.add(category);
+					}
+					
+					if(!linked.add(category.getCategoryId()))
+					{
+						continue;
+					}
+					
+					setParameter(stat, 1, project.getProjectId(), Integer.class);
+					setParameter(stat, 2, category.getCategoryId(), Integer.class);
+					stat.addBatch();
+					anyLinks = true;
+				}
+			}
+			
+			if(anyLinks)
+			{
+				stat.executeBatch();
+			}
+		}
+	}
+	
+	//one statement for the chunk, the counts come from the rows just inserted so they match the database's rounding
+	private void countRollups(Connection conn, List<Project> projects) throws SQLException
+	{
+		int[] projectIds = projects.stream().mapToInt(Project::getProjectId).toArray();
+		
+		try(PreparedStatement stat = conn.prepareStatement(COUNT_ROLLUPS_BY_IDS.forSize(projectIds.length)))
+		{
+			setIdParameters(stat, projectIds);
+			stat.executeUpdate();
+		}
+	}
+	
+	//name to ID for the names that exist, the lowest ID when a name is there twice. The rows stay share locked until the transaction ends
+	private Map<String, Integer> lockCategoriesByName(Connection conn, Collection<String> names) throws SQLException
+	{
+		List<String> padded = new ArrayList<String>(names);
+		
+		try(PreparedStatement stat = conn.prepareStatement(CATEGORIES_BY_NAMES.forSize(padded.size())))
+		{
+			int count = placeholderCount(padded.size());
+			
+			for(int index = 0; index < count; index++)
+			{
+				setParameter(stat, index + 1, padded.get(Math.min(index, padded.size() - 1)), String.class);
+			}
+			
+			try(ResultSet rs = stat.executeQuery())
+			{
+				Map<String, Integer> categoryIds = new HashMap<String, Integer>();
 				
+				while(rs.next())
+				{
+					categoryIds.putIfAbsent(rs.getString("category_name"), rs.getInt("category_id"));
+				}
+				return categoryIds;
+			}
+		}
+	}
+	
+	//generated keys come back in insert order, one per row
+	private int[] readGeneratedKeys(Statement stat, int expected) throws SQLException
+	{
+		int[] keys = new int[expected];
+		int count = 0;
+		
+		try(ResultSet rs = stat.getGeneratedKeys())
+		{
+			while(rs.next() && count < expected)
+			{
+				keys[count++] = rs.getInt(1);
+			}
+		}
 		
+		if(count != expected)
+		{
+			throw new SQLException("Expected " + expected + " generated keys but got " + count);
+		}
+		return keys;
+	}
+
+	public List<Project> grabAllThoseProjects() 
+	{
 		//attempts connection
-		try(Connection conn = DbConnection.getConnection())
+		try(QueryTimer timer = GRAB_ALL_PROJECTS.start(); Connection conn = timer.acquired(DbConnection.getReadConnection()))
 		{
 			//starts transaction
 			startTransaction(conn);
 						
 			//try and prep statement
-			try(PreparedStatement stat = conn.prepareStatement(sql))
+			try(PreparedStatement stat = conn.prepareStatement(ALL_PROJECTS_SQL))
 			{		
 				//runs a select statement and sends it over and adds the selected project to list
 				//stat.executeUpdate();	
-				try(ResultSet rs = stat.executeQuery())
+				try(ResultSet rs = timer.executed(stat.executeQuery()))
 				{
 					List<Project> projects = new LinkedList<Project>();
+					RowMapper<Project> mapper = rowMapper(rs, Project.class);
 					//adds objects info to list
 					while(rs.next()) 
 					{
-						projects.add(extract(rs, Project.class));
+						projects.add(mapper.extract(rs));
 					}
+					timer.mapped(projects.size());
+					timer.completed();
 						
 					//return the full list once completed.
 					return projects;
 				}
 				catch(Exception e)
 				{
-					System.out.println("\n rs failure in 'grabAllThoseProjects'");
-					throw new DbException(e);
+					System.out.println("\n rs failure in 'grabAllThoseProjects'");
+					throw new DbException(e);
+				}
+			}
+			catch(Exception e)
+			{
+				System.out.println("\n select statement failure 'grabAllThoseProjects'");
+				rollbackTransaction(conn);
+				throw new DbException(e);
+			}
+		}
+		catch (SQLException e)
+		{
+			System.out.println("\n connection failure 'grabAllThoseProjects'");
+			throw new DbException(e);
+		}
+					
+	}
+
+	//one page of projects in ID order, pass the last ID of the previous page to get the next one
+	public List<Project> grabProjectsAfter(int afterProjectId, int limit) 
+	{
+		return grabProjectsAfter(afterProjectId, limit, Project.class);
+	}
+	
+	/*
+	 * Same keyset page, but only the columns that map to the projection class are selected, so a list
+	 * screen asking for ProjectSummary doesn't pull the notes text and decimals over the wire.
+	 */
+	public <T> List<T> grabProjectsAfter(int afterProjectId, int limit, Class<T> projection) 
+	{
+		try(QueryTimer timer = GRAB_PROJECTS_AFTER.start(); Connection conn = timer.acquired(DbConnection.getReadConnection()))
+		{
+			try(PreparedStatement stat = conn.prepareStatement(projectPageSql(projection)))
+			{
+				setParameter(stat, 1, afterProjectId, Integer.class);
+				setParameter(stat, 2, limit, Integer.class);
+				
+				try(ResultSet rs = timer.executed(stat.executeQuery()))
+				{
+					List<T> projects = new ArrayList<T>(limit);
+					RowMapper<T> mapper = rowMapper(rs, projection);
+					
+					while(rs.next())
+					{
+						projects.add(mapper.extract(rs));
+					}
+					timer.mapped(projects.size());
+					timer.completed();
+					return projects;
+				}
+			}
+			catch(Exception e)
+			{
+				System.out.println("\n select statement failure 'grabProjectsAfter'");
+				throw new DbException(e);
+			}
+		}
+		catch(SQLException e)
+		{
+			System.out.println("\n connection failure 'grabProjectsAfter'");
+			throw new DbException(e);
+		}
+	}
+	
+	/*
+	 * Every project in ID order, read through a server side cursor fetchSize rows at a time so memory stays
+	 * flat however big the table gets. The stream holds a pooled connection until it is closed or runs out,
+	 * so use it in a try-with-resources.
+	 */
+	public Stream<Project> streamProjects(int fetchSize) 
+	{
+		//the stream owns the timer and connection once it is returned, until then they are closed here
+		QueryTimer timer = STREAM_PROJECTS.start();
+		Connection conn = null;
+		PreparedStatement stat = null;
+		
+		try
+		{
+			conn = timer.acquired(DbConnection.getReadConnection());
+			stat = conn.prepareStatement(ALL_PROJECTS_SQL);
+			stat.setFetchSize(fetchSize);
+			ResultSet rs = timer.executed(stat.executeQuery());
+			
+			ProjectSpliterator rows = new ProjectSpliterator(conn, stat, rs, rowMapper(rs, Project.class), timer);
+			return StreamSupport.stream(rows, false).onClose(rows::close);
+		}
+		catch(Exception e)
+		{
+			System.out.println("\n select statement failure 'streamProjects'");
+			if(Objects.nonNull(stat))
+			{
+				closeQuietly(stat);
+			}
+			if(Objects.nonNull(conn))
+			{
+				closeQuietly(conn);
+			}
+			timer.close();
+			throw new DbException(e);
+		}
+	}
+	
+	public void forEachProject(int fetchSize, Consumer<Project> action) 
+	{
+		try(Stream<Project> projects = streamProjects(fetchSize))
+		{
+			projects.forEach(action);
+		}
+	}
+	
+	/*
+	 * The lookups the app runs, by name, for QueryAdvisor to EXPLAIN. grabAllThoseProjects and the stream
+	 * read the whole project table on purpose, so they aren't listed.
+	 */
+	static Map<String, String> diagnosticQueries()
+	{
+		Map<String, String> queries = new LinkedHashMap<>();
+		
+		queries.put("grabSpecificProject", PROJECT_BY_ID_SQL);
+		queries.put("grabMaterialsForProject", MATERIALS_FOR_PROJECT_SQL);
+		queries.put("grabStepsForProject", STEPS_FOR_PROJECT_SQL);
+		queries.put("grabCategoriesForProject", CATEGORIES_FOR_PROJECT_SQL);
+		queries.put("grabProjectsAfter", projectPageSql(Project.class));
+		queries.put("grabProjectsById", PROJECTS_BY_IDS.forSize(1));
+		queries.put("hydrateChildren (materials)", MATERIALS_BY_PROJECT_IDS.forSize(1));
+		queries.put("hydrateChildren (steps)", STEPS_BY_PROJECT_IDS.forSize(1));
+		queries.put("hydrateChildren (categories)", CATEGORIES_BY_PROJECT_IDS.forSize(1));
+		
+		return queries;
+	}
+	
+	/*
+	 * Sets only the given columns, in ProjectField order, and bumps the version. The update only matches the
+	 * version the caller read, a null version skips the check and overwrites.
+	 */
+	private static String updateProjectSql(Set<ProjectField> fields)
+	{
+		int mask = 0;
+		
+		for(ProjectField field : fields)
+		{
+			mask |= field.mask();
+		}
+		
+		return UPDATE_PROJECT_SQL.computeIfAbsent(mask, key -> 
+		{
+			StringBuilder sql = new StringBuilder("UPDATE " + PROJECT_TABLE + " SET ");
+			
+			for(ProjectField field : fields)
+			{
+				sql.append(field.getColumnName()).append(" = ?, ");
+			}
+			
+			return sql.append("version = version + 1 WHERE project_id = ? AND (? IS NULL OR version = ?)").toString();
+		});
+	}
+	
+	private static String projectPageSql(Class<?> projection)
+	{
+		// @formatter:off 
+		return PROJECT_PAGE_SQL.computeIfAbsent(projection, type -> ""
+		+ "SELECT " + columnList(type) + " "
+		+ "FROM " + PROJECT_TABLE + " "
+		+ "WHERE project_id > ? "
+		+ "ORDER BY project_id "
+		+ "LIMIT ?");
+		// @formatter:on
+	}
+	
+	/*
+	 * A statement ending in an IN list. Lists are padded to a power of two by placeholderCount(), so there
+	 * are only a few sizes and the text for each one is built once and reused.
+	 */
+	private static class InListSql
+	{
+		private final String prefix;
+		private final String suffix;
+		private final Map<Integer, String> bySize = new ConcurrentHashMap<>();
+		
+		InListSql(String prefix)
+		{
+			this(prefix, "");
+		}
+		
+		InListSql(String prefix, String suffix)
+		{
+			this.prefix = prefix;
+			this.suffix = suffix;
+		}
+		
+		String forSize(int idCount)
+		{
+			return bySize.computeIfAbsent(placeholderCount(idCount),
+				count -> prefix + "(" + String.join(", ", Collections.nCopies(count, "?")) + ")" + suffix);
+		}
+	}
+	
+	private static void closeQuietly(AutoCloseable resource)
+	{
+		try
+		{
+			resource.close();
+		}
+		catch(Exception e)
+		{
+			//already failing, the original exception is the one worth reporting
+		}
+	}
+	
+	/*
+	 * Walks the cursor one row at a time and gives the connection back to the pool as soon as the last row
+	 * has been read, or when the stream is closed early.
+	 */
+	private static class ProjectSpliterator extends Spliterators.AbstractSpliterator<Project>
+	{
+		private final Connection conn;
+		private final PreparedStatement stat;
+		private final ResultSet rs;
+		private final RowMapper<Project> mapper;
+		private final QueryTimer timer;
+		private int rows;
+		private boolean closed;
+		
+		ProjectSpliterator(Connection conn, PreparedStatement stat, ResultSet rs, RowMapper<Project> mapper, QueryTimer timer)
+		{
+			super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+			this.conn = conn;
+			this.stat = stat;
+			this.rs = rs;
+			this.mapper = mapper;
+			this.timer = timer;
+		}
+		
+		@Override
+		public boolean tryAdvance(Consumer<? super Project> action)
+		{
+			if(closed)
+			{
+				return false;
+			}
+			
+			try
+			{
+				if(rs.next())
+				{
+					rows++;
+					action.accept(mapper.extract(rs));
+					return true;
+				}
+			}
+			catch(SQLException e)
+			{
+				close(false);
+				throw new DbException(e);
+			}
+			
+			close();
+			return false;
+		}
+		
+		//stopping early is fine, only a failed read counts as an error
+		void close()
+		{
+			close(true);
+		}
+		
+		private void close(boolean succeeded)
+		{
+			if(!closed)
+			{
+				closed = true;
+				closeQuietly(rs);
+				closeQuietly(stat);
+				closeQuietly(conn);
+				
+				//mapping time for a stream includes whatever the caller does with each row
+				timer.mapped(rows);
+				
+				if(succeeded)
+				{
+					timer.completed();
+				}
+				timer.close();
+			}
+		}
+	}
+	
+	public Optional<Project> grabSpecificProject(Integer projectIdNumber) 
+	{
+		//read once, the connection has to suit the strategy that runs on it
+		boolean oneRoundTrip = loadStrategy == ProjectLoadStrategy.SINGLE_ROUND_TRIP;
+		
+		//tryCatch into connection/transaction
+		try(QueryTimer timer = GRAB_SPECIFIC_PROJECT.start();
+				Connection conn = timer.acquired(oneRoundTrip ? DbConnection.getMultiQueryConnection() : DbConnection.getReadConnection()))
+		{
+			startTransaction(conn);
+			
+			try
+			{
+				//creates null project object
+				Project project = null;
+				
+				if(oneRoundTrip)
+				{
+					project = grabProjectInOneRoundTrip(conn, projectIdNumber, timer);
+				}
+				else
+				{
+					//tests the prepared statement from above
+					try(PreparedStatement stat = conn.prepareStatement(PROJECT_BY_ID_SQL))
+					{
+						//sets the ? in the statement to the needed projectId
+						setParameter(stat, 1, projectIdNumber, Integer.class);
+					
+						//I believe this is part one to grab info in a way that it can be stored in the object.
+						try(ResultSet rs = timer.executed(stat.executeQuery()))
+						{
+							if(rs.next())
+							{
+								//this is the second part.
+								project = extract(rs, Project.class);
+							}
+							timer.mapped(Objects.isNull(project) ? 0 : 1);
+						}
+					}
+					//grabs additional info if it isnt null
+					if(Objects.nonNull(project))
+					{
+						//this is new, but it just grabs any additional info inside theproject (steps, cate, mats)
+						project.getMaterials().addAll(grabMaterialsForProject(conn, projectIdNumber, timer));
+						project.getSteps().addAll(grabStepsForProject(conn, projectIdNumber, timer));
+						project.getCategories().addAll(grabCategoriesForProject(conn, projectIdNumber, timer));
+					}
+				}
+				//sends the transaction
+				commitTransaction(conn);
+				timer.completed();
+				
+				// returns the object, even if null
+				return Optional.ofNullable(project);
+			}
+			catch(Exception e)
+			{
+				System.out.println("\n select statement failure 'grabSpecificProject'");
+				rollbackTransaction(conn);
+				throw new DbException(e);
+			}
+		}
+		catch(SQLException e)
+		{
+			System.out.println("\n connection failure 'grabSpecificProject'");
+			throw new DbException(e);
+		}
+		//return null;
+	}
+
+	public List<Project> grabProjectsWithDetails(Collection<Integer> projectIds) 
+	{
+		//drops nulls and duplicates but keeps the order the caller asked for
+		int[] ids = projectIds.stream().filter(Objects::nonNull).mapToInt(Integer::intValue).distinct().toArray();
+		
+		if(ids.length == 0)
+		{
+			return new LinkedList<Project>();
+		}
+		
+		try(QueryTimer timer = GRAB_PROJECTS_WITH_DETAILS.start(); Connection conn = timer.acquired(DbConnection.getReadConnection()))
+		{
+			//one transaction so the parents and children come from the same snapshot
+			startTransaction(conn);
+			
+			try
+			{
+				IntObjectMap<Project> projects = new IntObjectMap<>(ids.length);
+				
+				//four queries per chunk no matter how many projects are in it
+				for(int from = 0; from < ids.length; from += IN_CHUNK_SIZE)
+				{
+					int[] chunk = Arrays.copyOfRange(ids, from, Math.min(ids.length, from + IN_CHUNK_SIZE));
+					
+					grabProjectsById(conn, chunk, projects, timer);
+					hydrateChildren(conn, chunk, projects, timer);
+				}
+				
+				commitTransaction(conn);
+				timer.completed();
+				
+				List<Project> result = new ArrayList<Project>(projects.size());
+				
+				for(int projectId : ids)
+				{
+					Project project = projects.get(projectId);
+					
+					if(Objects.nonNull(project))
+					{
+						result.add(project);
+					}
 				}
+				return result;
 			}
 			catch(Exception e)
 			{
-				System.out.println("\n select statement failure 'grabAllThoseProjects'");
+				System.out.println("\n select statement failure 'grabProjectsWithDetails'");
 				rollbackTransaction(conn);
 				throw new DbException(e);
 			}
 		}
-		catch (SQLException e)
+		catch(SQLException e)
 		{
-			System.out.println("\n connection failure 'grabAllThoseProjects'");
+			System.out.println("\n connection failure 'grabProjectsWithDetails'");
 			throw new DbException(e);
 		}
-					
 	}
-
-	public Optional<Project> grabSpecificProject(Integer projectIdNumber) 
+	
+	private void grabProjectsById(Connection conn, int[] projectIds, IntObjectMap<Project> projects, QueryTimer timer) throws SQLException
 	{
-		//sql command a bit different, this time using the ? switcher
-		// @formatter:off 
-		String sql = ""
-		+ "SELECT * "
-		+ "FROM " + PROJECT_TABLE + " "
-		+ "WHERE project_id = ?";
-		// @formatter:on
 		
-		//tryCatch into connection/transaction
-		try(Connection conn = DbConnection.getConnection())
+		try(PreparedStatement stat = conn.prepareStatement(PROJECTS_BY_IDS.forSize(projectIds.length)))
 		{
-			startTransaction(conn);
+			setIdParameters(stat, projectIds);
 			
-			try
+			try(ResultSet rs = timer.executed(stat.executeQuery()))
 			{
-				//creates null project object
-				Project project = null;
+				RowMapper<Project> mapper = rowMapper(rs, Project.class);
+				int rows = 0;
+				
+				while(rs.next())
+				{
+					Project project = mapper.extract(rs);
+					projects.put(project.getProjectId(), project);
+					rows++;
+				}
+				timer.mapped(rows);
+			}
+		}
+	}
+	
+	//loads each child table for the whole chunk in one query and hangs the rows on their parent project
+	private void hydrateChildren(Connection conn, int[] projectIds, IntObjectMap<Project> projects, QueryTimer timer) throws SQLException
+	{
+		
+		try(PreparedStatement stat = conn.prepareStatement(MATERIALS_BY_PROJECT_IDS.forSize(projectIds.length)))
+		{
+			setIdParameters(stat, projectIds);
+			
+			try(ResultSet rs = timer.executed(stat.executeQuery()))
+			{
+				RowMapper<Material> mapper = rowMapper(rs, Material.class);
+				int rows = 0;
 				
-				//tests the prepared statement from above
-				try(PreparedStatement stat = conn.prepareStatement(sql))
+				while(rs.next())
 				{
-					//sets the ? in the statement to the needed projectId
-					setParameter(stat, 1, projectIdNumber, Integer.class);
+					Material material = mapper.extract(rs);
+					Project project = projects.get(material.getProjectId());
 					
-					//I believe this is part one to grab info in a way that it can be stored in the object.
-					try(ResultSet rs = stat.executeQuery())
+					if(Objects.nonNull(project))
 					{
-						if(rs.next())
-						{
-							//this is the second part.
-							project = extract(rs, Project.class);
-						}
+						project.getMaterials().add(material);
 					}
+					rows++;
 				}
-				//grabs additional info if it isnt null
-				if(Objects.nonNull(project))
+				timer.mapped(rows);
+			}
+		}
+		
+		try(PreparedStatement stat = conn.prepareStatement(STEPS_BY_PROJECT_IDS.forSize(projectIds.length)))
+		{
+			setIdParameters(stat, projectIds);
+			
+			try(ResultSet rs = timer.executed(stat.executeQuery()))
+			{
+				RowMapper<Step> mapper = rowMapper(rs, Step.class);
+				int rows = 0;
+				
+				while(rs.next())
 				{
-					//this is new, but it just grabs any additional info inside theproject (steps, cate, mats)
-					project.getMaterials().addAll(grabMaterialsForProject(conn, projectIdNumber));
-					project.getSteps().addAll(grabStepsForProject(conn, projectIdNumber));
-					project.getCategories().addAll(grabCategoriesForProject(conn, projectIdNumber));
+					Step step = mapper.extract(rs);
+					Project project = projects.get(step.getProjectId());
+					
+					if(Objects.nonNull(project))
+					{
+						project.getSteps().add(step);
+					}
+					rows++;
 				}
-				//sends the transaction
-				commitTransaction(conn);
+				timer.mapped(rows);
+			}
+		}
+		
+		try(PreparedStatement stat = conn.prepareStatement(CATEGORIES_BY_PROJECT_IDS.forSize(projectIds.length)))
+		{
+			setIdParameters(stat, projectIds);
+			
+			try(ResultSet rs = timer.executed(stat.executeQuery()))
+			{
+				int rows = 0;
 				
-				// returns the object, even if null
-				return Optional.ofNullable(project);
+				while(rs.next())
+				{
+					Project project = projects.get(rs.getInt(1));
+					
+					if(Objects.nonNull(project))
+					{
+						project.getCategories().add(categories.get(conn, rs.getInt(2)));
+					}
+					rows++;
+				}
+				timer.mapped(rows);
 			}
-			catch(Exception e)
+		}
+	}
+	
+	/*
+	 * Binds the IDs to the IN list. The list is padded by repeating the last ID up to the placeholder count
+	 * from placeholderCount(), which only hands out a few distinct sizes so the SQL text repeats between calls.
+	 */
+	private void setIdParameters(PreparedStatement stat, int[] projectIds) throws SQLException
+	{
+		int count = placeholderCount(projectIds.length);
+		
+		for(int index = 0; index < count; index++)
+		{
+			setParameter(stat, index + 1, projectIds[Math.min(index, projectIds.length - 1)], Integer.class);
+		}
+	}
+	
+	//rounds up to the next power of two, at least 8
+	private static int placeholderCount(int idCount)
+	{
+		return Math.max(8, Integer.highestOneBit(Math.max(1, idCount - 1)) << 1);
+	}
+	
+	private Project grabProjectInOneRoundTrip(Connection conn, Integer projectIdNumber, QueryTimer timer) throws SQLException
+	{
+		try(PreparedStatement stat = conn.prepareStatement(PROJECT_AGGREGATE_SQL))
+		{
+			//every one of the four selects takes the same projectId
+			for(int parameter = 1; parameter <= 4; parameter++)
 			{
-				System.out.println("\n select statement failure 'grabSpecificProject'");
-				rollbackTransaction(conn);
-				throw new DbException(e);
+				setParameter(stat, parameter, projectIdNumber, Integer.class);
+			}
+			
+			timer.executed(stat.execute());
+			
+			List<Project> projects = readResultSet(stat, Project.class, timer);
+			
+			if(projects.isEmpty())
+			{
+				return null;
 			}
+			
+			//result sets come back in the order the selects were written
+			Project project = projects.get(0);
+			timer.executed(stat.getMoreResults());
+			project.getMaterials().addAll(readResultSet(stat, Material.class, timer));
+			timer.executed(stat.getMoreResults());
+			project.getSteps().addAll(readResultSet(stat, Step.class, timer));
+			timer.executed(stat.getMoreResults());
+			project.getCategories().addAll(readCategories(conn, stat.getResultSet(), timer));
+			
+			return project;
 		}
-		catch(SQLException e)
+	}
+	
+	private <T> List<T> readResultSet(Statement stat, Class<T> classType, QueryTimer timer) throws SQLException
+	{
+		try(ResultSet rs = stat.getResultSet())
 		{
-			System.out.println("\n connection failure 'grabSpecificProject'");
-			throw new DbException(e);
+			List<T> rows = new LinkedList<T>();
+			RowMapper<T> mapper = rowMapper(rs, classType);
+			
+			while(rs.next())
+			{
+				rows.add(mapper.extract(rs));
+			}
+			timer.mapped(rows.size());
+			return rows;
 		}
-		//return null;
 	}
 
-	private List<Step> grabStepsForProject(Connection conn, Integer projectIdNumber) throws SQLException
+	private List<Step> grabStepsForProject(Connection conn, Integer projectIdNumber, QueryTimer timer) throws SQLException
 	{
-		// @formatter:off 
-		String sql = "" + "SELECT s.* FROM " + STEP_TABLE + " s "
-		+ "WHERE project_id = ?";
-		// @formatter:on
-				
-		try(PreparedStatement stat = conn.prepareStatement(sql))
+		try(PreparedStatement stat = conn.prepareStatement(STEPS_FOR_PROJECT_SQL))
 		{
 			//changes the ? to correct projectId
 			setParameter(stat, 1, projectIdNumber, Integer.class);
 					
 			//tries to create a resultset for the prepared statement, 
 			//then makes a linked list and populates it
-			try(ResultSet rs = stat.executeQuery())
+			try(ResultSet rs = timer.executed(stat.executeQuery()))
 			{
 				List<Step> step = new LinkedList<Step>();
 						
+				RowMapper<Step> mapper = rowMapper(rs, Step.class);
+						
 				while(rs.next())
 				{
-					step.add(extract(rs, Step.class));
+					step.add(mapper.extract(rs));
 				}
+				timer.mapped(step.size());
 				return step;
 			}
 		}
@@ -254,97 +1264,119 @@ public class ProjectDao extends DaoBase
 		}
 	}
 
-	private List<Category> grabCategoriesForProject(Connection conn, Integer projectIdNumber)throws SQLException
+	private List<Category> grabCategoriesForProject(Connection conn, Integer projectIdNumber, QueryTimer timer) throws SQLException
 	{
-		// @formatter:off 
-		String sql = "" + "SELECT c.* FROM " + CATEGORY_TABLE + " c "
-		+ "JOIN " + PROJECT_CATEGORY_TABLE 
-		+ " pc USING (category_id) " 
-		+ "WHERE project_id = ?";
-		// @formatter:on
-		
-		try(PreparedStatement stat = conn.prepareStatement(sql))
+		try(PreparedStatement stat = conn.prepareStatement(CATEGORIES_FOR_PROJECT_SQL))
 		{
 			//changes the ? to correct projectId
 			setParameter(stat, 1, projectIdNumber, Integer.class);
 					
-			//tries to create a resultset for the prepared statement, 
-			//then makes a linked list and populates it
-			try(ResultSet rs = stat.executeQuery())
+			return readCategories(conn, timer.executed(stat.executeQuery()), timer);
+		}
+	}
+	
+	//a result set of category IDs to the shared categories, closes rs
+	private List<Category> readCategories(Connection conn, ResultSet rs, QueryTimer timer) throws SQLException
+	{
+		try(rs)
+		{
+			List<Category> cat = new ArrayList<Category>();
+			
+			while(rs.next())
 			{
-				List<Category> cat = new LinkedList<Category>();
-						
-				while(rs.next())
-				{
-					cat.add(extract(rs, Category.class));
-				}
-				return cat;
+				cat.add(categories.get(conn, rs.getInt(1)));
 			}
+			timer.mapped(cat.size());
+			return cat;
 		}
 	}
 
-	private List<Material> grabMaterialsForProject(Connection conn, Integer projectIdNumber)throws SQLException
+	private List<Material> grabMaterialsForProject(Connection conn, Integer projectIdNumber, QueryTimer timer) throws SQLException
 	{
-		// @formatter:off 
-		String sql = "" + "SELECT m.* FROM " + MATERIAL_TABLE + " m "
-		//+ "JOIN " + PROJECT_CATEGORY_TABLE 
-		//+ " pc USING (category_id) " 
-		+ "WHERE project_id = ?";
-		// @formatter:on
-		
-		try(PreparedStatement stat = conn.prepareStatement(sql))
+		try(PreparedStatement stat = conn.prepareStatement(MATERIALS_FOR_PROJECT_SQL))
 		{
 			//changes the ? to correct projectId
 			setParameter(stat, 1, projectIdNumber, Integer.class);
 			
 			//tries to create a resultset for the prepared statement, 
 			//then makes a linked list and populates it
-			try(ResultSet rs = stat.executeQuery())
+			try(ResultSet rs = timer.executed(stat.executeQuery()))
 			{
 				List<Material> mat = new LinkedList<Material>();
 				
+				RowMapper<Material> mapper = rowMapper(rs, Material.class);
+				
 				while(rs.next())
 				{
-					mat.add(extract(rs, Material.class));
+					mat.add(mapper.extract(rs));
 				}
+				timer.mapped(mat.size());
 				return mat;
 			}
 		}
 	}
 
+	/*
+	 * Writes the changed detail columns if the row still has the version the project was read with, and
+	 * bumps the version. Returns false when the project doesn't exist and throws OptimisticLockException
+	 * when someone else updated it first. A project with no version overwrites whatever is there. A project
+	 * with no changes doesn't go to the database at all and returns true without checking that it exists.
+	 */
 	public boolean modifyProjectDetails(Project project) 
 	{
-		// @formatter:off 
-			String sql = ""
-			+ "UPDATE " + PROJECT_TABLE + " SET " 
-			+ "project_name = ?, "
-			+ "estimated_hours = ?, "
-			+ "actual_hours = ?, "
-			+ "difficulty = ?, "
-			+ "notes = ? "
-			+ "WHERE project_id = ?"; 
-		// @formatter:on
+			if(!project.isDirty())
+			{
+				return true;
+			}
 			
-			try(Connection conn = DbConnection.getConnection())
+			try(QueryTimer timer = MODIFY_PROJECT_DETAILS.start(); Connection conn = timer.acquired(DbConnection.getConnection()))
 			{
 				startTransaction(conn);
 				
-				try(PreparedStatement stat = conn.prepareStatement(sql))
+				try(PreparedStatement stat = conn.prepareStatement(updateProjectSql(project.getDirtyFields())))
 				{
-					setParameter(stat, 1, project.getProjectName(), String.class); 
-					setParameter(stat, 2, project.getEstimatedHours (), BigDecimal.class); 
-					setParameter(stat, 3, project.getActualHours(), BigDecimal.class); 
-					setParameter(stat, 4, project.getDifficulty(), Integer.class); 
-					setParameter(stat, 5, project.getNotes(), String.class);
-					setParameter(stat, 6, project.getProjectId(), Integer.class);
+					setUpdateParameters(stat, project);
 					
 					//creates boolean that should return true if the update runs correctly
-					boolean success = stat.executeUpdate() == 1;
+					int updated = timer.executed(stat.executeUpdate());
+					
+					if(updated == 0 && Objects.nonNull(project.getVersion()))
+					{
+						//no match, either the row is gone or its version moved on
+						Integer currentVersion = grabProjectVersion(conn, project.getProjectId());
+						
+						if(Objects.nonNull(currentVersion))
+						{
+							throw new OptimisticLockException(project.getProjectId(), project.getVersion(), currentVersion);
+						}
+					}
+					
+					boolean success = updated == 1;
 					
 					commitTransaction(conn);
+					
+					if(success)
+					{
+						project.markClean();
+						
+						if(Objects.nonNull(project.getVersion()))
+						{
+							project.setVersion(project.getVersion() + 1);
+						}
+					}
+					
+					timer.affected(updated);
+					timer.completed();
 					return success;
 					
 				}
+				catch(OptimisticLockException e)
+				{
+					//a conflict is an answer, not a failure, so the timer still counts it as completed
+					rollbackTransaction(conn);
+					timer.completed();
+					throw e;
+				}
 				catch(Exception e)
 				{
 					System.out.println("Failed in ProjectDao.modifyProjectDetails");
@@ -359,35 +1391,169 @@ public class ProjectDao extends DaoBase
 			}
 	}
 	
+	//the project's current version, or null if it doesn't exist. Runs on the caller's connection so it sees the same transaction
+	private Integer grabProjectVersion(Connection conn, Integer projectId) throws SQLException
+	{
+		try(PreparedStatement stat = conn.prepareStatement(PROJECT_VERSION_SQL))
+		{
+			setParameter(stat, 1, projectId, Integer.class);
+			
+			try(ResultSet rs = stat.executeQuery())
+			{
+				return rs.next() ? rs.getInt("version") : null;
+			}
+		}
+	}
+	
+	//matches updateProjectSql(project.getDirtyFields())
+	private void setUpdateParameters(PreparedStatement stat, Project project) throws SQLException
+	{
+		int index = 1;
+		
+		for(ProjectField field : project.getDirtyFields())
+		{
+			setParameter(stat, index++, field.get(project), field.getType());
+		}
+		
+		setParameter(stat, index++, project.getProjectId(), Integer.class);
+		setParameter(stat, index++, project.getVersion(), Integer.class);
+		setParameter(stat, index, project.getVersion(), Integer.class);
+	}
+	
 
-	public boolean removeProject(Project project) 
+	/*
+	 * Updates the changed detail columns of every project in one transaction, as one JDBC batch per
+	 * combination of changed columns. Projects with no changes are skipped. Returns the IDs that matched no
+	 * row, everything rolls back if any statement fails. A project with a version is checked like in
+	 * modifyProjectDetails, one that lost a race throws OptimisticLockException and nothing is written.
+	 * Once the batch commits, every versioned project that was written has its version bumped like there.
+	 */
+	public List<Integer> modifyProjectsDetails(Collection<Project> projects) 
 	{
-			//wrote two different statements for deleting the category and project separately.
-		// @formatter:off 
-			String sqlRemoveCategory = "DELETE FROM projects." + CATEGORY_TABLE  
-            + " WHERE projects.category.category_id = ?;";
-			String sqlRemoveProject = "DELETE FROM projects." + PROJECT_TABLE  
-                    + " WHERE projects.project.project_id = ?;";
-		// @formatter:on
+		//a batch needs one statement text, so projects are grouped by the columns they change
+		Map<String, List<Project>> batches = new LinkedHashMap<String, List<Project>>();
+		
+		for(Project project : projects)
+		{
+			if(project.isDirty())
+			{
+				batches.computeIfAbsent(updateProjectSql(project.getDirtyFields()), sql -> new ArrayList<Project>()).add(project);
+			}
+		}
+		
+		if(batches.isEmpty())
+		{
+			return new ArrayList<Integer>();
+		}
+		
+		try(QueryTimer timer = MODIFY_PROJECTS_DETAILS.start(); Connection conn = timer.acquired(DbConnection.getConnection()))
+		{
+			startTransaction(conn);
 			
-		try(Connection conn = DbConnection.getConnection())
+			try
+			{
+				List<Integer> missing = new ArrayList<Integer>();
+				List<Project> versioned = new ArrayList<Project>();
+				int updated = 0;
+				
+				for(Map.Entry<String, List<Project>> batch : batches.entrySet())
+				{
+					try(PreparedStatement stat = conn.prepareStatement(batch.getKey()))
+					{
+						for(Project project : batch.getValue())
+						{
+							setUpdateParameters(stat, project);
+							stat.addBatch();
+						}
+						
+						int[] counts = timer.executed(stat.executeBatch());
+						
+						for(int index = 0; index < counts.length; index++)
+						{
+							Project project = batch.getValue().get(index);
+							
+							//SUCCESS_NO_INFO means the driver rewrote the batch and can't say, treat it as found
+							if(counts[index] == 0)
+							{
+								Integer currentVersion = Objects.nonNull(project.getVersion())
+										? grabProjectVersion(conn, project.getProjectId()) : null;
+								
+								if(Objects.nonNull(currentVersion))
+								{
+									throw new OptimisticLockException(project.getProjectId(), project.getVersion(), currentVersion);
+								}
+								missing.add(project.getProjectId());
+							}
+							else
+							{
+								updated++;
+								
+								if(Objects.nonNull(project.getVersion()))
+								{
+									versioned.add(project);
+								}
+							}
+						}
+					}
+				}
+				
+				commitTransaction(conn);
+				batches.values().forEach(batch -> batch.forEach(Project::markClean));
+				versioned.forEach(project -> project.setVersion(project.getVersion() + 1));
+				
+				timer.affected(updated);
+				timer.completed();
+				return missing;
+			}
+			catch(OptimisticLockException e)
+			{
+				rollbackTransaction(conn);
+				timer.completed();
+				throw e;
+			}
+			catch(Exception e)
+			{
+				System.out.println("Failed in ProjectDao.modifyProjectsDetails");
+				rollbackTransaction(conn);
+				throw new DbException(e);
+			}
+		}
+		catch (SQLException e)
+		{
+			System.out.println("Failed connection in ProjectDao.modifyProjectsDetails");
+			throw new DbException(e);
+		}
+	}
+	
+
+	//true when the project existed, its materials, steps, category links and rollup row go with it
+	public boolean removeProject(Project project) 
+	{
+		try(QueryTimer timer = REMOVE_PROJECT.start(); Connection conn = timer.acquired(DbConnection.getConnection()))
 		{
 			//single connection can be used to do multiple statements
 			startTransaction(conn);
-						
-			try(PreparedStatement statCategory = conn.prepareStatement(sqlRemoveCategory); PreparedStatement statProject = conn.prepareStatement(sqlRemoveProject))
+			
+			try
 			{
-				//Since Category didnt have a foreign key, I couldnt use ON DELETE CASCADE so I split them into two separate spots
-				//This one sets the parameters for the preparedstatement for category
-				setParameter(statCategory, 1, project.getProjectId(), Integer.class);
+				int deleted = 0;
 				
-				//This one sets the parameters for the preparedstatement for Project
-				setParameter(statProject, 1, project.getProjectId(), Integer.class);	
+				for(String sql : DELETE_PROJECT_SQL)
+				{
+					try(PreparedStatement stat = conn.prepareStatement(sql))
+					{
+						setParameter(stat, 1, project.getProjectId(), Integer.class);
+						
+						//the project row is last, so this ends up as whether the project was there
+						deleted = stat.executeUpdate();
+					}
+				}
 				
-				//creates boolean that should return true if both category and project update correctly.
-				boolean success = (statCategory.executeUpdate() == 1) && (statProject.executeUpdate() == 1);	
+				boolean success = timer.executed(deleted == 1);
 				
 				commitTransaction(conn);
+				timer.affected(deleted);
+				timer.completed();
 				return success;
 							
 			}
@@ -404,4 +1570,63 @@ public class ProjectDao extends DaoBase
 			throw new DbException(e);
 		}
 	}
+	
+	/*
+	 * Deletes every project in the collection with its materials, steps, category links and rollup row,
+	 * five statements per IN_CHUNK_SIZE projects, all in one transaction. IDs that don't exist are skipped.
+	 * Returns how many projects were deleted.
+	 */
+	public int removeProjects(Collection<Integer> projectIds) 
+	{
+		int[] ids = projectIds.stream().filter(Objects::nonNull).mapToInt(Integer::intValue).distinct().toArray();
+		
+		if(ids.length == 0)
+		{
+			return 0;
+		}
+		
+		try(QueryTimer timer = REMOVE_PROJECTS.start(); Connection conn = timer.acquired(DbConnection.getConnection()))
+		{
+			startTransaction(conn);
+			
+			try
+			{
+				int deleted = 0;
+				
+				for(int from = 0; from < ids.length; from += IN_CHUNK_SIZE)
+				{
+					int[] chunk = Arrays.copyOfRange(ids, from, Math.min(ids.length, from + IN_CHUNK_SIZE));
+					int count = 0;
+					
+					for(InListSql sql : DELETE_PROJECTS_BY_IDS)
+					{
+						try(PreparedStatement stat = conn.prepareStatement(sql.forSize(chunk.length)))
+						{
+							setIdParameters(stat, chunk);
+							count = timer.executed(stat.executeUpdate());
+						}
+					}
+					
+					//the project delete is last, so count is how many projects of the chunk existed
+					deleted += count;
+				}
+				
+				commitTransaction(conn);
+				timer.affected(deleted);
+				timer.completed();
+				return deleted;
+			}
+			catch(Exception e)
+			{
+				System.out.println("Failed in ProjectDao.removeProjects");
+				rollbackTransaction(conn);
+				throw new DbException(e);
+			}
+		}
+		catch (SQLException e)
+		{
+			System.out.println("Failed connection in ProjectDao.removeProjects");
+			throw new DbException(e);
+		}
+	}
 }
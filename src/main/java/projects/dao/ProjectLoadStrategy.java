@@ -0,0 +1,18 @@
+package projects.dao;
+
+//how ProjectDao.grabSpecificProject loads a project with its materials, steps and categories
+public enum ProjectLoadStrategy
+{
+	//one query for the project row and one per child table, four round trips on the same connection
+	PER_TABLE,
+	
+	//all four selects sent as one multi-statement call, read back as consecutive result sets. Only the primary's
+	//multi-query pool allows that, so these loads never go to a replica
+	SINGLE_ROUND_TRIP;
+	
+	//lets a benchmark run pick the strategy with -Dprojects.loadStrategy=SINGLE_ROUND_TRIP
+	static ProjectLoadStrategy fromSystemProperty()
+	{
+		return valueOf(System.getProperty("projects.loadStrategy", PER_TABLE.name()));
+	}
+}
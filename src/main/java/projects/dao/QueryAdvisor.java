@@ -0,0 +1,83 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import projects.exception.DbException;
+import provided.util.DaoBase;
+
+/*
+ * Diagnostics for the DAO queries: runs EXPLAIN on each lookup ProjectDao makes and flags the tables MySQL
+ * would read with a full scan (type ALL). The optimizer happily scans tiny tables even when an index
+ * exists, so this is only meaningful against a database with a realistic amount of data in it.
+ */
+public class QueryAdvisor extends DaoBase
+{
+	private static final String FULL_SCAN = "ALL";
+
+	//one line per table a query touches, warnings start with "FULL SCAN"
+	public List<String> explainQueries()
+	{
+		List<String> report = new ArrayList<>();
+
+		try(Connection conn = DbConnection.getConnection())
+		{
+			for(Map.Entry<String, String> query : ProjectDao.diagnosticQueries().entrySet())
+			{
+				explain(conn, query.getKey(), query.getValue(), report);
+			}
+		}
+		catch(SQLException e)
+		{
+			System.out.println("Failed to explain the DAO queries");
+			throw new DbException(e);
+		}
+
+		return report;
+	}
+
+	public List<String> findFullScans()
+	{
+		List<String> fullScans = new ArrayList<>();
+
+		for(String line : explainQueries())
+		{
+			if(line.startsWith("FULL SCAN"))
+			{
+				fullScans.add(line);
+			}
+		}
+		return fullScans;
+	}
+
+	private void explain(Connection conn, String name, String sql, List<String> report) throws SQLException
+	{
+		try(PreparedStatement stat = conn.prepareStatement("EXPLAIN " + sql))
+		{
+			//the plan doesn't depend on the values, any id will do
+			int parameterCount = (int)sql.chars().filter(c -> c == '?').count();
+
+			for(int index = 1; index <= parameterCount; index++)
+			{
+				setParameter(stat, index, 1, Integer.class);
+			}
+
+			try(ResultSet rs = stat.executeQuery())
+			{
+				while(rs.next())
+				{
+					String type = rs.getString("type");
+					String line = name + ": table=" + rs.getString("table") + ", type=" + type + ", key=" + rs.getString("key")
+							+ ", rows=" + rs.getString("rows") + ", extra=" + rs.getString("Extra");
+
+					report.add(FULL_SCAN.equals(type) ? "FULL SCAN " + line : line);
+				}
+			}
+		}
+	}
+}
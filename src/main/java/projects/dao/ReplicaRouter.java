@@ -0,0 +1,231 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/*
+ * One connection pool per read replica and the choice of which one a read goes to. A replica that can't
+ * be connected to is taken out of rotation straight away, and a background check puts it back once it
+ * answers again. A replica whose pool is only busy stays in rotation: its pools wait
+ * replicaBorrowTimeoutMillis at most, then the read tries the next replica, and the primary once every
+ * replica was tried.
+ */
+class ReplicaRouter implements AutoCloseable
+{
+	private static final String HEALTH_CHECK_SQL = "SELECT 1";
+
+	private final List<Replica> replicas = new ArrayList<>();
+	private final ReplicaStrategy strategy;
+	private final AtomicInteger next = new AtomicInteger();
+	private final ScheduledExecutorService healthChecker;
+
+	ReplicaRouter(DbConfig config, PoolConfig poolConfig, Function<DbEndpoint, ConnectionPool.ConnectionFactory> factories)
+	{
+		this.strategy = config.getReplicaStrategy();
+
+		PoolConfig replicaPoolConfig = new PoolConfig(poolConfig);
+		replicaPoolConfig.setBorrowTimeoutMillis(Math.min(poolConfig.getBorrowTimeoutMillis(), config.getReplicaBorrowTimeoutMillis()));
+
+		for(DbEndpoint endpoint : config.getReplicas())
+		{
+			replicas.add(new Replica(endpoint, new ConnectionPool(factories.apply(endpoint), replicaPoolConfig)));
+		}
+
+		if(replicas.isEmpty() || config.getHealthCheckMillis() <= 0)
+		{
+			healthChecker = null;
+			return;
+		}
+
+		healthChecker = Executors.newSingleThreadScheduledExecutor(runnable ->
+		{
+			Thread thread = new Thread(runnable, "replica-health-check");
+			thread.setDaemon(true);
+			return thread;
+		});
+		healthChecker.scheduleWithFixedDelay(this::checkHealth, config.getHealthCheckMillis(),
+				config.getHealthCheckMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	boolean hasReplicas()
+	{
+		return !replicas.isEmpty();
+	}
+
+	//a read only connection from a healthy replica, or null when none of them can hand one out
+	Connection borrow()
+	{
+		Set<Replica> tried = new HashSet<>();
+		Replica replica;
+
+		while((replica = choose(tried)) != null)
+		{
+			try
+			{
+				return replica.pool.borrow();
+			}
+			catch(RuntimeException e)
+			{
+				tried.add(replica);
+
+				if(isConnectionFailure(e))
+				{
+					replica.markDown(e);
+				}
+			}
+		}
+		return null;
+	}
+
+	//replica to up/down, in configuration order
+	Map<String, Boolean> getHealth()
+	{
+		Map<String, Boolean> health = new LinkedHashMap<>();
+		replicas.forEach(replica -> health.put(replica.endpoint.toString(), replica.healthy));
+		return health;
+	}
+
+	@Override
+	public void close()
+	{
+		if(healthChecker != null)
+		{
+			healthChecker.shutdownNow();
+		}
+		replicas.forEach(replica -> replica.pool.close());
+	}
+
+	//a healthy replica not in tried, or null
+	private Replica choose(Set<Replica> tried)
+	{
+		int count = replicas.size();
+		int start = Math.floorMod(next.getAndIncrement(), count);
+		Replica chosen = null;
+		int chosenLoad = Integer.MAX_VALUE;
+
+		for(int offset = 0; offset < count; offset++)
+		{
+			Replica replica = replicas.get((start + offset) % count);
+
+			if(!replica.healthy || tried.contains(replica))
+			{
+				continue;
+			}
+
+			if(strategy == ReplicaStrategy.ROUND_ROBIN)
+			{
+				return replica;
+			}
+
+			PoolStats stats = replica.pool.getStats();
+			int load = stats.getActive() + stats.getWaiters();
+
+			if(load < chosenLoad)
+			{
+				chosen = replica;
+				chosenLoad = load;
+			}
+		}
+		return chosen;
+	}
+
+	private void checkHealth()
+	{
+		for(Replica replica : replicas)
+		{
+			try(Connection conn = replica.pool.borrow(); Statement stat = conn.createStatement())
+			{
+				stat.execute(HEALTH_CHECK_SQL);
+
+				if(!replica.healthy)
+				{
+					System.out.println("Replica " + replica.endpoint + " is back in rotation");
+					replica.healthy = true;
+				}
+			}
+			catch(Exception e)
+			{
+				//a busy pool says nothing about the replica, the next check will get through
+				if(!isPoolTimeout(e))
+				{
+					replica.markDown(e);
+				}
+			}
+		}
+	}
+
+	/*
+	 * True when the replica couldn't be reached: SQLState class 08 or a non-transient connection error, e.g.
+	 * refused or dropped connections. A pool that timed out waiting for a free connection isn't one.
+	 */
+	private static boolean isConnectionFailure(Throwable failure)
+	{
+		if(isPoolTimeout(failure))
+		{
+			return false;
+		}
+
+		for(Throwable cause = failure; cause != null; cause = cause.getCause())
+		{
+			if(cause instanceof SQLNonTransientConnectionException)
+			{
+				return true;
+			}
+
+			if(cause instanceof SQLException && String.valueOf(((SQLException)cause).getSQLState()).startsWith("08"))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	//ConnectionPool.borrow() gave up waiting for a free connection, it marks that with a SQLTransientConnectionException
+	private static boolean isPoolTimeout(Throwable failure)
+	{
+		for(Throwable cause = failure; cause != null; cause = cause.getCause())
+		{
+			if(cause instanceof SQLTransientConnectionException)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static class Replica
+	{
+		private final DbEndpoint endpoint;
+		private final ConnectionPool pool;
+		private volatile boolean healthy = true;
+
+		Replica(DbEndpoint endpoint, ConnectionPool pool)
+		{
+			this.endpoint = endpoint;
+			this.pool = pool;
+		}
+
+		void markDown(Exception e)
+		{
+			if(healthy)
+			{
+				System.out.println("Replica " + endpoint + " taken out of rotation: " + e.getMessage());
+				healthy = false;
+			}
+		}
+	}
+}
@@ -0,0 +1,16 @@
+package projects.dao;
+
+//how DbConnection picks a replica for a read, set with projects.db.replica.strategy
+public enum ReplicaStrategy
+{
+	//each read goes to the next healthy replica in turn
+	ROUND_ROBIN,
+
+	//the healthy replica with the fewest connections in use or waited for
+	LEAST_LOADED;
+
+	static ReplicaStrategy fromName(String name)
+	{
+		return name == null || name.isBlank() ? ROUND_ROBIN : valueOf(name.trim().toUpperCase());
+	}
+}
@@ -0,0 +1,201 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import projects.entity.PortfolioTotal;
+import projects.entity.ProjectRollup;
+import projects.exception.DbException;
+import projects.metrics.MetricsRegistry;
+import projects.metrics.OperationMetrics;
+import projects.metrics.QueryTimer;
+import provided.util.DaoBase;
+import provided.util.RowMapper;
+
+/*
+ * Reads the per-project totals in project_rollup (V5__project_rollup.sql) and the portfolio totals built
+ * from them. ProjectDao keeps the rows current as it writes, rebuildRollups() is for after the tables
+ * were changed some other way, e.g. by a script.
+ */
+public class RollupDao extends DaoBase
+{
+	private static final String ROLLUP_TABLE = "project_rollup";
+
+	private static final OperationMetrics GRAB_PROJECT_ROLLUPS = MetricsRegistry.getDefault().operation("grabProjectRollups");
+	private static final OperationMetrics GRAB_PORTFOLIO_TOTALS = MetricsRegistry.getDefault().operation("grabPortfolioTotals");
+	private static final OperationMetrics REBUILD_ROLLUPS = MetricsRegistry.getDefault().operation("rebuildRollups");
+
+	// @formatter:off
+	private static final String ROLLUP_COLUMNS = ""
+	+ "SELECT p.project_id, p.project_name, p.difficulty, p.estimated_hours, p.actual_hours, "
+	+ "r.material_count, r.material_cost, r.step_count "
+	+ "FROM project p "
+	+ "JOIN " + ROLLUP_TABLE + " r USING (project_id) ";
+
+	private static final String ROLLUP_BY_ID_SQL = ROLLUP_COLUMNS + "WHERE p.project_id = ?";
+
+	private static final String ROLLUPS_AFTER_SQL = ROLLUP_COLUMNS + "WHERE p.project_id > ? ORDER BY p.project_id LIMIT ?";
+
+	//a NULL hour drops out of SUM, and the variance of a project missing either hour is NULL, so only complete projects count toward it
+	private static final String TOTALS = ""
+	+ "COUNT(*) AS project_count, "
+	+ "SUM(p.estimated_hours) AS estimated_hours, "
+	+ "SUM(p.actual_hours) AS actual_hours, "
+	+ "SUM(p.actual_hours - p.estimated_hours) AS hours_variance, "
+	+ "SUM(r.material_cost) AS material_cost ";
+
+	private static final String PORTFOLIO_BY_CATEGORY_SQL = ""
+	+ "SELECT c.category_id AS group_id, c.category_name AS group_name, " + TOTALS
+	+ "FROM project_category pc "
+	+ "JOIN project p USING (project_id) "
+	+ "JOIN " + ROLLUP_TABLE + " r USING (project_id) "
+	+ "JOIN category c ON c.category_id = pc.category_id "
+	+ "GROUP BY c.category_id, c.category_name "
+	+ "ORDER BY c.category_name, c.category_id";
+
+	private static final String PORTFOLIO_BY_DIFFICULTY_SQL = ""
+	+ "SELECT p.difficulty AS group_id, " + TOTALS
+	+ "FROM project p "
+	+ "JOIN " + ROLLUP_TABLE + " r USING (project_id) "
+	+ "GROUP BY p.difficulty "
+	+ "ORDER BY p.difficulty";
+
+	//every project counted the way ProjectDao counts the ones it inserts. A row that already has the right
+	//numbers is left as it is, so a rebuild after a small script only writes the rows the script changed
+	private static final String UPSERT_ROLLUPS_SQL = ""
+	+ "INSERT INTO " + ROLLUP_TABLE + " (project_id, material_count, material_cost, step_count) "
+	+ "SELECT * FROM (" + ProjectDao.ROLLUP_COUNTS_SQL + ") counted "
+	+ "ON DUPLICATE KEY UPDATE material_count = counted.material_count, material_cost = counted.material_cost, "
+	+ "step_count = counted.step_count";
+
+	//rows left behind by a project deleted with foreign key checks off
+	private static final String DELETE_ORPHAN_ROLLUPS_SQL = ""
+	+ "DELETE r FROM " + ROLLUP_TABLE + " r "
+	+ "LEFT JOIN project p USING (project_id) "
+	+ "WHERE p.project_id IS NULL";
+	// @formatter:on
+
+	public Optional<ProjectRollup> grabProjectRollup(Integer projectId)
+	{
+		List<ProjectRollup> rollups = grabProjectRollups(ROLLUP_BY_ID_SQL, projectId, null);
+		return rollups.isEmpty() ? Optional.empty() : Optional.of(rollups.get(0));
+	}
+
+	//one keyset page in project ID order, pass the last ID of the previous page to get the next one
+	public List<ProjectRollup> grabProjectRollupsAfter(int afterProjectId, int limit)
+	{
+		return grabProjectRollups(ROLLUPS_AFTER_SQL, afterProjectId, limit);
+	}
+
+	//one row per category, projects in several categories count in each of them
+	public List<PortfolioTotal> grabPortfolioByCategory()
+	{
+		return grabPortfolioTotals(PORTFOLIO_BY_CATEGORY_SQL);
+	}
+
+	//one row per difficulty, projects without one are grouped under a null difficulty
+	public List<PortfolioTotal> grabPortfolioByDifficulty()
+	{
+		return grabPortfolioTotals(PORTFOLIO_BY_DIFFICULTY_SQL);
+	}
+
+	/*
+	 * Recounts every project's row in one transaction, adding missing rows and removing orphaned ones.
+	 * Returns the row count the driver reports for the upsert plus the orphans removed, it counts a
+	 * changed row twice.
+	 */
+	public int rebuildRollups()
+	{
+		try(QueryTimer timer = REBUILD_ROLLUPS.start(); Connection conn = timer.acquired(DbConnection.getConnection()))
+		{
+			startTransaction(conn);
+
+			try(Statement stat = conn.createStatement())
+			{
+				int rows = timer.executed(stat.executeUpdate(UPSERT_ROLLUPS_SQL));
+				rows += stat.executeUpdate(DELETE_ORPHAN_ROLLUPS_SQL);
+				commitTransaction(conn);
+				timer.affected(rows);
+				timer.completed();
+				return rows;
+			}
+			catch(Exception e)
+			{
+				System.out.println("Failed in RollupDao.rebuildRollups");
+				rollbackTransaction(conn);
+				throw new DbException(e);
+			}
+		}
+		catch(SQLException e)
+		{
+			System.out.println("Failed connection in RollupDao.rebuildRollups");
+			throw new DbException(e);
+		}
+	}
+
+	private List<ProjectRollup> grabProjectRollups(String sql, Integer projectId, Integer limit)
+	{
+		try(QueryTimer timer = GRAB_PROJECT_ROLLUPS.start(); Connection conn = timer.acquired(DbConnection.getReadConnection()))
+		{
+			try(PreparedStatement stat = conn.prepareStatement(sql))
+			{
+				setParameter(stat, 1, projectId, Integer.class);
+
+				if(limit != null)
+				{
+					setParameter(stat, 2, limit, Integer.class);
+				}
+
+				try(ResultSet rs = timer.executed(stat.executeQuery()))
+				{
+					List<ProjectRollup> rollups = new ArrayList<>();
+					RowMapper<ProjectRollup> mapper = rowMapper(rs, ProjectRollup.class);
+
+					while(rs.next())
+					{
+						rollups.add(mapper.extract(rs));
+					}
+					timer.mapped(rollups.size());
+					timer.completed();
+					return rollups;
+				}
+			}
+		}
+		catch(SQLException e)
+		{
+			System.out.println("\n select statement failure 'grabProjectRollups'");
+			throw new DbException(e);
+		}
+	}
+
+	private List<PortfolioTotal> grabPortfolioTotals(String sql)
+	{
+		try(QueryTimer timer = GRAB_PORTFOLIO_TOTALS.start(); Connection conn = timer.acquired(DbConnection.getReadConnection()))
+		{
+			try(PreparedStatement stat = conn.prepareStatement(sql); ResultSet rs = timer.executed(stat.executeQuery()))
+			{
+				List<PortfolioTotal> totals = new ArrayList<>();
+				RowMapper<PortfolioTotal> mapper = rowMapper(rs, PortfolioTotal.class);
+
+				while(rs.next())
+				{
+					totals.add(mapper.extract(rs));
+				}
+				timer.mapped(totals.size());
+				timer.completed();
+				return totals;
+			}
+		}
+		catch(SQLException e)
+		{
+			System.out.println("\n select statement failure 'grabPortfolioTotals'");
+			throw new DbException(e);
+		}
+	}
+}
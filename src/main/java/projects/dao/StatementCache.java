@@ -0,0 +1,194 @@
+package projects.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * LRU cache of prepared statements for one physical connection, keyed by the SQL text. A pooled
+ * connection is only ever used by one thread at a time, so nothing in here is synchronized. Closing a
+ * statement handed out from here clears its parameters and parks it for the next caller with the same
+ * SQL instead of closing it on the server.
+ */
+class StatementCache
+{
+	private final int maxSize;
+	private final AtomicLong hits;
+	private final AtomicLong misses;
+
+	//access ordered, so the first entry is the least recently used
+	private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+	StatementCache(int maxSize, AtomicLong hits, AtomicLong misses)
+	{
+		this.maxSize = maxSize;
+		this.hits = hits;
+		this.misses = misses;
+	}
+
+	//autoGeneratedKeys is -1 for a plain prepareStatement(sql)
+	PreparedStatement prepare(Connection physical, String sql, int autoGeneratedKeys) throws SQLException
+	{
+		String key = autoGeneratedKeys < 0 ? sql : autoGeneratedKeys + "|" + sql;
+		CachedStatement cached = statements.get(key);
+
+		if(Objects.nonNull(cached) && !cached.inUse)
+		{
+			hits.incrementAndGet();
+			return cached.lease();
+		}
+
+		misses.incrementAndGet();
+		PreparedStatement stat = autoGeneratedKeys < 0 ? physical.prepareStatement(sql) : physical.prepareStatement(sql, autoGeneratedKeys);
+
+		//same SQL already open on this connection (or caching is off), hand out a plain statement
+		if(Objects.nonNull(cached) || maxSize <= 0)
+		{
+			return stat;
+		}
+
+		cached = new CachedStatement(key, stat);
+		statements.put(key, cached);
+		evictOverflow();
+		return cached.lease();
+	}
+
+	private void evictOverflow()
+	{
+		Iterator<Map.Entry<String, CachedStatement>> leastRecent = statements.entrySet().iterator();
+
+		while(statements.size() > maxSize && leastRecent.hasNext())
+		{
+			CachedStatement evicted = leastRecent.next().getValue();
+			leastRecent.remove();
+
+			//a statement someone is still using gets closed when they give it back
+			evicted.evicted = true;
+
+			if(!evicted.inUse)
+			{
+				evicted.closeQuietly();
+			}
+		}
+	}
+
+	private class CachedStatement
+	{
+		private final String key;
+		private final PreparedStatement physical;
+		private boolean inUse;
+		private boolean evicted;
+
+		CachedStatement(String key, PreparedStatement physical)
+		{
+			this.key = key;
+			this.physical = physical;
+		}
+
+		PreparedStatement lease()
+		{
+			inUse = true;
+			return (PreparedStatement)Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+					new Class<?>[] {PreparedStatement.class}, new LeaseHandler(this));
+		}
+
+		void giveBack()
+		{
+			inUse = false;
+
+			if(evicted)
+			{
+				closeQuietly();
+				return;
+			}
+
+			try
+			{
+				//undo anything a caller may have changed so the next caller gets a statement like a fresh one
+				physical.clearParameters();
+				physical.clearBatch();
+				physical.setFetchSize(0);
+				physical.setMaxRows(0);
+				physical.clearWarnings();
+			}
+			catch(SQLException e)
+			{
+				statements.remove(key);
+				closeQuietly();
+			}
+		}
+
+		void closeQuietly()
+		{
+			try
+			{
+				physical.close();
+			}
+			catch(SQLException e)
+			{
+				//dropping it anyway
+			}
+		}
+	}
+
+	private static class LeaseHandler implements InvocationHandler
+	{
+		private final CachedStatement cached;
+		private boolean returned;
+
+		LeaseHandler(CachedStatement cached)
+		{
+			this.cached = cached;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+		{
+			switch(method.getName())
+			{
+			case "close":
+				if(!returned)
+				{
+					returned = true;
+					cached.giveBack();
+				}
+				return null;
+
+			case "isClosed":
+				return returned || cached.physical.isClosed();
+
+			case "equals":
+				return proxy == args[0];
+
+			case "hashCode":
+				return System.identityHashCode(proxy);
+
+			case "toString":
+				return "Cached[" + cached.physical + "]";
+			}
+
+			if(returned)
+			{
+				throw new SQLException("Statement has already been closed.");
+			}
+
+			try
+			{
+				return method.invoke(cached.physical, args);
+			}
+			catch(InvocationTargetException e)
+			{
+				throw e.getCause();
+			}
+		}
+	}
+}
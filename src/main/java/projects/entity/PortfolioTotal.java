@@ -0,0 +1,88 @@
+/**
+ * 
+ */
+package projects.entity;
+
+import java.math.BigDecimal;
+
+/**
+ * Totals over a group of projects, a category or a difficulty. For a category the group ID and name
+ * are the category's, for a difficulty the ID is the difficulty and there is no name. Hours and their
+ * variance only add up the projects that have them.
+ *
+ */
+public class PortfolioTotal {
+  private Integer groupId;
+  private String groupName;
+  private Integer projectCount;
+  private BigDecimal estimatedHours;
+  private BigDecimal actualHours;
+  private BigDecimal hoursVariance;
+  private BigDecimal materialCost;
+
+  public Integer getGroupId() {
+    return groupId;
+  }
+
+  public void setGroupId(Integer groupId) {
+    this.groupId = groupId;
+  }
+
+  public String getGroupName() {
+    return groupName;
+  }
+
+  public void setGroupName(String groupName) {
+    this.groupName = groupName;
+  }
+
+  public Integer getProjectCount() {
+    return projectCount;
+  }
+
+  public void setProjectCount(Integer projectCount) {
+    this.projectCount = projectCount;
+  }
+
+  public BigDecimal getEstimatedHours() {
+    return estimatedHours;
+  }
+
+  public void setEstimatedHours(BigDecimal estimatedHours) {
+    this.estimatedHours = estimatedHours;
+  }
+
+  public BigDecimal getActualHours() {
+    return actualHours;
+  }
+
+  public void setActualHours(BigDecimal actualHours) {
+    this.actualHours = actualHours;
+  }
+
+  /**
+   * @return actual minus estimated hours over the projects that have both.
+   */
+  public BigDecimal getHoursVariance() {
+    return hoursVariance;
+  }
+
+  public void setHoursVariance(BigDecimal hoursVariance) {
+    this.hoursVariance = hoursVariance;
+  }
+
+  public BigDecimal getMaterialCost() {
+    return materialCost;
+  }
+
+  public void setMaterialCost(BigDecimal materialCost) {
+    this.materialCost = materialCost;
+  }
+
+  @Override
+  public String toString() {
+    return "groupId=" + groupId + ", groupName=" + groupName + ", projectCount=" + projectCount
+        + ", estimatedHours=" + estimatedHours + ", actualHours=" + actualHours + ", hoursVariance="
+        + hoursVariance + ", materialCost=" + materialCost;
+  }
+}
@@ -4,8 +4,12 @@
 package projects.entity;
 
 import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * @author Promineo
@@ -19,11 +23,18 @@ public class Project
   private BigDecimal actualHours;
   private Integer difficulty;
   private String notes;
+  private Integer version;
 
   private List<Material> materials = new LinkedList<>();
   private List<Step> steps = new LinkedList<>();
   private List<Category> categories = new LinkedList<>();
 
+  /*
+   * Detail fields changed through a setter since the project was loaded or last saved. Transient so the
+   * row mapper, which fills fields directly, leaves a freshly loaded project clean.
+   */
+  private transient Set<ProjectField> dirtyFields = EnumSet.noneOf(ProjectField.class);
+
   public Integer getProjectId() 
   {
     return projectId;
@@ -41,6 +52,7 @@ public class Project
 
   public void setProjectName(String projectName) 
   {
+    markIfChanged(ProjectField.PROJECT_NAME, this.projectName, projectName);
     this.projectName = projectName;
   }
 
@@ -51,6 +63,7 @@ public class Project
 
   public void setEstimatedHours(BigDecimal estimatedHours) 
   {
+    markIfChanged(ProjectField.ESTIMATED_HOURS, this.estimatedHours, estimatedHours);
     this.estimatedHours = estimatedHours;
   }
 
@@ -61,6 +74,7 @@ public class Project
 
   public void setActualHours(BigDecimal actualHours) 
   {
+    markIfChanged(ProjectField.ACTUAL_HOURS, this.actualHours, actualHours);
     this.actualHours = actualHours;
   }
 
@@ -71,6 +85,7 @@ public class Project
 
   public void setDifficulty(Integer difficulty) 
   {
+    markIfChanged(ProjectField.DIFFICULTY, this.difficulty, difficulty);
     this.difficulty = difficulty;
   }
 
@@ -81,9 +96,43 @@ public class Project
 
   public void setNotes(String notes) 
   {
+    markIfChanged(ProjectField.NOTES, this.notes, notes);
     this.notes = notes;
   }
 
+  public Integer getVersion() 
+  {
+    return version;
+  }
+
+  public void setVersion(Integer version) 
+  {
+    this.version = version;
+  }
+
+  /** The detail fields changed since the project was loaded or saved, empty when there is nothing to write. */
+  public Set<ProjectField> getDirtyFields() 
+  {
+    return Collections.unmodifiableSet(dirtyFields);
+  }
+
+  public boolean isDirty() 
+  {
+    return !dirtyFields.isEmpty();
+  }
+
+  /** Forces a field to be written even if its value didn't change. */
+  public void markDirty(ProjectField field) 
+  {
+    dirtyFields.add(field);
+  }
+
+  /** Called once the changes are saved. */
+  public void markClean() 
+  {
+    dirtyFields.clear();
+  }
+
   public List<Material> getMaterials() 
   {
     return materials;
@@ -99,6 +148,19 @@ public class Project
     return categories;
   }
 
+  private void markIfChanged(ProjectField field, Object oldValue, Object newValue) 
+  {
+    //2.5 and 2.50 are the same number of hours, BigDecimal.equals says they aren't
+    boolean same = oldValue instanceof BigDecimal && newValue instanceof BigDecimal
+        ? ((BigDecimal)oldValue).compareTo((BigDecimal)newValue) == 0
+        : Objects.equals(oldValue, newValue);
+
+    if(!same) 
+    {
+      dirtyFields.add(field);
+    }
+  }
+
   @Override
   public String toString() 
   {
@@ -110,6 +172,7 @@ public class Project
     result += "\n   actualHours=" + actualHours;
     result += "\n   difficulty=" + difficulty;
     result += "\n   notes=" + notes;
+    result += "\n   version=" + version;
     
     result += "\n   Materials:";
     
@@ -0,0 +1,59 @@
+/**
+ * 
+ */
+package projects.entity;
+
+import java.math.BigDecimal;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * The project detail columns that can be updated one at a time. {@link Project} records which of them
+ * were changed through its setters so an update only has to write those.
+ */
+public enum ProjectField {
+  PROJECT_NAME("project_name", String.class, Project::getProjectName,
+      (project, value) -> project.setProjectName((String)value)),
+  ESTIMATED_HOURS("estimated_hours", BigDecimal.class, Project::getEstimatedHours,
+      (project, value) -> project.setEstimatedHours((BigDecimal)value)),
+  ACTUAL_HOURS("actual_hours", BigDecimal.class, Project::getActualHours,
+      (project, value) -> project.setActualHours((BigDecimal)value)),
+  DIFFICULTY("difficulty", Integer.class, Project::getDifficulty,
+      (project, value) -> project.setDifficulty((Integer)value)),
+  NOTES("notes", String.class, Project::getNotes, (project, value) -> project.setNotes((String)value));
+
+  private final String columnName;
+  private final Class<?> type;
+  private final Function<Project, Object> getter;
+  private final BiConsumer<Project, Object> setter;
+
+  ProjectField(String columnName, Class<?> type, Function<Project, Object> getter,
+      BiConsumer<Project, Object> setter) {
+    this.columnName = columnName;
+    this.type = type;
+    this.getter = getter;
+    this.setter = setter;
+  }
+
+  public String getColumnName() {
+    return columnName;
+  }
+
+  public Class<?> getType() {
+    return type;
+  }
+
+  public Object get(Project project) {
+    return getter.apply(project);
+  }
+
+  /** Sets the value through the setter, so it is marked changed if it differs. */
+  public void set(Project project, Object value) {
+    setter.accept(project, value);
+  }
+
+  /** One bit per field, for keying things by a combination of fields. */
+  public int mask() {
+    return 1 << ordinal();
+  }
+}
@@ -0,0 +1,102 @@
+/**
+ * 
+ */
+package projects.entity;
+
+import java.math.BigDecimal;
+
+/**
+ * A project's precomputed totals from the project_rollup table next to the project columns they are
+ * read with. The hour variance is worked out from the two hour columns, so it is never out of date.
+ *
+ */
+public class ProjectRollup {
+  private Integer projectId;
+  private String projectName;
+  private Integer difficulty;
+  private BigDecimal estimatedHours;
+  private BigDecimal actualHours;
+  private Integer materialCount;
+  private BigDecimal materialCost;
+  private Integer stepCount;
+
+  public Integer getProjectId() {
+    return projectId;
+  }
+
+  public void setProjectId(Integer projectId) {
+    this.projectId = projectId;
+  }
+
+  public String getProjectName() {
+    return projectName;
+  }
+
+  public void setProjectName(String projectName) {
+    this.projectName = projectName;
+  }
+
+  public Integer getDifficulty() {
+    return difficulty;
+  }
+
+  public void setDifficulty(Integer difficulty) {
+    this.difficulty = difficulty;
+  }
+
+  public BigDecimal getEstimatedHours() {
+    return estimatedHours;
+  }
+
+  public void setEstimatedHours(BigDecimal estimatedHours) {
+    this.estimatedHours = estimatedHours;
+  }
+
+  public BigDecimal getActualHours() {
+    return actualHours;
+  }
+
+  public void setActualHours(BigDecimal actualHours) {
+    this.actualHours = actualHours;
+  }
+
+  /**
+   * @return actual minus estimated hours, positive when the project ran over, or null when either is
+   *         missing.
+   */
+  public BigDecimal getHoursVariance() {
+    return estimatedHours == null || actualHours == null ? null : actualHours.subtract(estimatedHours);
+  }
+
+  public Integer getMaterialCount() {
+    return materialCount;
+  }
+
+  public void setMaterialCount(Integer materialCount) {
+    this.materialCount = materialCount;
+  }
+
+  public BigDecimal getMaterialCost() {
+    return materialCost;
+  }
+
+  public void setMaterialCost(BigDecimal materialCost) {
+    this.materialCost = materialCost;
+  }
+
+  public Integer getStepCount() {
+    return stepCount;
+  }
+
+  public void setStepCount(Integer stepCount) {
+    this.stepCount = stepCount;
+  }
+
+  @Override
+  public String toString() {
+    return "ID=" + projectId + ", projectName=" + projectName + ", difficulty=" + difficulty
+        + ", estimatedHours=" + estimatedHours + ", actualHours=" + actualHours + ", hoursVariance="
+        + getHoursVariance() + ", materialCount=" + materialCount + ", materialCost=" + materialCost
+        + ", stepCount=" + stepCount;
+  }
+}
@@ -0,0 +1,35 @@
+/**
+ * 
+ */
+package projects.entity;
+
+/**
+ * Just the project columns a list screen shows. Selecting this instead of {@link Project} keeps the
+ * notes text and the hour columns off the wire.
+ *
+ */
+public class ProjectSummary {
+  private Integer projectId;
+  private String projectName;
+
+  public Integer getProjectId() {
+    return projectId;
+  }
+
+  public void setProjectId(Integer projectId) {
+    this.projectId = projectId;
+  }
+
+  public String getProjectName() {
+    return projectName;
+  }
+
+  public void setProjectName(String projectName) {
+    this.projectName = projectName;
+  }
+
+  @Override
+  public String toString() {
+    return "ID=" + projectId + ", projectName=" + projectName;
+  }
+}
@@ -0,0 +1,74 @@
+/**
+ * 
+ */
+package projects.entity;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row of the schema_history table, or a migration script found on the classpath that has not
+ * been applied yet (installedOn and executionMillis are null then).
+ *
+ */
+public class SchemaMigration {
+  private Integer version;
+  private String description;
+  private String script;
+  private Long checksum;
+  private LocalDateTime installedOn;
+  private Integer executionMillis;
+
+  public Integer getVersion() {
+    return version;
+  }
+
+  public void setVersion(Integer version) {
+    this.version = version;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  public void setDescription(String description) {
+    this.description = description;
+  }
+
+  public String getScript() {
+    return script;
+  }
+
+  public void setScript(String script) {
+    this.script = script;
+  }
+
+  public Long getChecksum() {
+    return checksum;
+  }
+
+  public void setChecksum(Long checksum) {
+    this.checksum = checksum;
+  }
+
+  public LocalDateTime getInstalledOn() {
+    return installedOn;
+  }
+
+  public void setInstalledOn(LocalDateTime installedOn) {
+    this.installedOn = installedOn;
+  }
+
+  public Integer getExecutionMillis() {
+    return executionMillis;
+  }
+
+  public void setExecutionMillis(Integer executionMillis) {
+    this.executionMillis = executionMillis;
+  }
+
+  @Override
+  public String toString() {
+    return "V" + version + " " + description + ", script=" + script + ", checksum=" + checksum
+        + ", installedOn=" + installedOn + ", executionMillis=" + executionMillis;
+  }
+}
@@ -0,0 +1,37 @@
+package projects.exception;
+
+//thrown when a project was updated by someone else between reading it and writing it back
+@SuppressWarnings("serial")
+public class OptimisticLockException extends DbException 
+{
+	private final Integer projectId;
+	private final Integer expectedVersion;
+	private final Integer actualVersion;
+
+	public OptimisticLockException(Integer projectId, Integer expectedVersion, Integer actualVersion) 
+	{
+		super("Project with ID = " + projectId + " was changed by someone else (expected version " + expectedVersion
+				+ ", found " + actualVersion + ")");
+		this.projectId = projectId;
+		this.expectedVersion = expectedVersion;
+		this.actualVersion = actualVersion;
+	}
+
+	public Integer getProjectId() 
+	{
+		return projectId;
+	}
+
+	//the version the update was based on
+	public Integer getExpectedVersion() 
+	{
+		return expectedVersion;
+	}
+
+	//the version the row has now
+	public Integer getActualVersion() 
+	{
+		return actualVersion;
+	}
+
+}
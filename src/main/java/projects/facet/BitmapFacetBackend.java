@@ -0,0 +1,337 @@
+package projects.facet;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import projects.entity.Category;
+import projects.entity.Project;
+import projects.entity.ProjectField;
+import projects.entity.ProjectSummary;
+import projects.metrics.MetricsRegistry;
+import projects.metrics.OperationMetrics;
+import projects.metrics.QueryTimer;
+import projects.util.IntBitmap;
+import projects.util.IntObjectMap;
+
+/*
+ * Keeps a compressed bitmap of project IDs per category in the JVM, so ALL is an intersection of bitmaps,
+ * ANY a union, and a count one intersection size per category. Nothing touches the database at query time.
+ *
+ * ProjectService keeps it in step with its own writes and rebuilds it from the database on start and after
+ * scripts or migrations, like InMemorySearchBackend. Queries share a read lock, writes take the write lock.
+ */
+public class BitmapFacetBackend implements FacetBackend
+{
+	private static final OperationMetrics COUNT_CATEGORIES = MetricsRegistry.getDefault().operation("countCategoriesInMemory");
+	private static final OperationMetrics LIST_PROJECTS = MetricsRegistry.getDefault().operation("listProjectsByCategoryInMemory");
+
+	//same order as SqlFacetBackend
+	private static final Comparator<CategoryCount> MOST_PROJECTS_FIRST = Comparator.comparingInt(CategoryCount::getProjectCount)
+			.reversed().thenComparingInt(CategoryCount::getCategoryId);
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	//guarded by lock
+	private final IntObjectMap<Postings> categories = new IntObjectMap<>();
+	private final IntObjectMap<Indexed> projects = new IntObjectMap<>();
+	private IntBitmap allProjects = new IntBitmap();
+
+	@Override
+	public boolean keepsOwnIndex()
+	{
+		return true;
+	}
+
+	@Override
+	public List<CategoryCount> countCategories(CategoryFilter filter)
+	{
+		try(QueryTimer timer = COUNT_CATEGORIES.start())
+		{
+			List<CategoryCount> counts = new ArrayList<>();
+
+			lock.readLock().lock();
+			try
+			{
+				IntBitmap matching = matching(filter);
+				timer.executed(null);
+
+				for(Postings postings : categories.values())
+				{
+					int count = matching == null ? postings.projectIds.cardinality() : postings.projectIds.andCardinality(matching);
+
+					if(count > 0)
+					{
+						counts.add(new CategoryCount(postings.categoryId, postings.categoryName, count));
+					}
+				}
+			}
+			finally
+			{
+				lock.readLock().unlock();
+			}
+
+			counts.sort(MOST_PROJECTS_FIRST);
+			timer.mapped(counts.size());
+			timer.completed();
+			return counts;
+		}
+	}
+
+	@Override
+	public FacetPage listProjects(CategoryFilter filter, int afterProjectId, int limit)
+	{
+		try(QueryTimer timer = LIST_PROJECTS.start())
+		{
+			List<ProjectSummary> page = new ArrayList<>(limit);
+			boolean[] hasMore = {false};
+
+			lock.readLock().lock();
+			try
+			{
+				IntBitmap matching = matching(filter);
+				timer.executed(null);
+
+				(matching == null ? allProjects : matching).forEachAfter(afterProjectId, projectId ->
+				{
+					if(page.size() == limit)
+					{
+						hasMore[0] = true;
+						return false;
+					}
+
+					ProjectSummary project = new ProjectSummary();
+					project.setProjectId(projectId);
+					project.setProjectName(projects.get(projectId).projectName);
+					page.add(project);
+					return true;
+				});
+			}
+			finally
+			{
+				lock.readLock().unlock();
+			}
+
+			timer.mapped(page.size());
+			timer.completed();
+			return new FacetPage(filter, afterProjectId, page, hasMore[0]);
+		}
+	}
+
+	@Override
+	public void clear()
+	{
+		lock.writeLock().lock();
+		try
+		{
+			categories.clear();
+			projects.clear();
+			allProjects = new IntBitmap();
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void projectAdded(Project project)
+	{
+		//a category listed twice or not saved yet counts once or not at all, like the links the DAO writes
+		int[] categoryIds = project.getCategories().stream().map(Category::getCategoryId).filter(Objects::nonNull)
+				.mapToInt(Integer::intValue).distinct().toArray();
+
+		lock.writeLock().lock();
+		try
+		{
+			int projectId = project.getProjectId();
+			unindex(projectId);
+
+			for(Category category : project.getCategories())
+			{
+				if(category.getCategoryId() != null)
+				{
+					categories.computeIfAbsent(category.getCategoryId(), id -> new Postings(id, category.getCategoryName()))
+							.projectIds.add(projectId);
+				}
+			}
+
+			projects.put(projectId, new Indexed(project.getProjectName(), categoryIds));
+			allProjects.add(projectId);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void projectChanged(Project project, Set<ProjectField> changed)
+	{
+		if(!changed.contains(ProjectField.PROJECT_NAME))
+		{
+			return;
+		}
+
+		lock.writeLock().lock();
+		try
+		{
+			Indexed old = projects.get(project.getProjectId());
+
+			//not indexed, e.g. an update queued for a project that was never there
+			if(old != null)
+			{
+				projects.put(project.getProjectId(), new Indexed(project.getProjectName(), old.categoryIds));
+			}
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void projectRemoved(Integer projectId)
+	{
+		lock.writeLock().lock();
+		try
+		{
+			unindex(projectId);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	//projects the index holds
+	public int getProjectCount()
+	{
+		lock.readLock().lock();
+		try
+		{
+			return allProjects.cardinality();
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	//heap held by the bitmaps, roughly
+	public long getBitmapBytes()
+	{
+		lock.readLock().lock();
+		try
+		{
+			long bytes = allProjects.sizeInBytes();
+
+			for(Postings postings : categories.values())
+			{
+				bytes += postings.projectIds.sizeInBytes();
+			}
+			return bytes;
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	/*
+	 * The projects matching filter, or null for every project. With one category that is the category's own
+	 * bitmap, so callers only read it. ALL starts from the smallest bitmap so every AND works on less.
+	 */
+	private IntBitmap matching(CategoryFilter filter)
+	{
+		if(filter.isEveryProject())
+		{
+			return null;
+		}
+
+		List<IntBitmap> bitmaps = new ArrayList<>(filter.size());
+
+		for(int index = 0; index < filter.size(); index++)
+		{
+			Postings postings = categories.get(filter.getCategoryId(index));
+
+			if(postings != null)
+			{
+				bitmaps.add(postings.projectIds);
+			}
+			else if(filter.getMatch() == CategoryMatch.ALL)
+			{
+				return new IntBitmap();
+			}
+		}
+
+		if(bitmaps.isEmpty())
+		{
+			return new IntBitmap();
+		}
+
+		if(filter.getMatch() == CategoryMatch.ALL)
+		{
+			bitmaps.sort(Comparator.comparingInt(IntBitmap::cardinality));
+		}
+
+		IntBitmap result = bitmaps.get(0);
+
+		for(int index = 1; index < bitmaps.size() && !(filter.getMatch() == CategoryMatch.ALL && result.isEmpty()); index++)
+		{
+			result = filter.getMatch() == CategoryMatch.ALL ? result.and(bitmaps.get(index)) : result.or(bitmaps.get(index));
+		}
+		return result;
+	}
+
+	private void unindex(int projectId)
+	{
+		Indexed old = projects.remove(projectId);
+
+		if(old == null)
+		{
+			return;
+		}
+
+		allProjects.remove(projectId);
+
+		for(int categoryId : old.categoryIds)
+		{
+			Postings postings = categories.get(categoryId);
+
+			if(postings != null && postings.projectIds.remove(projectId) && postings.projectIds.isEmpty())
+			{
+				categories.remove(categoryId);
+			}
+		}
+	}
+
+	private static class Postings
+	{
+		private final int categoryId;
+		private final String categoryName;
+		private final IntBitmap projectIds = new IntBitmap();
+
+		Postings(int categoryId, String categoryName)
+		{
+			this.categoryId = categoryId;
+			this.categoryName = categoryName;
+		}
+	}
+
+	//what the index remembers about a project, its name for a page and its categories to take it back out
+	private static class Indexed
+	{
+		private final String projectName;
+		private final int[] categoryIds;
+
+		Indexed(String projectName, int[] categoryIds)
+		{
+			this.projectName = projectName;
+			this.categoryIds = categoryIds;
+		}
+	}
+}
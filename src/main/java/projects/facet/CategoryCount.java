@@ -0,0 +1,36 @@
+package projects.facet;
+
+public class CategoryCount
+{
+	private final int categoryId;
+	private final String categoryName;
+	private final int projectCount;
+
+	public CategoryCount(int categoryId, String categoryName, int projectCount)
+	{
+		this.categoryId = categoryId;
+		this.categoryName = categoryName;
+		this.projectCount = projectCount;
+	}
+
+	public int getCategoryId()
+	{
+		return categoryId;
+	}
+
+	public String getCategoryName()
+	{
+		return categoryName;
+	}
+
+	public int getProjectCount()
+	{
+		return projectCount;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ID=" + categoryId + ", categoryName=" + categoryName + ", projects=" + projectCount;
+	}
+}
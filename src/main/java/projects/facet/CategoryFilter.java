@@ -0,0 +1,87 @@
+package projects.facet;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/*
+ * Which projects a facet question is about: the ones in ALL or in ANY of a set of categories. A filter
+ * without categories matches every project, either way.
+ */
+public class CategoryFilter
+{
+	//keeps the IN list of the SQL and the number of bitmaps combined in memory small
+	public static final int MAX_CATEGORIES = 64;
+
+	private static final CategoryFilter EVERY_PROJECT = new CategoryFilter(new int[0], CategoryMatch.ANY);
+
+	//sorted, no duplicates
+	private final int[] categoryIds;
+	private final CategoryMatch match;
+
+	private CategoryFilter(int[] categoryIds, CategoryMatch match)
+	{
+		this.categoryIds = categoryIds;
+		this.match = match;
+	}
+
+	public static CategoryFilter everyProject()
+	{
+		return EVERY_PROJECT;
+	}
+
+	public static CategoryFilter inAll(Collection<Integer> categoryIds)
+	{
+		return of(categoryIds, CategoryMatch.ALL);
+	}
+
+	public static CategoryFilter inAny(Collection<Integer> categoryIds)
+	{
+		return of(categoryIds, CategoryMatch.ANY);
+	}
+
+	public static CategoryFilter of(Collection<Integer> categoryIds, CategoryMatch match)
+	{
+		int[] distinct = categoryIds.stream().filter(Objects::nonNull).mapToInt(Integer::intValue).sorted().distinct().toArray();
+
+		if(distinct.length > MAX_CATEGORIES)
+		{
+			throw new IllegalArgumentException("A category filter takes at most " + MAX_CATEGORIES + " categories, got " + distinct.length);
+		}
+		return distinct.length == 0 ? EVERY_PROJECT : new CategoryFilter(distinct, Objects.requireNonNull(match));
+	}
+
+	public boolean isEveryProject()
+	{
+		return categoryIds.length == 0;
+	}
+
+	public int size()
+	{
+		return categoryIds.length;
+	}
+
+	//in ascending order
+	public int getCategoryId(int index)
+	{
+		return categoryIds[index];
+	}
+
+	public List<Integer> getCategoryIds()
+	{
+		return Arrays.stream(categoryIds).boxed().collect(Collectors.toList());
+	}
+
+	public CategoryMatch getMatch()
+	{
+		return match;
+	}
+
+	@Override
+	public String toString()
+	{
+		return isEveryProject() ? "every project" : match + " of " + Arrays.toString(categoryIds);
+	}
+}
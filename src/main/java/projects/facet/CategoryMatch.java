@@ -0,0 +1,11 @@
+package projects.facet;
+
+//how a CategoryFilter with several categories matches a project
+public enum CategoryMatch
+{
+	//the project is in every one of the categories
+	ALL,
+
+	//the project is in at least one of them
+	ANY
+}
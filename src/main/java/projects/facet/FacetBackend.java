@@ -0,0 +1,47 @@
+package projects.facet;
+
+import java.util.List;
+import java.util.Set;
+
+import projects.entity.Project;
+import projects.entity.ProjectField;
+
+/*
+ * Where ProjectService sends category facet questions: how many of the projects matching a filter are in
+ * each category, and which projects match it, a keyset page at a time.
+ *
+ * Like a SearchBackend, one that keeps its own index (keepsOwnIndex) is told about every project write made
+ * through ProjectService and is rebuilt from the database whenever the tables are changed some other way.
+ */
+public interface FacetBackend
+{
+	//per category, how many of the projects matching filter are in it, most first. Categories with none are left out
+	List<CategoryCount> countCategories(CategoryFilter filter);
+
+	//the matching projects with IDs above afterProjectId, in ID order
+	FacetPage listProjects(CategoryFilter filter, int afterProjectId, int limit);
+
+	default boolean keepsOwnIndex()
+	{
+		return false;
+	}
+
+	//empties the index before a rebuild
+	default void clear()
+	{
+	}
+
+	//a new project, or one being reindexed, with its categories
+	default void projectAdded(Project project)
+	{
+	}
+
+	//only the changed detail fields of project hold new values, its categories are unchanged
+	default void projectChanged(Project project, Set<ProjectField> changed)
+	{
+	}
+
+	default void projectRemoved(Integer projectId)
+	{
+	}
+}
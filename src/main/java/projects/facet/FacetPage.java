@@ -0,0 +1,55 @@
+package projects.facet;
+
+import java.util.List;
+
+import projects.entity.ProjectSummary;
+
+//one keyset page of the projects matching a CategoryFilter, in project ID order
+public class FacetPage
+{
+	private final CategoryFilter filter;
+	private final int afterProjectId;
+	private final List<ProjectSummary> projects;
+	private final boolean hasMore;
+
+	public FacetPage(CategoryFilter filter, int afterProjectId, List<ProjectSummary> projects, boolean hasMore)
+	{
+		this.filter = filter;
+		this.afterProjectId = afterProjectId;
+		this.projects = List.copyOf(projects);
+		this.hasMore = hasMore;
+	}
+
+	public CategoryFilter getFilter()
+	{
+		return filter;
+	}
+
+	public int getAfterProjectId()
+	{
+		return afterProjectId;
+	}
+
+	public List<ProjectSummary> getProjects()
+	{
+		return projects;
+	}
+
+	//whether a page after getNextAfterProjectId() would have anything in it
+	public boolean hasMore()
+	{
+		return hasMore;
+	}
+
+	//pass this as afterProjectId for the next page
+	public int getNextAfterProjectId()
+	{
+		return projects.isEmpty() ? afterProjectId : projects.get(projects.size() - 1).getProjectId();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "filter=" + filter + ", afterProjectId=" + afterProjectId + ", projects=" + projects.size() + ", hasMore=" + hasMore;
+	}
+}
@@ -0,0 +1,170 @@
+package projects.facet;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import projects.dao.DbConnection;
+import projects.entity.ProjectSummary;
+import projects.exception.DbException;
+import projects.metrics.MetricsRegistry;
+import projects.metrics.OperationMetrics;
+import projects.metrics.QueryTimer;
+import provided.util.DaoBase;
+
+/*
+ * Answers facet questions with GROUP BY queries on project_category, served by the
+ * project_category_category_idx (category_id, project_id) index from V2__child_table_indexes.sql. A
+ * filter on one category is a range of that index already in project ID order, several categories are
+ * grouped per project and ALL keeps the projects found once for each of them.
+ */
+public class SqlFacetBackend extends DaoBase implements FacetBackend
+{
+	private static final OperationMetrics COUNT_CATEGORIES = MetricsRegistry.getDefault().operation("countCategoriesSql");
+	private static final OperationMetrics LIST_PROJECTS = MetricsRegistry.getDefault().operation("listProjectsByCategorySql");
+
+	// @formatter:off
+	private static final String COUNT_ALL_SQL = ""
+	+ "SELECT c.category_id, c.category_name, f.project_count "
+	+ "FROM (SELECT category_id, COUNT(*) AS project_count FROM project_category GROUP BY category_id) f "
+	+ "JOIN category c USING (category_id) "
+	+ "ORDER BY f.project_count DESC, c.category_id";
+
+	private static final String LIST_ALL_SQL = ""
+	+ "SELECT project_id, project_name "
+	+ "FROM project "
+	+ "WHERE project_id > ? "
+	+ "ORDER BY project_id "
+	+ "LIMIT ?";
+	// @formatter:on
+
+	//statement text per match and category count, so the statement cache sees the same String every time
+	private static final Map<String, String> COUNT_SQL = new ConcurrentHashMap<>();
+	private static final Map<String, String> LIST_SQL = new ConcurrentHashMap<>();
+
+	@Override
+	public List<CategoryCount> countCategories(CategoryFilter filter)
+	{
+		String sql = filter.isEveryProject() ? COUNT_ALL_SQL
+				: COUNT_SQL.computeIfAbsent(filter.getMatch() + ":" + filter.size(), key -> countSql(filter));
+
+		try(QueryTimer timer = COUNT_CATEGORIES.start(); Connection conn = timer.acquired(DbConnection.getReadConnection()))
+		{
+			try(PreparedStatement stat = conn.prepareStatement(sql))
+			{
+				setCategoryParameters(stat, filter);
+
+				try(ResultSet rs = timer.executed(stat.executeQuery()))
+				{
+					List<CategoryCount> counts = new ArrayList<>();
+
+					while(rs.next())
+					{
+						counts.add(new CategoryCount(rs.getInt("category_id"), rs.getString("category_name"), rs.getInt("project_count")));
+					}
+
+					timer.mapped(counts.size());
+					timer.completed();
+					return counts;
+				}
+			}
+		}
+		catch(SQLException e)
+		{
+			System.out.println("Failed to count categories for " + filter);
+			throw new DbException(e);
+		}
+	}
+
+	@Override
+	public FacetPage listProjects(CategoryFilter filter, int afterProjectId, int limit)
+	{
+		String sql = filter.isEveryProject() ? LIST_ALL_SQL
+				: LIST_SQL.computeIfAbsent(filter.getMatch() + ":" + filter.size(), key -> listSql(filter));
+
+		try(QueryTimer timer = LIST_PROJECTS.start(); Connection conn = timer.acquired(DbConnection.getReadConnection()))
+		{
+			try(PreparedStatement stat = conn.prepareStatement(sql))
+			{
+				int parameter = setCategoryParameters(stat, filter);
+				setParameter(stat, parameter, afterProjectId, Integer.class);
+
+				//one extra row says whether there is another page without counting every match
+				setParameter(stat, parameter + 1, limit + 1, Integer.class);
+
+				try(ResultSet rs = timer.executed(stat.executeQuery()))
+				{
+					List<ProjectSummary> projects = new ArrayList<>(limit);
+					boolean hasMore = false;
+
+					while(rs.next())
+					{
+						if(projects.size() == limit)
+						{
+							hasMore = true;
+							break;
+						}
+
+						ProjectSummary project = new ProjectSummary();
+						project.setProjectId(rs.getInt("project_id"));
+						project.setProjectName(rs.getString("project_name"));
+						projects.add(project);
+					}
+
+					timer.mapped(projects.size());
+					timer.completed();
+					return new FacetPage(filter, afterProjectId, projects, hasMore);
+				}
+			}
+		}
+		catch(SQLException e)
+		{
+			System.out.println("Failed to list projects for " + filter);
+			throw new DbException(e);
+		}
+	}
+
+	//binds the filter's category IDs from 1 and returns the next parameter index
+	private int setCategoryParameters(PreparedStatement stat, CategoryFilter filter) throws SQLException
+	{
+		for(int index = 0; index < filter.size(); index++)
+		{
+			setParameter(stat, index + 1, filter.getCategoryId(index), Integer.class);
+		}
+		return filter.size() + 1;
+	}
+
+	//the IDs of the projects matching the filter, ALL needs a link to each of its categories
+	private static String matchingProjectsSql(CategoryFilter filter, String extraCondition)
+	{
+		String sql = "SELECT project_id FROM project_category "
+				+ "WHERE category_id IN (" + String.join(", ", Collections.nCopies(filter.size(), "?")) + ")" + extraCondition + " "
+				+ "GROUP BY project_id";
+
+		return filter.getMatch() == CategoryMatch.ALL && filter.size() > 1 ? sql + " HAVING COUNT(*) = " + filter.size() : sql;
+	}
+
+	private static String countSql(CategoryFilter filter)
+	{
+		return "SELECT c.category_id, c.category_name, f.project_count "
+				+ "FROM (SELECT pc.category_id, COUNT(*) AS project_count FROM project_category pc "
+				+ "JOIN (" + matchingProjectsSql(filter, "") + ") m USING (project_id) GROUP BY pc.category_id) f "
+				+ "JOIN category c USING (category_id) "
+				+ "ORDER BY f.project_count DESC, c.category_id";
+	}
+
+	//the page is cut from the project IDs before project is joined, so only the page's rows are read from it
+	private static String listSql(CategoryFilter filter)
+	{
+		return "SELECT p.project_id, p.project_name "
+				+ "FROM (" + matchingProjectsSql(filter, " AND project_id > ?") + " ORDER BY project_id LIMIT ?) m "
+				+ "JOIN project p USING (project_id) "
+				+ "ORDER BY p.project_id";
+	}
+}
@@ -0,0 +1,71 @@
+package projects.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+//one JSON object keyed by operation name, latencies in microseconds
+public class JsonMetricsExporter implements MetricsExporter
+{
+	@Override
+	public void export(Map<String, OperationMetrics> operations, Writer out) throws IOException
+	{
+		out.write("{");
+		String separator = "";
+
+		for(OperationMetrics operation : operations.values())
+		{
+			out.write(separator);
+			out.write("\n  " + quote(operation.getName()) + ": {\"calls\": " + operation.getCalls()
+					+ ", \"errors\": " + operation.getErrors() + ", \"rows\": " + operation.getRows());
+			writePhase(out, "total", operation.getTotal());
+			writePhase(out, "acquire", operation.getAcquire());
+			writePhase(out, "execute", operation.getExecute());
+			writePhase(out, "mapping", operation.getMapping());
+			out.write("}");
+			separator = ",";
+		}
+
+		out.write("\n}\n");
+	}
+
+	@Override
+	public String getContentType()
+	{
+		return "application/json";
+	}
+
+	private void writePhase(Writer out, String phase, LatencyHistogram histogram) throws IOException
+	{
+		out.write(",\n    " + quote(phase) + ": {\"count\": " + histogram.getCount()
+				+ ", \"meanMicros\": " + TimeUnit.NANOSECONDS.toMicros(histogram.getMeanNanos())
+				+ ", \"p50Micros\": " + histogram.getMicrosAtPercentile(50)
+				+ ", \"p90Micros\": " + histogram.getMicrosAtPercentile(90)
+				+ ", \"p99Micros\": " + histogram.getMicrosAtPercentile(99)
+				+ ", \"p999Micros\": " + histogram.getMicrosAtPercentile(99.9)
+				+ ", \"maxMicros\": " + TimeUnit.NANOSECONDS.toMicros(histogram.getMaxNanos()) + "}");
+	}
+
+	private String quote(String value)
+	{
+		StringBuilder quoted = new StringBuilder("\"");
+
+		for(char ch : value.toCharArray())
+		{
+			if(ch == '"' || ch == '\\')
+			{
+				quoted.append('\\').append(ch);
+			}
+			else if(ch < 0x20)
+			{
+				quoted.append(String.format("\\u%04x", (int)ch));
+			}
+			else
+			{
+				quoted.append(ch);
+			}
+		}
+		return quoted.append('"').toString();
+	}
+}
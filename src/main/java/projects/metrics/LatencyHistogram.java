@@ -0,0 +1,122 @@
+package projects.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Lock free latency histogram with HdrHistogram style buckets: values below 128 ns get a bucket each, above
+ * that every power of two is split into 64 linear buckets. Any recorded value lands in a bucket less
+ * than 1.6% wide, so percentiles stay accurate from microseconds to minutes in a fixed 19 KB.
+ */
+public class LatencyHistogram
+{
+	private static final int SUB_BUCKET_BITS = 7;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+
+	//about 73 minutes, anything slower is counted as this
+	private static final long MAX_TRACKABLE_NANOS = (1L << 42) - 1;
+	private static final int BUCKET_COUNT = indexFor(MAX_TRACKABLE_NANOS) + 1;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong totalNanos = new AtomicLong();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	public void record(long nanos)
+	{
+		long value = Math.min(Math.max(nanos, 0), MAX_TRACKABLE_NANOS);
+
+		counts.incrementAndGet(indexFor(value));
+		count.incrementAndGet();
+		totalNanos.addAndGet(value);
+		maxNanos.accumulateAndGet(value, Math::max);
+	}
+
+	public long getCount()
+	{
+		return count.get();
+	}
+
+	public long getMeanNanos()
+	{
+		long recorded = count.get();
+		return recorded == 0 ? 0 : totalNanos.get() / recorded;
+	}
+
+	public long getMaxNanos()
+	{
+		return maxNanos.get();
+	}
+
+	//upper edge of the bucket holding the given percentile, 0 when nothing was recorded
+	public long getNanosAtPercentile(double percentile)
+	{
+		long recorded = count.get();
+
+		if(recorded == 0)
+		{
+			return 0;
+		}
+
+		long target = Math.max(1, (long)Math.ceil(percentile / 100.0 * recorded));
+		long seen = 0;
+
+		for(int index = 0; index < BUCKET_COUNT; index++)
+		{
+			seen += counts.get(index);
+
+			if(seen >= target)
+			{
+				return Math.min(highestValueAt(index), maxNanos.get());
+			}
+		}
+
+		//records that landed while we were walking the buckets
+		return maxNanos.get();
+	}
+
+	public long getMicrosAtPercentile(double percentile)
+	{
+		return TimeUnit.NANOSECONDS.toMicros(getNanosAtPercentile(percentile));
+	}
+
+	public void reset()
+	{
+		for(int index = 0; index < BUCKET_COUNT; index++)
+		{
+			counts.set(index, 0);
+		}
+		count.set(0);
+		totalNanos.set(0);
+		maxNanos.set(0);
+	}
+
+	private static int indexFor(long value)
+	{
+		if(value < SUB_BUCKET_COUNT)
+		{
+			return (int)value;
+		}
+
+		//shift so the value keeps 7 significant bits, the top one is always set
+		int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+		int subBucket = (int)(value >>> shift);
+
+		return SUB_BUCKET_COUNT + (shift - 1) * HALF_SUB_BUCKET_COUNT + (subBucket - HALF_SUB_BUCKET_COUNT);
+	}
+
+	private static long highestValueAt(int index)
+	{
+		if(index < SUB_BUCKET_COUNT)
+		{
+			return index;
+		}
+
+		int shift = (index - SUB_BUCKET_COUNT) / HALF_SUB_BUCKET_COUNT + 1;
+		long subBucket = (index - SUB_BUCKET_COUNT) % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+
+		return ((subBucket + 1) << shift) - 1;
+	}
+}
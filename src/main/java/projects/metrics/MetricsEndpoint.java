@@ -0,0 +1,63 @@
+package projects.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/*
+ * Serves the registry over HTTP on the loopback interface only: /metrics as text, /metrics.json as JSON.
+ * Uses the JDK's built in server, so there's nothing extra to deploy.
+ */
+public class MetricsEndpoint implements AutoCloseable
+{
+	private final HttpServer server;
+
+	public MetricsEndpoint(MetricsRegistry registry, int port) throws IOException
+	{
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/metrics.json", exchange -> respond(exchange, registry, new JsonMetricsExporter()));
+		server.createContext("/metrics", exchange -> respond(exchange, registry, new TextMetricsExporter()));
+
+		//the default executor runs requests on the server thread, which is plenty for a scrape now and then
+		server.start();
+	}
+
+	public int getPort()
+	{
+		return server.getAddress().getPort();
+	}
+
+	@Override
+	public void close()
+	{
+		server.stop(0);
+	}
+
+	private void respond(HttpExchange exchange, MetricsRegistry registry, MetricsExporter exporter) throws IOException
+	{
+		try
+		{
+			StringWriter body = new StringWriter();
+			registry.export(exporter, body);
+			byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+
+			exchange.getResponseHeaders().set("Content-Type", exporter.getContentType());
+			exchange.sendResponseHeaders(200, bytes.length);
+
+			try(OutputStream out = exchange.getResponseBody())
+			{
+				out.write(bytes);
+			}
+		}
+		finally
+		{
+			exchange.close();
+		}
+	}
+}
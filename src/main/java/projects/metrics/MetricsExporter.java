@@ -0,0 +1,13 @@
+package projects.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+//turns a snapshot of the registry into some output format
+public interface MetricsExporter
+{
+	void export(Map<String, OperationMetrics> operations, Writer out) throws IOException;
+
+	String getContentType();
+}
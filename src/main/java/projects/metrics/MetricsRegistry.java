@@ -0,0 +1,70 @@
+package projects.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+ * Named operation metrics. The DAOs record into the default registry, anything that wants the numbers
+ * out (the console app, the HTTP endpoint, a benchmark) reads them from there through an exporter.
+ */
+public class MetricsRegistry
+{
+	private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+	private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+	public static MetricsRegistry getDefault()
+	{
+		return DEFAULT;
+	}
+
+	//the same instance every time for a name, so callers can look it up once and keep it
+	public OperationMetrics operation(String name)
+	{
+		return operations.computeIfAbsent(name, OperationMetrics::new);
+	}
+
+	//sorted by name
+	public Map<String, OperationMetrics> getOperations()
+	{
+		return new TreeMap<>(operations);
+	}
+
+	//clears the numbers but keeps the operations, so references held by the DAOs stay valid
+	public void reset()
+	{
+		operations.values().forEach(OperationMetrics::reset);
+	}
+
+	//operations that haven't been called yet are left out
+	public void export(MetricsExporter exporter, Writer out) throws IOException
+	{
+		Map<String, OperationMetrics> called = getOperations();
+		called.values().removeIf(operation -> operation.getCalls() == 0);
+
+		exporter.export(called, out);
+		out.flush();
+	}
+
+	//writes to a temp file and moves it over the target, so a reader never sees half a dump
+	public void dumpTo(Path file, MetricsExporter exporter) throws IOException
+	{
+		Path absolute = file.toAbsolutePath();
+		Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+
+		try(Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8))
+		{
+			export(exporter, out);
+		}
+
+		Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+}
@@ -0,0 +1,97 @@
+package projects.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Everything recorded for one DAO operation. total is the whole call, the three phases split it into
+ * waiting for a pooled connection, running statements on the server and turning rows into entities.
+ */
+public class OperationMetrics
+{
+	private final String name;
+	private final LatencyHistogram total = new LatencyHistogram();
+	private final LatencyHistogram acquire = new LatencyHistogram();
+	private final LatencyHistogram execute = new LatencyHistogram();
+	private final LatencyHistogram mapping = new LatencyHistogram();
+	private final AtomicLong rows = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+
+	OperationMetrics(String name)
+	{
+		this.name = name;
+	}
+
+	//times one call, use it in a try-with-resources around the whole operation
+	public QueryTimer start()
+	{
+		return new QueryTimer(this);
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public long getCalls()
+	{
+		return total.getCount();
+	}
+
+	public LatencyHistogram getTotal()
+	{
+		return total;
+	}
+
+	public LatencyHistogram getAcquire()
+	{
+		return acquire;
+	}
+
+	public LatencyHistogram getExecute()
+	{
+		return execute;
+	}
+
+	public LatencyHistogram getMapping()
+	{
+		return mapping;
+	}
+
+	public long getRows()
+	{
+		return rows.get();
+	}
+
+	public long getErrors()
+	{
+		return errors.get();
+	}
+
+	void record(long totalNanos, long executeNanos, long mappingNanos, long rowCount, boolean failed)
+	{
+		total.record(totalNanos);
+		execute.record(executeNanos);
+		mapping.record(mappingNanos);
+		rows.addAndGet(rowCount);
+
+		if(failed)
+		{
+			errors.incrementAndGet();
+		}
+	}
+
+	void recordAcquire(long nanos)
+	{
+		acquire.record(nanos);
+	}
+
+	void reset()
+	{
+		total.reset();
+		acquire.reset();
+		execute.reset();
+		mapping.reset();
+		rows.set(0);
+		errors.set(0);
+	}
+}
@@ -0,0 +1,75 @@
+package projects.metrics;
+
+import java.sql.Connection;
+
+/*
+ * Times one DAO call. The phase methods pass their argument straight through so they can wrap the call
+ * being timed, e.g. timer.acquired(DbConnection.getConnection()) or timer.executed(stat.executeQuery()).
+ * Each one charges the time since the previous mark to its phase. A timer closed without completed()
+ * counts as an error.
+ *
+ * Not thread safe, a timer belongs to the thread running the call.
+ */
+public class QueryTimer implements AutoCloseable
+{
+	private final OperationMetrics metrics;
+	private final long start;
+	private long mark;
+	private long executeNanos;
+	private long mappingNanos;
+	private long rows;
+	private boolean completed;
+	private boolean closed;
+
+	QueryTimer(OperationMetrics metrics)
+	{
+		this.metrics = metrics;
+		this.start = System.nanoTime();
+		this.mark = start;
+	}
+
+	public Connection acquired(Connection conn)
+	{
+		long now = System.nanoTime();
+		metrics.recordAcquire(now - mark);
+		mark = now;
+		return conn;
+	}
+
+	public <T> T executed(T result)
+	{
+		long now = System.nanoTime();
+		executeNanos += now - mark;
+		mark = now;
+		return result;
+	}
+
+	public void mapped(int rowCount)
+	{
+		long now = System.nanoTime();
+		mappingNanos += now - mark;
+		rows += rowCount;
+		mark = now;
+	}
+
+	//rows written by an insert, update or delete
+	public void affected(int rowCount)
+	{
+		rows += rowCount;
+	}
+
+	public void completed()
+	{
+		completed = true;
+	}
+
+	@Override
+	public void close()
+	{
+		if(!closed)
+		{
+			closed = true;
+			metrics.record(System.nanoTime() - start, executeNanos, mappingNanos, rows, !completed);
+		}
+	}
+}
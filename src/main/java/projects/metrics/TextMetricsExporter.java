@@ -0,0 +1,38 @@
+package projects.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+//plain text for the console or a log file, all latencies in microseconds
+public class TextMetricsExporter implements MetricsExporter
+{
+	@Override
+	public void export(Map<String, OperationMetrics> operations, Writer out) throws IOException
+	{
+		for(OperationMetrics operation : operations.values())
+		{
+			out.write(operation.getName() + ": calls=" + operation.getCalls() + ", errors=" + operation.getErrors()
+					+ ", rows=" + operation.getRows() + "\n");
+			writePhase(out, "total", operation.getTotal());
+			writePhase(out, "acquire", operation.getAcquire());
+			writePhase(out, "execute", operation.getExecute());
+			writePhase(out, "mapping", operation.getMapping());
+		}
+	}
+
+	@Override
+	public String getContentType()
+	{
+		return "text/plain; charset=utf-8";
+	}
+
+	private void writePhase(Writer out, String phase, LatencyHistogram histogram) throws IOException
+	{
+		out.write(String.format("  %-8s mean=%dus p50=%dus p90=%dus p99=%dus p99.9=%dus max=%dus%n", phase,
+				TimeUnit.NANOSECONDS.toMicros(histogram.getMeanNanos()), histogram.getMicrosAtPercentile(50),
+				histogram.getMicrosAtPercentile(90), histogram.getMicrosAtPercentile(99),
+				histogram.getMicrosAtPercentile(99.9), TimeUnit.NANOSECONDS.toMicros(histogram.getMaxNanos())));
+	}
+}
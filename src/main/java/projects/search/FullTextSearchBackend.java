@@ -0,0 +1,97 @@
+package projects.search;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import projects.dao.DbConnection;
+import projects.exception.DbException;
+import projects.metrics.MetricsRegistry;
+import projects.metrics.OperationMetrics;
+import projects.metrics.QueryTimer;
+import provided.util.DaoBase;
+
+/*
+ * Searches with the FULLTEXT indexes from V4__fulltext_search.sql in natural language mode. The database
+ * keeps the indexes up to date on every write, so nothing has to be kept in sync here, but a row is only
+ * searchable once its transaction commits.
+ *
+ * Each table is matched on its own index and the scores are added up per project, a match in the name
+ * or notes counts NAME_NOTES_WEIGHT times a match in one step. Words shorter than the server's
+ * innodb_ft_min_token_size (3 by default) and its stopwords are ignored.
+ */
+public class FullTextSearchBackend extends DaoBase implements SearchBackend
+{
+	private static final OperationMetrics SEARCH = MetricsRegistry.getDefault().operation("searchFullText");
+
+	private static final double NAME_NOTES_WEIGHT = 3.0;
+	private static final double MATERIAL_WEIGHT = 1.5;
+
+	// @formatter:off 
+	private static final String SEARCH_SQL = ""
+	+ "SELECT p.project_id, p.project_name, SUM(hits.score) AS score "
+	+ "FROM ("
+	+ "SELECT project_id, MATCH(project_name, notes) AGAINST (? IN NATURAL LANGUAGE MODE) * " + NAME_NOTES_WEIGHT + " AS score "
+	+ "FROM project WHERE MATCH(project_name, notes) AGAINST (? IN NATURAL LANGUAGE MODE) "
+	+ "UNION ALL "
+	+ "SELECT project_id, MATCH(step_text) AGAINST (? IN NATURAL LANGUAGE MODE) "
+	+ "FROM step WHERE MATCH(step_text) AGAINST (? IN NATURAL LANGUAGE MODE) "
+	+ "UNION ALL "
+	+ "SELECT project_id, MATCH(material_name) AGAINST (? IN NATURAL LANGUAGE MODE) * " + MATERIAL_WEIGHT + " "
+	+ "FROM material WHERE MATCH(material_name) AGAINST (? IN NATURAL LANGUAGE MODE)"
+	+ ") hits "
+	+ "JOIN project p USING (project_id) "
+	+ "GROUP BY p.project_id, p.project_name "
+	+ "ORDER BY score DESC, p.project_id "
+	+ "LIMIT ? OFFSET ?";
+	// @formatter:on
+
+	private static final int QUERY_PARAMETERS = 6;
+
+	@Override
+	public SearchPage search(String query, int offset, int limit)
+	{
+		try(QueryTimer timer = SEARCH.start(); Connection conn = timer.acquired(DbConnection.getReadConnection()))
+		{
+			try(PreparedStatement stat = conn.prepareStatement(SEARCH_SQL))
+			{
+				for(int index = 1; index <= QUERY_PARAMETERS; index++)
+				{
+					setParameter(stat, index, query, String.class);
+				}
+
+				//one extra row says whether there is another page without counting every match
+				setParameter(stat, QUERY_PARAMETERS + 1, limit + 1, Integer.class);
+				setParameter(stat, QUERY_PARAMETERS + 2, offset, Integer.class);
+
+				try(ResultSet rs = timer.executed(stat.executeQuery()))
+				{
+					List<SearchHit> hits = new ArrayList<>(limit);
+					boolean hasMore = false;
+
+					while(rs.next())
+					{
+						if(hits.size() == limit)
+						{
+							hasMore = true;
+							break;
+						}
+						hits.add(new SearchHit(rs.getInt("project_id"), rs.getString("project_name"), rs.getDouble("score")));
+					}
+
+					timer.mapped(hits.size());
+					timer.completed();
+					return new SearchPage(query, offset, hits, hasMore);
+				}
+			}
+		}
+		catch(SQLException e)
+		{
+			System.out.println("Failed to search projects for '" + query + "'");
+			throw new DbException(e);
+		}
+	}
+}
@@ -0,0 +1,366 @@
+package projects.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.ProjectField;
+import projects.entity.Step;
+import projects.metrics.MetricsRegistry;
+import projects.metrics.OperationMetrics;
+import projects.metrics.QueryTimer;
+import projects.util.IntFloatMap;
+import projects.util.IntObjectMap;
+
+/*
+ * Inverted index held in the JVM: every word points at the projects containing it, with a weight for how
+ * often and where it appears. A search adds up weight * idf over the query words, so projects matching
+ * more of the words, and rarer ones, come first. Nothing touches the database at query time.
+ *
+ * ProjectService keeps it in step with its own writes and rebuilds it from the database on start and
+ * after scripts or migrations. Writes made outside this JVM aren't seen until the next rebuild.
+ * Searches share a read lock, writes take the write lock.
+ */
+public class InMemorySearchBackend implements SearchBackend
+{
+	private static final OperationMetrics SEARCH = MetricsRegistry.getDefault().operation("searchInMemory");
+
+	//same balance as FullTextSearchBackend, a name word counts for three step words
+	private static final float NAME_WEIGHT = 3.0f;
+	private static final float NOTES_WEIGHT = 1.0f;
+	private static final float STEP_WEIGHT = 1.0f;
+	private static final float MATERIAL_WEIGHT = 1.5f;
+
+	//best first, ties go to the lower project ID like the ORDER BY in FullTextSearchBackend
+	private static final Comparator<SearchHit> RANKING = Comparator.comparingDouble(SearchHit::getScore).reversed()
+			.thenComparingInt(SearchHit::getProjectId);
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	//guarded by lock
+	private final Map<String, Term> dictionary = new HashMap<>();
+	private final IntObjectMap<Document> documents = new IntObjectMap<>();
+
+	@Override
+	public boolean keepsOwnIndex()
+	{
+		return true;
+	}
+
+	@Override
+	public SearchPage search(String query, int offset, int limit)
+	{
+		try(QueryTimer timer = SEARCH.start())
+		{
+			IntFloatMap scores = new IntFloatMap();
+			List<SearchHit> ranked;
+			int matches;
+
+			lock.readLock().lock();
+			try
+			{
+				double projectCount = documents.size();
+
+				for(String word : Tokenizer.distinctTerms(query))
+				{
+					Term term = dictionary.get(word);
+
+					if(term != null)
+					{
+						float idf = (float)Math.log(1 + projectCount / term.postings.size());
+						term.postings.forEach((projectId, weight) -> scores.add(projectId, weight * idf));
+					}
+				}
+
+				timer.executed(null);
+				matches = scores.size();
+				ranked = topHits(scores, offset + limit);
+			}
+			finally
+			{
+				lock.readLock().unlock();
+			}
+
+			List<SearchHit> hits = offset >= ranked.size() ? List.of() : ranked.subList(offset, ranked.size());
+			timer.mapped(hits.size());
+			timer.completed();
+			return new SearchPage(query, offset, hits, matches > offset + limit);
+		}
+	}
+
+	@Override
+	public void clear()
+	{
+		lock.writeLock().lock();
+		try
+		{
+			dictionary.clear();
+			documents.clear();
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void projectAdded(Project project)
+	{
+		//tokenized before taking the lock, searches only wait for the postings to change
+		Map<String, Float> name = new HashMap<>();
+		Map<String, Float> notes = new HashMap<>();
+		Map<String, Float> children = new HashMap<>();
+
+		Tokenizer.addTerms(project.getProjectName(), NAME_WEIGHT, name);
+		Tokenizer.addTerms(project.getNotes(), NOTES_WEIGHT, notes);
+
+		for(Step step : project.getSteps())
+		{
+			Tokenizer.addTerms(step.getStepText(), STEP_WEIGHT, children);
+		}
+
+		for(Material material : project.getMaterials())
+		{
+			Tokenizer.addTerms(material.getMaterialName(), MATERIAL_WEIGHT, children);
+		}
+
+		lock.writeLock().lock();
+		try
+		{
+			int projectId = project.getProjectId();
+			Document old = documents.get(projectId);
+
+			if(old != null)
+			{
+				unpost(projectId, old);
+			}
+
+			Document document = new Document(project.getProjectName(), part(name), part(notes), part(children));
+			documents.put(projectId, document);
+			post(projectId, document);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void projectChanged(Project project, Set<ProjectField> changed)
+	{
+		boolean nameChanged = changed.contains(ProjectField.PROJECT_NAME);
+		boolean notesChanged = changed.contains(ProjectField.NOTES);
+
+		if(!nameChanged && !notesChanged)
+		{
+			return;
+		}
+
+		Map<String, Float> name = new HashMap<>();
+		Map<String, Float> notes = new HashMap<>();
+		Tokenizer.addTerms(project.getProjectName(), NAME_WEIGHT, name);
+		Tokenizer.addTerms(project.getNotes(), NOTES_WEIGHT, notes);
+
+		lock.writeLock().lock();
+		try
+		{
+			int projectId = project.getProjectId();
+			Document old = documents.get(projectId);
+
+			//not indexed, e.g. an update queued for a project that was never there
+			if(old == null)
+			{
+				return;
+			}
+
+			unpost(projectId, old);
+
+			Document document = new Document(nameChanged ? project.getProjectName() : old.projectName,
+					nameChanged ? part(name) : old.name, notesChanged ? part(notes) : old.notes, old.children);
+			documents.put(projectId, document);
+			post(projectId, document);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void projectRemoved(Integer projectId)
+	{
+		lock.writeLock().lock();
+		try
+		{
+			Document old = documents.get(projectId);
+
+			if(old != null)
+			{
+				unpost(projectId, old);
+				documents.remove(projectId);
+			}
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	public int getProjectCount()
+	{
+		lock.readLock().lock();
+		try
+		{
+			return documents.size();
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	//distinct words across every indexed project
+	public int getWordCount()
+	{
+		lock.readLock().lock();
+		try
+		{
+			return dictionary.size();
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	//the best count hits in order, kept in a small heap rather than sorting every match
+	private List<SearchHit> topHits(IntFloatMap scores, int count)
+	{
+		PriorityQueue<SearchHit> best = new PriorityQueue<>(count + 1, RANKING.reversed());
+
+		scores.forEach((projectId, score) ->
+		{
+			if(best.size() == count)
+			{
+				SearchHit worst = best.peek();
+
+				if(score < worst.getScore() || (score == worst.getScore() && projectId > worst.getProjectId()))
+				{
+					return;
+				}
+			}
+
+			best.add(new SearchHit(projectId, documents.get(projectId).projectName, score));
+
+			if(best.size() > count)
+			{
+				best.poll();
+			}
+		});
+
+		List<SearchHit> ranked = new ArrayList<>(best);
+		ranked.sort(RANKING);
+		return ranked;
+	}
+
+	//a project's weight for a word is damped, ten mentions aren't worth ten times one
+	private void post(int projectId, Document document)
+	{
+		Map<String, Float> totals = new HashMap<>();
+		document.forEachTerm((word, raw) -> totals.merge(word, raw, Float::sum));
+
+		totals.forEach((word, raw) -> dictionary.computeIfAbsent(word, Term::new).postings.put(projectId,
+				(float)(1 + Math.log(Math.max(1, raw)))));
+	}
+
+	private void unpost(int projectId, Document document)
+	{
+		document.forEachTerm((word, raw) ->
+		{
+			Term term = dictionary.get(word);
+
+			if(term != null && term.postings.remove(projectId) && term.postings.isEmpty())
+			{
+				dictionary.remove(word);
+			}
+		});
+	}
+
+	//words reuse the dictionary's String where there is one, so each word is held once however many projects use it
+	private Part part(Map<String, Float> terms)
+	{
+		String[] words = new String[terms.size()];
+		float[] weights = new float[terms.size()];
+		int index = 0;
+
+		for(Map.Entry<String, Float> entry : terms.entrySet())
+		{
+			Term existing = dictionary.get(entry.getKey());
+			words[index] = existing == null ? entry.getKey() : existing.word;
+			weights[index++] = entry.getValue();
+		}
+		return new Part(words, weights);
+	}
+
+	private static class Term
+	{
+		private final String word;
+
+		//project ID to damped weight
+		private final IntFloatMap postings = new IntFloatMap();
+
+		Term(String word)
+		{
+			this.word = word;
+		}
+	}
+
+	//the words of one field (or of all the children) of a project with their undamped weights
+	private static class Part
+	{
+		private final String[] words;
+		private final float[] weights;
+
+		Part(String[] words, float[] weights)
+		{
+			this.words = words;
+			this.weights = weights;
+		}
+	}
+
+	//what the index remembers about a project, enough to take its postings back out and to name it in a hit
+	private static class Document
+	{
+		private final String projectName;
+		private final Part name;
+		private final Part notes;
+		private final Part children;
+
+		Document(String projectName, Part name, Part notes, Part children)
+		{
+			this.projectName = projectName;
+			this.name = name;
+			this.notes = notes;
+			this.children = children;
+		}
+
+		void forEachTerm(BiConsumer<String, Float> action)
+		{
+			for(Part part : List.of(name, notes, children))
+			{
+				for(int index = 0; index < part.words.length; index++)
+				{
+					action.accept(part.words[index], part.weights[index]);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package projects.search;
+
+import java.util.Set;
+
+import projects.entity.Project;
+import projects.entity.ProjectField;
+
+/*
+ * Where ProjectService sends project searches. A query is a handful of words matched against project names,
+ * notes, step text and material names, and the projects come back best match first.
+ *
+ * A backend that keeps its own index (keepsOwnIndex) is told about every project write made through
+ * ProjectService and is rebuilt from the database whenever the tables are changed some other way. A
+ * backend that searches the database directly ignores the write hooks.
+ */
+public interface SearchBackend
+{
+	//ranked matches for the words in query, skipping the first offset of them
+	SearchPage search(String query, int offset, int limit);
+
+	default boolean keepsOwnIndex()
+	{
+		return false;
+	}
+
+	//empties the index before a rebuild
+	default void clear()
+	{
+	}
+
+	//a new project, or one being reindexed, with whatever children it has
+	default void projectAdded(Project project)
+	{
+	}
+
+	//only the changed detail fields of project hold new values, children are unchanged
+	default void projectChanged(Project project, Set<ProjectField> changed)
+	{
+	}
+
+	default void projectRemoved(Integer projectId)
+	{
+	}
+}
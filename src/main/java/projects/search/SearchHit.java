@@ -0,0 +1,37 @@
+package projects.search;
+
+public class SearchHit
+{
+	private final int projectId;
+	private final String projectName;
+	private final double score;
+
+	public SearchHit(int projectId, String projectName, double score)
+	{
+		this.projectId = projectId;
+		this.projectName = projectName;
+		this.score = score;
+	}
+
+	public int getProjectId()
+	{
+		return projectId;
+	}
+
+	public String getProjectName()
+	{
+		return projectName;
+	}
+
+	//only comparable between hits of the same search on the same backend
+	public double getScore()
+	{
+		return score;
+	}
+
+	@Override
+	public String toString()
+	{
+		return projectId + ": " + projectName + " (" + String.format("%.3f", score) + ")";
+	}
+}
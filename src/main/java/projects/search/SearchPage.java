@@ -0,0 +1,51 @@
+package projects.search;
+
+import java.util.List;
+
+public class SearchPage
+{
+	private final String query;
+	private final int offset;
+	private final List<SearchHit> hits;
+	private final boolean hasMore;
+
+	public SearchPage(String query, int offset, List<SearchHit> hits, boolean hasMore)
+	{
+		this.query = query;
+		this.offset = offset;
+		this.hits = List.copyOf(hits);
+		this.hasMore = hasMore;
+	}
+
+	public String getQuery()
+	{
+		return query;
+	}
+
+	public int getOffset()
+	{
+		return offset;
+	}
+
+	public List<SearchHit> getHits()
+	{
+		return hits;
+	}
+
+	//whether a page starting at getNextOffset() would have anything in it
+	public boolean hasMore()
+	{
+		return hasMore;
+	}
+
+	public int getNextOffset()
+	{
+		return offset + hits.size();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "query=" + query + ", offset=" + offset + ", hits=" + hits.size() + ", hasMore=" + hasMore;
+	}
+}
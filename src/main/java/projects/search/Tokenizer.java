@@ -0,0 +1,71 @@
+package projects.search;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/*
+ * Splits text into lower case words for the in-memory index: runs of letters and digits, at least
+ * MIN_LENGTH long and not one of a few very common English words that would match nearly everything.
+ */
+final class Tokenizer
+{
+	private static final int MIN_LENGTH = 2;
+
+	private static final Set<String> STOPWORDS = Set.of("an", "and", "are", "as", "at", "be", "by", "for", "from", "in",
+			"is", "it", "of", "on", "or", "the", "this", "to", "with");
+
+	private Tokenizer()
+	{
+	}
+
+	//adds weight to the entry for every word in text, once per occurrence
+	static void addTerms(String text, float weight, Map<String, Float> terms)
+	{
+		forEachTerm(text, term -> terms.merge(term, weight, Float::sum));
+	}
+
+	//the distinct words of text in the order they first appear
+	static Set<String> distinctTerms(String text)
+	{
+		Set<String> terms = new LinkedHashSet<>();
+		forEachTerm(text, terms::add);
+		return terms;
+	}
+
+	private static void forEachTerm(String text, Consumer<String> action)
+	{
+		if(text == null)
+		{
+			return;
+		}
+
+		int length = text.length();
+		int start = -1;
+
+		for(int index = 0; index <= length; index++)
+		{
+			boolean wordChar = index < length && Character.isLetterOrDigit(text.charAt(index));
+
+			if(wordChar && start < 0)
+			{
+				start = index;
+			}
+			else if(!wordChar && start >= 0)
+			{
+				if(index - start >= MIN_LENGTH)
+				{
+					String term = text.substring(start, index).toLowerCase(Locale.ROOT);
+
+					if(!STOPWORDS.contains(term))
+					{
+						action.accept(term);
+					}
+				}
+				start = -1;
+			}
+		}
+	}
+}
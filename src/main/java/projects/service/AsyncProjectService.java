@@ -0,0 +1,266 @@
+package projects.service;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import projects.dao.DbConnection;
+import projects.entity.Project;
+import projects.entity.ProjectSummary;
+import projects.exception.DbException;
+
+/*
+ * CompletableFuture front end for ProjectService, for callers that want thousands of lookups in flight
+ * without a platform thread for each. Calls run on virtual threads when the JVM has them (Java 21+, found
+ * through reflection so this still builds for 11), otherwise on a fixed pool as big as the connection pool.
+ *
+ * A semaphore sized to the connection pool lets only that many calls touch the database at once, the rest
+ * wait for a permit instead of piling up on the pool's borrow timeout. Every future gets a timeout, and
+ * cancelling a future (or it timing out) interrupts the call if it is still waiting or running.
+ *
+ * A call reads from where the calling thread would, so a caller that just wrote on the primary sees its
+ * write from the async calls it makes next.
+ */
+public class AsyncProjectService implements AutoCloseable
+{
+	private static final long DEFAULT_TIMEOUT_MILLIS = 10_000;
+
+	//tasks the fallback pool will queue before rejecting, so a flood of calls fails fast instead of eating the heap
+	private static final int FALLBACK_QUEUE_SIZE = 10_000;
+
+	private final ProjectService projectService;
+	private final ExecutorService executor;
+	private final boolean virtualThreads;
+	private final Semaphore permits;
+	private final long timeoutMillis;
+
+	public AsyncProjectService(ProjectService projectService)
+	{
+		this(projectService, DbConnection.getMaxPoolSize(), DEFAULT_TIMEOUT_MILLIS);
+	}
+
+	public AsyncProjectService(ProjectService projectService, int maxConcurrent, long timeoutMillis)
+	{
+		if(maxConcurrent < 1)
+		{
+			throw new IllegalArgumentException("maxConcurrent must be at least 1, was " + maxConcurrent);
+		}
+
+		this.projectService = projectService;
+		this.permits = new Semaphore(maxConcurrent, true);
+		this.timeoutMillis = timeoutMillis;
+
+		ExecutorService virtual = newVirtualThreadExecutor();
+		this.virtualThreads = virtual != null;
+		this.executor = virtualThreads ? virtual : newBoundedExecutor(maxConcurrent);
+	}
+
+	public CompletableFuture<Project> grabSpecificProject(Integer projectId)
+	{
+		return submit(() -> projectService.grabSpecificProject(projectId));
+	}
+
+	/*
+	 * All of the projects in the order asked for. The lookups run in parallel, but they succeed or fail
+	 * together: the first one to fail cancels the others, and cancelling the returned future cancels them all.
+	 */
+	public CompletableFuture<List<Project>> grabSpecificProjects(Collection<Integer> projectIds)
+	{
+		List<CompletableFuture<Project>> lookups = new ArrayList<>(projectIds.size());
+		CompletableFuture<List<Project>> all = new CompletableFuture<>();
+
+		for(Integer projectId : projectIds)
+		{
+			lookups.add(grabSpecificProject(projectId));
+		}
+
+		//registered once the list is complete, so an early failure still sees every sibling.
+		//the first failure wins, the cancellations it causes come after it and are ignored
+		for(CompletableFuture<Project> lookup : lookups)
+		{
+			lookup.whenComplete((project, failure) ->
+			{
+				if(failure != null)
+				{
+					all.completeExceptionally(failure instanceof CompletionException ? failure.getCause() : failure);
+				}
+			});
+		}
+
+		CompletableFuture.allOf(lookups.toArray(new CompletableFuture<?>[0])).thenRun(() ->
+		{
+			List<Project> projects = new ArrayList<>(lookups.size());
+			lookups.forEach(lookup -> projects.add(lookup.join()));
+			all.complete(projects);
+		});
+
+		all.whenComplete((projects, failure) ->
+		{
+			if(failure != null)
+			{
+				lookups.forEach(lookup -> lookup.cancel(true));
+			}
+		});
+
+		return all;
+	}
+
+	public CompletableFuture<List<ProjectSummary>> grabProjectSummaryPage(int afterProjectId, int limit)
+	{
+		return submit(() -> projectService.grabProjectSummaryPage(afterProjectId, limit));
+	}
+
+	public CompletableFuture<Project> addProject(Project project)
+	{
+		return submit(() -> projectService.addProject(project));
+	}
+
+	public CompletableFuture<Void> modifyProjectDetails(Project project)
+	{
+		return submit(() ->
+		{
+			projectService.modifyProjectDetails(project);
+			return null;
+		});
+	}
+
+	public CompletableFuture<Void> removeProject(Project project)
+	{
+		return submit(() ->
+		{
+			projectService.removeProject(project);
+			return null;
+		});
+	}
+
+	public CompletableFuture<Integer> removeProjects(Collection<Integer> projectIds)
+	{
+		return submit(() -> projectService.removeProjects(projectIds));
+	}
+
+	public boolean usesVirtualThreads()
+	{
+		return virtualThreads;
+	}
+
+	//calls waiting for a database permit right now
+	public int getQueueLength()
+	{
+		return permits.getQueueLength();
+	}
+
+	//stops taking calls and interrupts the ones still running
+	@Override
+	public void close()
+	{
+		executor.shutdownNow();
+	}
+
+	private <T> CompletableFuture<T> submit(Supplier<T> work)
+	{
+		Supplier<T> call = DbConnection.withCallersRouting(work);
+		CompletableFuture<T> result = new CompletableFuture<>();
+		Future<?> task;
+
+		try
+		{
+			task = executor.submit(() ->
+			{
+				if(result.isDone())
+				{
+					//cancelled or timed out while it was queued
+					return;
+				}
+
+				try
+				{
+					permits.acquire();
+				}
+				catch(InterruptedException e)
+				{
+					result.completeExceptionally(new CancellationException("Interrupted waiting for a database permit"));
+					return;
+				}
+
+				try
+				{
+					result.complete(call.get());
+				}
+				catch(Throwable e)
+				{
+					result.completeExceptionally(e);
+				}
+				finally
+				{
+					permits.release();
+				}
+			});
+		}
+		catch(Exception e)
+		{
+			//RejectedExecutionException once the fallback queue is full or after close()
+			result.completeExceptionally(new DbException("Too many queued project calls, try again later", e));
+			return result;
+		}
+
+		//a cancel or timeout on the future reaches the thread doing the work
+		result.whenComplete((value, failure) ->
+		{
+			if(isCancelOrTimeout(failure))
+			{
+				task.cancel(true);
+			}
+		});
+
+		return result.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private static boolean isCancelOrTimeout(Throwable failure)
+	{
+		Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+		return cause instanceof CancellationException || cause instanceof TimeoutException;
+	}
+
+	//Executors.newVirtualThreadPerTaskExecutor() on Java 21+, null on anything older
+	private static ExecutorService newVirtualThreadExecutor()
+	{
+		try
+		{
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService)factory.invoke(null);
+		}
+		catch(ReflectiveOperationException e)
+		{
+			return null;
+		}
+	}
+
+	private static ExecutorService newBoundedExecutor(int threads)
+	{
+		AtomicInteger count = new AtomicInteger();
+
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(FALLBACK_QUEUE_SIZE), runnable ->
+				{
+					Thread thread = new Thread(runnable, "async-project-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+}
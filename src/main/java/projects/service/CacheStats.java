@@ -0,0 +1,57 @@
+package projects.service;
+
+public class CacheStats
+{
+	private final long hits;
+	private final long misses;
+	private final long evictions;
+	private final int size;
+	private final long weight;
+
+	CacheStats(long hits, long misses, long evictions, int size, long weight)
+	{
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.size = size;
+		this.weight = weight;
+	}
+
+	public long getHits()
+	{
+		return hits;
+	}
+
+	public long getMisses()
+	{
+		return misses;
+	}
+
+	public long getEvictions()
+	{
+		return evictions;
+	}
+
+	public int getSize()
+	{
+		return size;
+	}
+
+	public long getWeight()
+	{
+		return weight;
+	}
+
+	public double getHitRate()
+	{
+		long requests = hits + misses;
+		return requests == 0 ? 0.0 : (double)hits / requests;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "hits=" + hits + ", misses=" + misses + ", hitRate=" + String.format("%.3f", getHitRate())
+				+ ", evictions=" + evictions + ", size=" + size + ", weight=" + weight;
+	}
+}
@@ -0,0 +1,63 @@
+package projects.service;
+
+public class CategoryCleanupConfig
+{
+	//a run every 10 minutes, 100 categories per transaction with a pause between them
+	private long intervalMillis = 10 * 60_000;
+	private int batchSize = 100;
+	private long pauseMillis = 200;
+
+	//a run stops after this many batches and picks up the rest next time, so one run never hogs the database
+	private int maxBatchesPerRun = 50;
+
+	//-Dprojects.categoryCleanup.intervalMillis, .batchSize, .pauseMillis and .maxBatchesPerRun override the defaults
+	public static CategoryCleanupConfig fromSystemProperties()
+	{
+		CategoryCleanupConfig config = new CategoryCleanupConfig();
+		config.setIntervalMillis(Long.getLong("projects.categoryCleanup.intervalMillis", config.getIntervalMillis()));
+		config.setBatchSize(Integer.getInteger("projects.categoryCleanup.batchSize", config.getBatchSize()));
+		config.setPauseMillis(Long.getLong("projects.categoryCleanup.pauseMillis", config.getPauseMillis()));
+		config.setMaxBatchesPerRun(Integer.getInteger("projects.categoryCleanup.maxBatchesPerRun", config.getMaxBatchesPerRun()));
+		return config;
+	}
+
+	public long getIntervalMillis()
+	{
+		return intervalMillis;
+	}
+
+	public void setIntervalMillis(long intervalMillis)
+	{
+		this.intervalMillis = intervalMillis;
+	}
+
+	public int getBatchSize()
+	{
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize)
+	{
+		this.batchSize = batchSize;
+	}
+
+	public long getPauseMillis()
+	{
+		return pauseMillis;
+	}
+
+	public void setPauseMillis(long pauseMillis)
+	{
+		this.pauseMillis = pauseMillis;
+	}
+
+	public int getMaxBatchesPerRun()
+	{
+		return maxBatchesPerRun;
+	}
+
+	public void setMaxBatchesPerRun(int maxBatchesPerRun)
+	{
+		this.maxBatchesPerRun = maxBatchesPerRun;
+	}
+}
@@ -0,0 +1,123 @@
+package projects.service;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import projects.dao.CategoryDao;
+import projects.dao.CategoryDao.OrphanBatch;
+import projects.metrics.MetricsRegistry;
+import projects.metrics.OperationMetrics;
+import projects.metrics.QueryTimer;
+
+/*
+ * Background job that deletes categories no project links to any more, off the path of the user's deletes.
+ * Each run walks the category table in batches of batchSize with a pause between them, and stops after
+ * maxBatchesPerRun so a big backlog is worked off over several runs instead of in one long burst.
+ *
+ * Each run shows up in the metrics as categoryCleanupRun (rows = categories deleted) and each batch as
+ * deleteOrphanCategories.
+ *
+ * Bulk inserts that link categories by name look them up with a share lock for each chunk and hold it until
+ * their transaction ends, so a batch deleting one of them waits for that insert and then finds the category
+ * linked. An insert running longer than the lock wait timeout fails the batch instead, and the next run tries
+ * again. A category deleted before an insert looks it up is created again. Only a project that links to a
+ * category by ID can still lose it to a batch, its insert then fails on the foreign key.
+ */
+class CategoryCleanupJob implements AutoCloseable
+{
+	private static final OperationMetrics RUNS = MetricsRegistry.getDefault().operation("categoryCleanupRun");
+
+	private final CategoryDao categoryDao;
+	private final CategoryCleanupConfig config;
+	private final ScheduledExecutorService scheduler;
+
+	CategoryCleanupJob(CategoryDao categoryDao, CategoryCleanupConfig config)
+	{
+		if(config.getBatchSize() < 1 || config.getMaxBatchesPerRun() < 1 || config.getIntervalMillis() < 1)
+		{
+			throw new IllegalArgumentException("Category cleanup needs a batch size, batches per run and interval of at least 1");
+		}
+
+		this.categoryDao = categoryDao;
+		this.config = config;
+
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable ->
+		{
+			Thread thread = new Thread(runnable, "category-cleanup");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(this::runQuietly, config.getIntervalMillis(), config.getIntervalMillis(),
+				TimeUnit.MILLISECONDS);
+	}
+
+	//one run now on the calling thread, returns how many categories it deleted
+	synchronized int runOnce()
+	{
+		try(QueryTimer timer = RUNS.start())
+		{
+			int afterCategoryId = 0;
+			int deleted = 0;
+
+			for(int batches = 0; batches < config.getMaxBatchesPerRun(); batches++)
+			{
+				if(batches > 0 && !pause())
+				{
+					break;
+				}
+
+				OrphanBatch batch = categoryDao.deleteOrphanCategories(afterCategoryId, config.getBatchSize());
+				deleted += batch.getDeleted();
+
+				if(batch.getFound() < config.getBatchSize())
+				{
+					break;
+				}
+				afterCategoryId = batch.getLastCategoryId();
+			}
+
+			timer.affected(deleted);
+			timer.completed();
+
+			if(deleted > 0)
+			{
+				System.out.println("Category cleanup deleted " + deleted + " unused categories.");
+			}
+			return deleted;
+		}
+	}
+
+	@Override
+	public void close()
+	{
+		scheduler.shutdownNow();
+	}
+
+	private void runQuietly()
+	{
+		try
+		{
+			runOnce();
+		}
+		catch(RuntimeException e)
+		{
+			System.out.println("Category cleanup failed, will retry next run: " + e);
+		}
+	}
+
+	//false when interrupted, i.e. the job is being closed
+	private boolean pause()
+	{
+		try
+		{
+			Thread.sleep(config.getPauseMillis());
+			return true;
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package projects.service;
+
+import projects.entity.Project;
+
+/*
+ * Decides what to do when modifyProjectDetails loses a race. It gets the project as it is in the database
+ * now and the update that was rejected, and returns the details to write instead or null to give up and
+ * let the OptimisticLockException through. Only the changed fields of what it returns are written, against
+ * current's version.
+ */
+@FunctionalInterface
+public interface ConflictResolver
+{
+	Project resolve(Project current, Project attempted);
+
+	//always fails, the behavior without a resolver
+	static ConflictResolver giveUp()
+	{
+		return (current, attempted) -> null;
+	}
+
+	//writes the attempted details anyway, last writer wins but only after seeing what it overwrites
+	static ConflictResolver keepAttempted()
+	{
+		return (current, attempted) -> attempted;
+	}
+}
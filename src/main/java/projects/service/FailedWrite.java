@@ -0,0 +1,50 @@
+package projects.service;
+
+import projects.entity.Project;
+
+//a queued detail update the write-behind queue gave up on, kept so it can be looked at or made again by hand
+public class FailedWrite
+{
+	private final Project update;
+	private final RuntimeException failure;
+	private final int attempts;
+	private final long failedAt;
+
+	FailedWrite(Project update, RuntimeException failure, int attempts, long failedAt)
+	{
+		this.update = update;
+		this.failure = failure;
+		this.attempts = attempts;
+		this.failedAt = failedAt;
+	}
+
+	//the project ID, the version it was read with and the changed fields with their values
+	public Project getUpdate()
+	{
+		return update;
+	}
+
+	//what the last attempt failed with
+	public RuntimeException getFailure()
+	{
+		return failure;
+	}
+
+	public int getAttempts()
+	{
+		return attempts;
+	}
+
+	//System.currentTimeMillis() when the queue gave up
+	public long getFailedAt()
+	{
+		return failedAt;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "projectId=" + update.getProjectId() + ", version=" + update.getVersion() + ", fields=" + update.getDirtyFields() + ", attempts=" + attempts
+				+ ", failure=" + failure;
+	}
+}
@@ -0,0 +1,204 @@
+package projects.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import projects.dao.MigrationDao;
+import projects.entity.SchemaMigration;
+import projects.exception.DbException;
+import projects.util.SqlScriptReader;
+
+/*
+ * Brings the schema up to date from the versioned scripts in db/migration. Applied versions are kept in
+ * the schema_history table with a checksum, so a start only runs the scripts that are new, and a script
+ * that was edited after it ran (or a database that is ahead of the app) stops the start instead of
+ * being silently ignored.
+ */
+public class MigrationService
+{
+	private static final String MIGRATION_DIR = "db/migration/";
+	private static final String INDEX_FILE = MIGRATION_DIR + "migrations.txt";
+	private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+	//how long a start waits for another process that is migrating the same database
+	private static final int LOCK_TIMEOUT_SECONDS = Integer.getInteger("projects.migration.lockTimeoutSeconds", 300);
+
+	private MigrationDao migrationDao = new MigrationDao();
+
+	/*
+	 * Returns how many migrations were applied, 0 when the schema was already current. The history is read
+	 * and the scripts applied under the migration lock, so instances starting together don't both run a
+	 * script. The ones that waited find it in the history afterwards.
+	 */
+	public int migrate()
+	{
+		List<SchemaMigration> available = findMigrations();
+
+		MigrationDao.MigrationLock lock = migrationDao.lockMigrations(LOCK_TIMEOUT_SECONDS);
+
+		try
+		{
+			List<SchemaMigration> pending = validate(available, migrationDao.grabAppliedMigrations());
+
+			for(SchemaMigration migration : pending)
+			{
+				try(SqlScriptReader script = openScript(migration.getScript()))
+				{
+					migrationDao.applyMigration(migration, script);
+				}
+				catch(IOException e)
+				{
+					throw new DbException(e);
+				}
+
+				System.out.println("Applied migration " + migration.getScript());
+			}
+
+			return pending.size();
+		}
+		finally
+		{
+			lock.close();
+		}
+	}
+
+	//every migration named in the index file, in version order, with its checksum
+	public List<SchemaMigration> findMigrations()
+	{
+		List<SchemaMigration> migrations = new ArrayList<>();
+
+		try(BufferedReader index = new BufferedReader(new InputStreamReader(openResource(INDEX_FILE), StandardCharsets.UTF_8)))
+		{
+			String line;
+
+			while((line = index.readLine()) != null)
+			{
+				line = line.trim();
+
+				if(line.isEmpty() || line.startsWith("#"))
+				{
+					continue;
+				}
+
+				Matcher matcher = SCRIPT_NAME.matcher(line);
+
+				if(!matcher.matches())
+				{
+					throw new DbException("Migration script " + line + " is not named V<version>__<description>.sql");
+				}
+
+				SchemaMigration migration = new SchemaMigration();
+				migration.setVersion(Integer.valueOf(matcher.group(1)));
+				migration.setDescription(matcher.group(2).replace('_', ' '));
+				migration.setScript(line);
+				migration.setChecksum(checksum(line));
+				migrations.add(migration);
+			}
+		}
+		catch(IOException e)
+		{
+			throw new DbException(e);
+		}
+
+		migrations.sort(Comparator.comparing(SchemaMigration::getVersion));
+
+		for(int i = 1; i < migrations.size(); i++)
+		{
+			if(migrations.get(i).getVersion().equals(migrations.get(i - 1).getVersion()))
+			{
+				throw new DbException("Two migration scripts have version " + migrations.get(i).getVersion());
+			}
+		}
+
+		return migrations;
+	}
+
+	//checks the history against the scripts and returns the ones still to run
+	private List<SchemaMigration> validate(List<SchemaMigration> available, List<SchemaMigration> applied)
+	{
+		Map<Integer, SchemaMigration> byVersion = new HashMap<>();
+		available.forEach(migration -> byVersion.put(migration.getVersion(), migration));
+
+		int latestApplied = 0;
+
+		for(SchemaMigration done : applied)
+		{
+			SchemaMigration script = byVersion.remove(done.getVersion());
+
+			if(script == null)
+			{
+				throw new DbException("Database has migration " + done.getScript() + " applied, but the app doesn't have that script."
+						+ " Is the app older than the database?");
+			}
+
+			if(!script.getChecksum().equals(done.getChecksum()))
+			{
+				throw new DbException("Migration " + script.getScript() + " was changed after it was applied"
+						+ " (checksum " + done.getChecksum() + " in the database, " + script.getChecksum() + " now)."
+						+ " Put the change in a new migration instead.");
+			}
+
+			latestApplied = Math.max(latestApplied, done.getVersion());
+		}
+
+		List<SchemaMigration> pending = new ArrayList<>(byVersion.values());
+		pending.sort(Comparator.comparing(SchemaMigration::getVersion));
+
+		if(!pending.isEmpty() && pending.get(0).getVersion() < latestApplied)
+		{
+			throw new DbException("Migration " + pending.get(0).getScript() + " is older than V" + latestApplied
+					+ ", which is already applied");
+		}
+
+		return pending;
+	}
+
+	//CRC32 over the parsed statements, so reformatting or editing comments doesn't count as a change
+	private long checksum(String script) throws IOException
+	{
+		CRC32 crc = new CRC32();
+
+		try(SqlScriptReader reader = openScript(script))
+		{
+			String sql;
+
+			while((sql = reader.nextStatement()) != null)
+			{
+				crc.update(sql.getBytes(StandardCharsets.UTF_8));
+				crc.update(';');
+			}
+		}
+
+		return crc.getValue();
+	}
+
+	private SqlScriptReader openScript(String script)
+	{
+		Reader reader = new InputStreamReader(openResource(MIGRATION_DIR + script), StandardCharsets.UTF_8);
+		return new SqlScriptReader(reader);
+	}
+
+	private InputStream openResource(String name)
+	{
+		InputStream in = getClass().getClassLoader().getResourceAsStream(name);
+
+		if(in == null)
+		{
+			throw new DbException("Could not find " + name + " on the classpath");
+		}
+
+		return in;
+	}
+}
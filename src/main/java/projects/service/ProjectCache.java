@@ -0,0 +1,237 @@
+package projects.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+import projects.dao.CategoryDictionary;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+
+/*
+ * Bounded LRU cache of fully loaded projects keyed by project ID. Entries expire after a TTL and the cache
+ * is bounded by total weight rather than entry count, so one project with thousands of steps counts for
+ * more than one with none. Every write in ProjectService goes through invalidate.
+ *
+ * The cache keeps its own copy of each project and hands out copies, so a caller changing the project it
+ * got never changes what the next caller gets. Categories from CategoryDictionary can't be changed and
+ * are shared rather than copied.
+ */
+public class ProjectCache
+{
+	//a project costs one unit plus one per child row it holds
+	public static final ToIntFunction<Project> ROW_WEIGHER = project ->
+		1 + project.getMaterials().size() + project.getSteps().size() + project.getCategories().size();
+
+	private final long maxWeight;
+	private final long ttlMillis;
+	private final ToIntFunction<Project> weigher;
+
+	//access ordered, so iteration starts at the least recently used entry
+	private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+	private long totalWeight;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	//bumped on every invalidation so a load that raced with a write doesn't put stale data back
+	private long invalidations;
+
+	public ProjectCache(long maxWeight, long ttlMillis)
+	{
+		this(maxWeight, ttlMillis, ROW_WEIGHER);
+	}
+
+	public ProjectCache(long maxWeight, long ttlMillis, ToIntFunction<Project> weigher)
+	{
+		this.maxWeight = maxWeight;
+		this.ttlMillis = ttlMillis;
+		this.weigher = weigher;
+	}
+
+	//returns the cached project or loads it, a loader returning null means the project doesn't exist
+	public Project get(int projectId, IntFunction<Project> loader)
+	{
+		long invalidationsAtStart;
+
+		synchronized(this)
+		{
+			Project cached = lookup(projectId);
+
+			if(Objects.nonNull(cached))
+			{
+				hits++;
+				return copyOf(cached);
+			}
+			misses++;
+			invalidationsAtStart = invalidations;
+		}
+
+		//loads outside the lock so one slow query doesn't hold up every other reader
+		Project loaded = loader.apply(projectId);
+
+		if(Objects.nonNull(loaded))
+		{
+			put(loaded, invalidationsAtStart);
+		}
+		return loaded;
+	}
+
+	//taken before loading projects to put(), so a load that raced with a write is dropped like in get()
+	public synchronized long getGeneration()
+	{
+		return invalidations;
+	}
+
+	//caches a copy of a project loaded after getGeneration() returned loadedAtGeneration, unless something was invalidated since
+	public void put(Project project, long loadedAtGeneration)
+	{
+		if(Objects.isNull(project.getProjectId()))
+		{
+			return;
+		}
+
+		Project copy = copyOf(project);
+
+		synchronized(this)
+		{
+			if(invalidations == loadedAtGeneration)
+			{
+				store(copy.getProjectId(), copy);
+			}
+		}
+	}
+
+	public synchronized void invalidate(Integer projectId)
+	{
+		invalidations++;
+		Entry removed = entries.remove(projectId);
+
+		if(Objects.nonNull(removed))
+		{
+			totalWeight -= removed.weight;
+		}
+	}
+
+	public synchronized void invalidateAll()
+	{
+		invalidations++;
+		entries.clear();
+		totalWeight = 0;
+	}
+
+	public synchronized CacheStats getStats()
+	{
+		return new CacheStats(hits, misses, evictions, entries.size(), totalWeight);
+	}
+
+	private Project lookup(int projectId)
+	{
+		Entry entry = entries.get(projectId);
+
+		if(Objects.isNull(entry))
+		{
+			return null;
+		}
+
+		if(System.currentTimeMillis() > entry.expiresAt)
+		{
+			entries.remove(projectId);
+			totalWeight -= entry.weight;
+			return null;
+		}
+		return entry.project;
+	}
+
+	private void store(int projectId, Project project)
+	{
+		int weight = weigher.applyAsInt(project);
+
+		//something heavier than the whole cache would just evict everything else and then itself
+		if(weight > maxWeight)
+		{
+			return;
+		}
+
+		Entry previous = entries.put(projectId, new Entry(project, weight, System.currentTimeMillis() + ttlMillis));
+
+		if(Objects.nonNull(previous))
+		{
+			totalWeight -= previous.weight;
+		}
+		totalWeight += weight;
+
+		Iterator<Map.Entry<Integer, Entry>> leastRecent = entries.entrySet().iterator();
+
+		while(totalWeight > maxWeight && leastRecent.hasNext())
+		{
+			Entry evicted = leastRecent.next().getValue();
+			leastRecent.remove();
+			totalWeight -= evicted.weight;
+			evictions++;
+		}
+	}
+
+	static Project copyOf(Project project)
+	{
+		Project copy = WriteBehindQueue.copyDetails(project);
+		copy.setVersion(project.getVersion());
+
+		for(Material material : project.getMaterials())
+		{
+			Material materialCopy = new Material();
+			materialCopy.setMaterialId(material.getMaterialId());
+			materialCopy.setProjectId(material.getProjectId());
+			materialCopy.setMaterialName(material.getMaterialName());
+			materialCopy.setNumRequired(material.getNumRequired());
+			materialCopy.setCost(material.getCost());
+			copy.getMaterials().add(materialCopy);
+		}
+
+		for(Step step : project.getSteps())
+		{
+			Step stepCopy = new Step();
+			stepCopy.setStepId(step.getStepId());
+			stepCopy.setProjectId(step.getProjectId());
+			stepCopy.setStepText(step.getStepText());
+			stepCopy.setStepOrder(step.getStepOrder());
+			copy.getSteps().add(stepCopy);
+		}
+
+		for(Category category : project.getCategories())
+		{
+			if(CategoryDictionary.isShared(category))
+			{
+				copy.getCategories().add(category);
+			}
+			else
+			{
+				Category categoryCopy = new Category();
+				categoryCopy.setCategoryId(category.getCategoryId());
+				categoryCopy.setCategoryName(category.getCategoryName());
+				copy.getCategories().add(categoryCopy);
+			}
+		}
+		return copy;
+	}
+
+	private static class Entry
+	{
+		private final Project project;
+		private final int weight;
+		private final long expiresAt;
+
+		Entry(Project project, int weight, long expiresAt)
+		{
+			this.project = project;
+			this.weight = weight;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
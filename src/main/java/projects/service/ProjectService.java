@@ -1,24 +1,97 @@
 package projects.service;
 
-import java.net.URISyntaxException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import projects.dao.CategoryDao;
+import projects.dao.CategoryDictionary;
+import projects.dao.DbConnection;
 import projects.dao.ProjectDao;
+import projects.dao.ProjectLoadStrategy;
+import projects.dao.QueryAdvisor;
+import projects.dao.RollupDao;
+import projects.entity.PortfolioTotal;
 import projects.entity.Project;
+import projects.entity.ProjectField;
+import projects.entity.ProjectRollup;
+import projects.entity.ProjectSummary;
 import projects.exception.DbException;
+import projects.exception.OptimisticLockException;
+import projects.facet.CategoryCount;
+import projects.facet.CategoryFilter;
+import projects.facet.FacetBackend;
+import projects.facet.FacetPage;
+import projects.facet.SqlFacetBackend;
+import projects.search.FullTextSearchBackend;
+import projects.search.SearchBackend;
+import projects.search.SearchPage;
+import projects.util.SqlScriptReader;
 
 
 public class ProjectService 
 {
 	private static final String SCHEMA_FILE = "project_schema.sql";
+	private static final int STREAM_FETCH_SIZE = 500;
+	private static final int BULK_CHUNK_SIZE = 1000;
+	private static final int SCRIPT_BATCH_SIZE = 500;
+	
+	//roughly 10k child rows worth of projects, each kept for 5 minutes
+	private static final long CACHE_MAX_WEIGHT = 10_000;
+	private static final long CACHE_TTL_MILLIS = 5 * 60_000;
+	
+	//how long a caller waits for room in a full write-behind queue before the update fails
+	private static final long WRITE_BEHIND_OFFER_TIMEOUT_MILLIS = 5_000;
+	
+	//updates write-behind gave up on that getFailedWrites() still returns, the oldest go first
+	private static final int MAX_FAILED_WRITES = 1000;
+	
+	//times a conflicting update is merged and tried again before the conflict goes to the caller
+	private static final int MAX_CONFLICT_RETRIES = 3;
+	
+	//deepest a search can page, ranking more than this many hits costs more than anyone will scroll
+	private static final int MAX_SEARCH_WINDOW = 10_000;
+	private static final int INDEX_REBUILD_PAGE_SIZE = 1000;
 	
 	private ProjectDao projectDao = new ProjectDao();
+	private ProjectCache projectCache = new ProjectCache(CACHE_MAX_WEIGHT, CACHE_TTL_MILLIS);
+	private MigrationService migrationService = new MigrationService();
+	private QueryAdvisor queryAdvisor = new QueryAdvisor();
+	private RollupDao rollupDao = new RollupDao();
+	
+	//database FULLTEXT by default, see setSearchBackend
+	private volatile SearchBackend searchBackend = new FullTextSearchBackend();
+	
+	//GROUP BY on project_category by default, see setFacetBackend
+	private volatile FacetBackend facetBackend = new SqlFacetBackend();
+	
+	//null until enableWriteBehind, detail updates then go straight to the database
+	private volatile WriteBehindQueue writeBehind;
+	
+	//guarded by itself, newest last
+	private final Deque<FailedWrite> failedWrites = new ArrayDeque<>();
+	
+	private CategoryDao categoryDao = new CategoryDao();
+	
+	//null until startCategoryCleanup
+	private CategoryCleanupJob categoryCleanup;
 	
 	
 	/*public static void main(String[] args)
@@ -26,109 +99,379 @@ public class ProjectService
 		new ProjectService().createAndPopulateTables();
 	}*/
 	
+	//drops everything and rebuilds it, the schema file only sets up the baseline so the migrations run after it
 	public void createAndPopulateTables()
 	{
 		loadFromFile(SCHEMA_FILE);
+		migrationService.migrate();
+		allWritten();
+		CategoryDictionary.getDefault().invalidate();
+		rebuildIndexes();
+	}
+	
+	//applies only the migrations the database doesn't have yet, safe to call on every start
+	public int migrateSchema()
+	{
+		int applied = migrationService.migrate();
+		
+		if(applied > 0)
+		{
+			allWritten();
+			CategoryDictionary.getDefault().invalidate();
+			rebuildIndexes();
+		}
+		return applied;
+	}
+
+	//runs a script from the file system, e.g. a large seed dump that isn't bundled with the app
+	public void runScript(Path scriptFile)
+	{
+		try(Reader reader = Files.newBufferedReader(scriptFile, StandardCharsets.UTF_8))
+		{
+			runScript(reader);
+		} catch (IOException e) 
+		{
+			throw new DbException(e);
+		}
+		//the script may have written materials and steps without touching their rollup rows
+		rollupDao.rebuildRollups();
+		allWritten();
+		CategoryDictionary.getDefault().invalidate();
+		rebuildIndexes();
 	}
 
 	private void loadFromFile(String fileName) 
 	{
-		String content = readFileContent(fileName);
-		List<String> sqlStatements = convertContentToSqlStatements(content);
+		//read as a stream so this also works when the schema file is inside a jar, not just on the file system
+		InputStream in = getClass().getClassLoader().getResourceAsStream(fileName);
 		
-		sqlStatements.forEach(Line -> System.out.println(Line));
+		if(in == null)
+		{
+			throw new DbException("Could not find " + fileName + " on the classpath");
+		}
 		
-		projectDao.executeBatch(sqlStatements);
-	
+		try(Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8))
+		{
+			runScript(reader);
+		} catch (IOException e) 
+		{
+			throw new DbException(e);
+		}
 	}
 	
-	private List<String> convertContentToSqlStatements(String content) 
+	//statements are parsed one at a time and sent in batches of SCRIPT_BATCH_SIZE, so memory stays flat however big the script is
+	//each batch commits on its own, a failure part way leaves the earlier batches applied
+	private void runScript(Reader reader) throws IOException
 	{
-		content = removeComments(content);
+		List<String> batch = new ArrayList<>(SCRIPT_BATCH_SIZE);
+		int count = 0;
 		
-		content = replaceWhitespaceWithSpace(content);
+		try(SqlScriptReader script = new SqlScriptReader(reader))
+		{
+			String sql;
+			
+			while((sql = script.nextStatement()) != null)
+			{
+				batch.add(sql);
+				count++;
+				
+				if(batch.size() == SCRIPT_BATCH_SIZE)
+				{
+					projectDao.executeBatch(batch);
+					batch.clear();
+				}
+			}
+		}
 		
-		return extractLinesFromContent(content);
+		if(!batch.isEmpty())
+		{
+			projectDao.executeBatch(batch);
+		}
 		
+		System.out.println("Ran " + count + " SQL statements.");
 	}
 
-	private List<String> extractLinesFromContent(String content) 
+	
+	/*
+	 * Switches search to another backend. One that keeps its own index is filled from the database before
+	 * this returns, after that it follows the writes made through this service.
+	 */
+	public void setSearchBackend(SearchBackend backend)
+	{
+		searchBackend = backend;
+		rebuildIndexes();
+	}
+	
+	//same for category facets
+	public void setFacetBackend(FacetBackend backend)
+	{
+		facetBackend = backend;
+		rebuildIndexes();
+	}
+	
+	//refills the in-process search and facet indexes from the database in one pass, for after the tables were changed behind this service's back
+	public void rebuildIndexes()
 	{
-		List<String> list = new ArrayList<String>();
+		SearchBackend search = searchBackend;
+		FacetBackend facets = facetBackend;
 		
-		while(!content.isEmpty())
+		if(!search.keepsOwnIndex() && !facets.keepsOwnIndex())
 		{
-			int line = content.indexOf(";");
+			return;
+		}
+		
+		//the backends ignore these hooks when they don't keep an index
+		search.clear();
+		facets.clear();
+		
+		//a page of IDs, then those projects with all their children in a fixed handful of queries
+		int afterProjectId = 0;
+		List<ProjectSummary> page;
+		int indexed = 0;
+		
+		do
+		{
+			page = projectDao.grabProjectsAfter(afterProjectId, INDEX_REBUILD_PAGE_SIZE, ProjectSummary.class);
 			
-			if(line == -1)
+			if(page.isEmpty())
 			{
-				if(!content.isBlank())
-				{
-					list.add(content);
-				}
-				
-				content = "";
-			}else
+				break;
+			}
+			
+			List<Integer> projectIds = new ArrayList<>(page.size());
+			page.forEach(summary -> projectIds.add(summary.getProjectId()));
+			
+			for(Project project : projectDao.grabProjectsWithDetails(projectIds))
 			{
-			list.add(content.substring(0, line).trim());
-			content = content.substring( line + 1);
+				search.projectAdded(project);
+				facets.projectAdded(project);
 			}
+			
+			indexed += page.size();
+			afterProjectId = projectIds.get(projectIds.size() - 1);
+		}while(page.size() == INDEX_REBUILD_PAGE_SIZE);
+		
+		System.out.println("Indexed " + indexed + " projects.");
+	}
+	
+	//best matches first for the words in query across names, notes, steps and materials
+	public SearchPage searchProjects(String query, int offset, int limit)
+	{
+		if(offset < 0 || limit < 1 || offset + limit > MAX_SEARCH_WINDOW)
+		{
+			throw new IllegalArgumentException("Search pages must stay within the first " + MAX_SEARCH_WINDOW
+					+ " hits, offset=" + offset + ", limit=" + limit);
+		}
+		
+		if(Objects.isNull(query) || query.isBlank())
+		{
+			return new SearchPage(query, offset, List.of(), false);
 		}
 		
-		return list;
+		return searchBackend.search(query, offset, limit);
 	}
-
-	private String replaceWhitespaceWithSpace(String content) 
+	
+	//per category, how many of the projects matching filter are in it, most first
+	public List<CategoryCount> countProjectsByCategory(CategoryFilter filter)
 	{
-		return content.replaceAll("\\s+", " ");
+		return facetBackend.countCategories(filter);
 	}
-
-	//I think this is wrong.
-	private String removeComments(String content) 
+	
+	//the projects matching filter in ID order, pass the page's getNextAfterProjectId() to get the next one
+	public FacetPage grabProjectsByCategories(CategoryFilter filter, int afterProjectId, int limit)
 	{
-		//makes a stringbuilder = to content (the file)
-		StringBuilder build  = new StringBuilder(content);
-		int commentPosition = 0;
+		if(limit < 1)
+		{
+			throw new IllegalArgumentException("Page size must be at least 1, was " + limit);
+		}
 		
-		//while 0 is = to the index of the nearest "-- " after position 0, or while its not equal to -1
-		while((commentPosition = build.indexOf("-- ", commentPosition)) != -1)
+		return facetBackend.listProjects(filter, afterProjectId, limit);
+	}
+	
+	//material count and cost, step count and hour variance, precomputed, without loading the project
+	public ProjectRollup grabProjectRollup(Integer projectId)
+	{
+		return rollupDao.grabProjectRollup(projectId).orElseThrow(
+		() -> new NoSuchElementException("Project with project ID = " + projectId + " does not exist."));
+	}
+	
+	//keyset paging like grabProjectPage
+	public List<ProjectRollup> grabProjectRollupPage(int afterProjectId, int limit)
+	{
+		return rollupDao.grabProjectRollupsAfter(afterProjectId, limit);
+	}
+	
+	public List<PortfolioTotal> grabPortfolioByCategory()
+	{
+		return rollupDao.grabPortfolioByCategory();
+	}
+	
+	public List<PortfolioTotal> grabPortfolioByDifficulty()
+	{
+		return rollupDao.grabPortfolioByDifficulty();
+	}
+	
+	//EXPLAIN output for each DAO lookup, full table scans are prefixed with "FULL SCAN"
+	public List<String> explainQueries()
+	{
+		return queryAdvisor.explainQueries();
+	}
+	
+	/*
+	 * From now on modifyProjectDetails only queues the update, and the latest update per project is written
+	 * every windowMillis as one batch. Reads through this service see queued updates straight away. Updates to
+	 * projects that were deleted in the meantime are dropped and logged, not reported to the caller. Queued
+	 * updates keep their version and are checked when they are flushed, an update that lost to someone
+	 * else's write is logged and ends up in getFailedWrites() with an OptimisticLockException, as does one
+	 * the database keeps rejecting. A flushed update bumps the version, so edit a project read again after
+	 * the flush, not an object read before it.
+	 */
+	public synchronized void enableWriteBehind(long windowMillis, int maxPending)
+	{
+		if(windowMillis < 1 || maxPending < 1)
 		{
-			//creates an int looking for the end of the line's position. \n is a return command which would "end the line"
-			int endOfLinePosition = build.indexOf("\n", commentPosition + 1);
-			
-			//this should be the last one
-			if(endOfLinePosition == -1)
-			{
-				//this line is wrong I think. its supposed to take line breaks and comments and replace them with nothing.
-				//I think what its doing instead is deleting from pos 0 to end of line pos and deleting it.
-				build.replace(commentPosition, endOfLinePosition + 1, "");
-				
-				//instead, maybe this?
-				//build.replace(endOfLinePosition, endOfLinePosition + 1, "");
-			}
+			throw new IllegalArgumentException("windowMillis and maxPending must be at least 1, were " + windowMillis + " and " + maxPending);
 		}
 		
+		if(writeBehind != null)
+		{
+			throw new IllegalStateException("Write-behind is already enabled");
+		}
 		
-		return build.toString();
+		writeBehind = new WriteBehindQueue(projectDao::modifyProjectsDetails, this::flushed, this::writeFailed, windowMillis,
+				maxPending, WRITE_BEHIND_OFFER_TIMEOUT_MILLIS);
+	}
+	
+	//writes every queued update now, e.g. before exiting or before something outside this service reads the tables
+	public void flushPendingWrites()
+	{
+		if(writeBehind != null)
+		{
+			writeBehind.flush();
+		}
+	}
+	
+	//flushes and goes back to writing through, safe to call when write-behind was never enabled
+	public synchronized void disableWriteBehind()
+	{
+		if(writeBehind != null)
+		{
+			WriteBehindQueue queue = writeBehind;
+			writeBehind = null;
+			queue.close();
+		}
+	}
+	
+	//deletes unused categories in the background on the schedule in config, see CategoryCleanupJob
+	public synchronized void startCategoryCleanup(CategoryCleanupConfig config)
+	{
+		if(categoryCleanup != null)
+		{
+			throw new IllegalStateException("Category cleanup is already running");
+		}
+		categoryCleanup = new CategoryCleanupJob(categoryDao, config);
+	}
+	
+	public synchronized void stopCategoryCleanup()
+	{
+		if(categoryCleanup != null)
+		{
+			categoryCleanup.close();
+			categoryCleanup = null;
+		}
+	}
+	
+	//one cleanup run now, with the running job's settings or the defaults, returns how many categories went
+	public int cleanUpCategories()
+	{
+		CategoryCleanupJob job;
+		
+		synchronized(this)
+		{
+			job = categoryCleanup;
+		}
+		
+		if(job != null)
+		{
+			return job.runOnce();
+		}
 		
+		try(CategoryCleanupJob once = new CategoryCleanupJob(categoryDao, new CategoryCleanupConfig()))
+		{
+			return once.runOnce();
+		}
+	}
+	
+	public Optional<WriteBehindStats> getWriteBehindStats()
+	{
+		WriteBehindQueue queue = writeBehind;
+		return Optional.ofNullable(queue).map(WriteBehindQueue::getStats);
+	}
+	
+	//the most recent updates write-behind gave up on, oldest first. They stay after write-behind is disabled
+	public List<FailedWrite> getFailedWrites()
+	{
+		synchronized(failedWrites)
+		{
+			return new ArrayList<>(failedWrites);
+		}
+	}
+	
+	public void setLoadStrategy(ProjectLoadStrategy loadStrategy)
+	{
+		projectDao.setLoadStrategy(loadStrategy);
+	}
+	
+	public Project addProject(Project project) 
+	{
+		Project dbProject = projectDao.insertProject(project);
+		
+		//the caller keeps this object and its children aren't in the database, so the cache loads its own copy on the first read
+		written(dbProject.getProjectId());
+		
+		//only the project row is written, so only its details become searchable, and it has no categories yet
+		Project details = WriteBehindQueue.copyDetails(dbProject);
+		searchBackend.projectAdded(details);
+		facetBackend.projectAdded(details);
+		return dbProject;
+	}
+
+	//bulk load, chunks of BULK_CHUNK_SIZE projects inside one transaction
+	public List<Project> addProjects(List<Project> projects) 
+	{
+		return addProjects(projects, BULK_CHUNK_SIZE, false);
 	}
 
-	private String readFileContent(String fileName) 
+	/*
+	 * commitPerChunk keeps transactions small for very large loads, but a failure leaves earlier chunks
+	 * committed. Those projects keep their IDs and are indexed before the DbException is rethrown, the ones
+	 * rolled back have their IDs cleared.
+	 */
+	public List<Project> addProjects(List<Project> projects, int chunkSize, boolean commitPerChunk) 
 	{
-		try 
+		if(chunkSize < 1)
+		{
+			throw new IllegalArgumentException("Chunk size must be at least 1, was " + chunkSize);
+		}
+		
+		try
 		{
-			Path path = Paths.get(getClass().getClassLoader().getResource(fileName).toURI());
-			return Files.readString(path);
-		} catch (Exception e) 
+			List<Project> dbProjects = projectDao.insertProjects(projects, chunkSize, commitPerChunk);
+			dbProjects.forEach(this::indexAdded);
+			return dbProjects;
+		}
+		catch(DbException e)
 		{
-			throw new DbException(e);
+			projects.stream().filter(project -> Objects.nonNull(project.getProjectId())).forEach(this::indexAdded);
+			throw e;
 		}
 	}
-
 	
-	public Project addProject(Project project) 
+	private void indexAdded(Project project)
 	{
-		return projectDao.insertProject(project);
+		written(project.getProjectId());
+		searchBackend.projectAdded(project);
+		facetBackend.projectAdded(project);
 	}
 
 	public List<Project> grabAllThoseProjects() 
@@ -136,22 +479,146 @@ public class ProjectService
 		return projectDao.grabAllThoseProjects();
 	}
 
+	//keyset paging, afterProjectId is the last ID of the previous page (0 for the first page)
+	public List<Project> grabProjectPage(int afterProjectId, int limit) 
+	{
+		return projectDao.grabProjectsAfter(afterProjectId, limit);
+	}
+
+	//ID and name only, for list screens
+	public List<ProjectSummary> grabProjectSummaryPage(int afterProjectId, int limit) 
+	{
+		return projectDao.grabProjectsAfter(afterProjectId, limit, ProjectSummary.class);
+	}
+
+	//streams every project without holding the table in memory, close the stream when done with it
+	public Stream<Project> streamProjects() 
+	{
+		return projectDao.streamProjects(STREAM_FETCH_SIZE);
+	}
+
+	public void forEachProject(Consumer<Project> action) 
+	{
+		projectDao.forEachProject(STREAM_FETCH_SIZE, action);
+	}
+
+	//fully loaded projects for a page or set of IDs, a fixed handful of queries no matter how many IDs
+	public List<Project> grabProjectsWithDetails(Collection<Integer> projectIds) 
+	{
+		long generation = projectCache.getGeneration();
+		List<Project> projects = DbConnection.readAfterWrites(projectIds, () -> projectDao.grabProjectsWithDetails(projectIds));
+		projects.forEach(project -> projectCache.put(project, generation));
+		projects.replaceAll(this::withPendingDetails);
+		return projects;
+	}
+
 	public Project grabSpecificProject(Integer projectIdNumber) 
 	{
-		return projectDao.grabSpecificProject(projectIdNumber).orElseThrow(
+		//read through the cache, only a miss goes to the database
+		Project project = projectCache.get(projectIdNumber, id -> DbConnection.readAfterWrites(List.of(id),
+				() -> projectDao.grabSpecificProject(id)).orElse(null));
+		
+		return Optional.ofNullable(project).map(this::withPendingDetails).orElseThrow(
 		() -> new NoSuchElementException("Project with project ID = " + projectIdNumber + " does not exist."));
 	}
 
+	//fails with OptimisticLockException if the project changed since it was read
 	public void modifyProjectDetails(Project project) 
 	{
-		if(!projectDao.modifyProjectDetails(project))
+		modifyProjectDetails(project, ConflictResolver.giveUp());
+	}
+
+	/*
+	 * On a conflict the current project is read back from the primary and handed to resolver with the
+	 * update, and what it returns is tried again, up to MAX_CONFLICT_RETRIES times. The project passed in
+	 * ends up with the version that was written. With write-behind on the update is only queued, a conflict
+	 * is found at the flush after this returned, so resolver isn't asked and the update goes to
+	 * getFailedWrites().
+	 */
+	public void modifyProjectDetails(Project project, ConflictResolver resolver) 
+	{
+		WriteBehindQueue queue = writeBehind;
+		
+		if(queue != null)
+		{
+			//the cached aggregate stays, reads lay the queued details over it until the flush drops it.
+			//the search and facet indexes take the change now, like the reads do
+			Set<ProjectField> changed = EnumSet.noneOf(ProjectField.class);
+			changed.addAll(project.getDirtyFields());
+			queue.submit(project);
+			searchBackend.projectChanged(project, changed);
+			facetBackend.projectChanged(project, changed);
+			return;
+		}
+		
+		try
+		{
+			Project attempt = project;
+			
+			for(int retries = 0; ; retries++)
+			{
+				//saved before the write, a successful write marks the project clean
+				Set<ProjectField> changed = EnumSet.noneOf(ProjectField.class);
+				changed.addAll(attempt.getDirtyFields());
+				
+				try
+				{
+					if(!projectDao.modifyProjectDetails(attempt))
+					{
+						throw new DbException("Project with ID = " + project.getProjectId() + " does not exist.");
+					}
+					
+					project.setVersion(attempt.getVersion());
+					searchBackend.projectChanged(attempt, changed);
+					facetBackend.projectChanged(attempt, changed);
+					return;
+				}
+				catch(OptimisticLockException e)
+				{
+					attempt = retries < MAX_CONFLICT_RETRIES ? merge(attempt, resolver, e) : null;
+					
+					if(attempt == null)
+					{
+						throw e;
+					}
+				}
+			}
+		}
+		finally
+		{
+			//dropped after the write whether or not it worked, the next read reloads the whole aggregate
+			written(project.getProjectId());
+		}
+	}
+	
+	//the resolver's answer stamped with the current version, or null when it gives up
+	private Project merge(Project attempted, ConflictResolver resolver, OptimisticLockException conflict)
+	{
+		//straight from the primary, a replica or the cache could still hold the version that just lost
+		Project current = DbConnection.readFromPrimary(() -> projectDao.grabSpecificProject(attempted.getProjectId()))
+				.orElseThrow(() -> new DbException("Project with ID = " + attempted.getProjectId() + " does not exist.", conflict));
+		
+		Project resolved = resolver.resolve(current, WriteBehindQueue.copyDetails(attempted));
+		
+		if(resolved == null)
 		{
-			throw new DbException("Project with ID = " + project.getProjectId() + " does not exist.");
+			return null;
 		}
+		
+		Project merged = WriteBehindQueue.copyDetails(resolved);
+		merged.setProjectId(current.getProjectId());
+		merged.setVersion(current.getVersion());
+		return merged;
 	}
 
 	public void removeProject(Project project) 
 	{
+		WriteBehindQueue queue = writeBehind;
+		
+		if(queue != null)
+		{
+			queue.discard(project.getProjectId());
+		}
 		
 		try
 		{
@@ -160,6 +627,8 @@ public class ProjectService
 				throw new DbException("Project with ID = " + project.getProjectId() + " does not exist to delete.");
 			}else 
 			{
+				searchBackend.projectRemoved(project.getProjectId());
+				facetBackend.projectRemoved(project.getProjectId());
 				System.out.println("Successfully deleted selected project");
 			}
 		}
@@ -167,6 +636,114 @@ public class ProjectService
 		{
 			System.out.println("ProjectService.removeProject failure");
 		}
+		finally
+		{
+			written(project.getProjectId());
+		}
+	}
+	
+	//deletes the projects with their children in a few set based statements, returns how many existed
+	public int removeProjects(Collection<Integer> projectIds) 
+	{
+		//cleaned once here, a null reaching the indexes would fail after the delete had already committed
+		List<Integer> ids = projectIds.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+		WriteBehindQueue queue = writeBehind;
+		
+		if(queue != null)
+		{
+			ids.forEach(queue::discard);
+		}
 		
+		try
+		{
+			int removed = projectDao.removeProjects(ids);
+			
+			for(Integer projectId : ids)
+			{
+				searchBackend.projectRemoved(projectId);
+				facetBackend.projectRemoved(projectId);
+			}
+			return removed;
+		}
+		finally
+		{
+			ids.forEach(this::written);
+		}
+	}
+	
+	/*
+	 * The project was written or may have been. The cached copy goes, and for readYourWritesMillis every
+	 * thread reloads it from the primary, not only the one that wrote.
+	 */
+	private void written(Integer projectId)
+	{
+		DbConnection.markWritten(projectId);
+		projectCache.invalidate(projectId);
+	}
+	
+	//like written() for every project, after a script or migration
+	private void allWritten()
+	{
+		DbConnection.markAllWritten();
+		projectCache.invalidateAll();
+	}
+	
+	public CacheStats getCacheStats() 
+	{
+		return projectCache.getStats();
+	}
+	
+	//the loaded project with the queued changes laid over it. It is the caller's own copy, never the cached one
+	private Project withPendingDetails(Project project)
+	{
+		WriteBehindQueue queue = writeBehind;
+		Project update = queue == null ? null : queue.getPending(project.getProjectId());
+		
+		if(update != null)
+		{
+			WriteBehindQueue.applyChanges(update, project).markClean();
+		}
+		return project;
+	}
+	
+	/*
+	 * Called by the write-behind queue once a batch has committed. The overlay is gone from here on, so the
+	 * projects are marked like any other write and reloads come from the primary until replicas caught up.
+	 */
+	private void flushed(List<Project> batch)
+	{
+		batch.forEach(update -> written(update.getProjectId()));
+	}
+	
+	//called by the write-behind queue for an update it gave up on, readers and the indexes go back to what the database has
+	private void writeFailed(FailedWrite failed)
+	{
+		synchronized(failedWrites)
+		{
+			if(failedWrites.size() == MAX_FAILED_WRITES)
+			{
+				failedWrites.removeFirst();
+			}
+			failedWrites.addLast(failed);
+		}
+		
+		Integer projectId = failed.getUpdate().getProjectId();
+		written(projectId);
+		
+		try
+		{
+			Optional<Project> stored = DbConnection.readFromPrimary(() -> projectDao.grabSpecificProject(projectId));
+			
+			if(stored.isPresent())
+			{
+				Set<ProjectField> every = EnumSet.allOf(ProjectField.class);
+				searchBackend.projectChanged(stored.get(), every);
+				facetBackend.projectChanged(stored.get(), every);
+			}
+		}
+		catch(RuntimeException e)
+		{
+			System.out.println("Could not reindex project " + projectId + " after its update failed: " + e);
+		}
 	}
-}
+}
\ No newline at end of file
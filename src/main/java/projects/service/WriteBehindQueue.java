@@ -0,0 +1,562 @@
+package projects.service;
+
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import projects.entity.Project;
+import projects.entity.ProjectField;
+import projects.exception.DbException;
+import projects.exception.OptimisticLockException;
+
+/*
+ * Holds project detail updates for up to windowMillis and writes them out together. Updates to the same
+ * project are merged field by field, so a burst of edits to one project becomes a single row in the batch.
+ *
+ * At most maxPending projects wait at once. When it is full, submit() blocks for up to offerTimeoutMillis
+ * for a flush to make room and then fails, so a database that can't keep up slows callers down instead
+ * of the queue growing without limit.
+ *
+ * A batch that fails is written again one project at a time, so one bad update can't hold up the rest.
+ * An update the database rejects on its own is tried again on the next MAX_ATTEMPTS - 1 flushes and then
+ * given up on and handed to onFailed. Failures that aren't the update's fault, like a database that can't
+ * be reached or a lock wait timeout, send everything back to be tried again without counting against it.
+ *
+ * An update keeps the version it was read with, and the flush writes it only if the row still has that
+ * version. Edits merged into one keep the first one's version. An update that lost to a write made
+ * elsewhere is given up on straight away with an OptimisticLockException, trying it again can't help.
+ * The queue remembers the versions its own flushes wrote, so an edit read before one of them (the caller
+ * still holds the old object, or the edit came in while the batch was being written) is moved onto the
+ * version the queue wrote instead of losing to it.
+ */
+class WriteBehindQueue implements AutoCloseable
+{
+	//flushes an update may fail in before it is given up on
+	static final int MAX_ATTEMPTS = 3;
+
+	//projects the queue remembers written versions for, the least recently written are forgotten first
+	private static final int MAX_WRITTEN_VERSIONS = 10_000;
+
+	private final Function<List<Project>, List<Integer>> writer;
+	private final Consumer<List<Project>> onFlushed;
+	private final Consumer<FailedWrite> onFailed;
+	private final int maxPending;
+	private final long offerTimeoutMillis;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notFull = lock.newCondition();
+
+	//only one flush writes at a time, so a slow batch can't be overtaken by a newer one for the same project
+	private final ReentrantLock flushLock = new ReentrantLock();
+	private final ScheduledExecutorService flusher;
+	private final Thread shutdownHook;
+
+	//guarded by lock
+	private Map<Integer, Project> pending = new LinkedHashMap<>();
+
+	//the batch being written right now, still visible to readers until it has committed
+	private Map<Integer, Project> inFlight = new LinkedHashMap<>();
+
+	//flushes each waiting project's update has failed in so far, only projects that failed are here
+	private final Map<Integer, Integer> attempts = new HashMap<>();
+
+	//the run of versions the queue's own flushes moved each project through, least recently written first
+	private final Map<Integer, WrittenVersions> writtenVersions = new LinkedHashMap<>();
+	private boolean closed;
+	private long submitted;
+	private long written;
+	private long batches;
+	private long failedBatches;
+	private long deadLettered;
+
+	/*
+	 * writer gets the coalesced updates and returns the project IDs that no longer exist, and must write all
+	 * or nothing and bump the version of each versioned update it wrote. onFlushed is called with the updates a flush wrote, after they committed, and onFailed with
+	 * each update the queue gave up on.
+	 */
+	WriteBehindQueue(Function<List<Project>, List<Integer>> writer, Consumer<List<Project>> onFlushed,
+			Consumer<FailedWrite> onFailed, long windowMillis, int maxPending, long offerTimeoutMillis)
+	{
+		this.writer = writer;
+		this.onFlushed = onFlushed;
+		this.onFailed = onFailed;
+		this.maxPending = maxPending;
+		this.offerTimeoutMillis = offerTimeoutMillis;
+
+		flusher = Executors.newSingleThreadScheduledExecutor(runnable ->
+		{
+			Thread thread = new Thread(runnable, "project-write-behind");
+			thread.setDaemon(true);
+			return thread;
+		});
+		flusher.scheduleWithFixedDelay(this::flushQuietly, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+
+		//pending updates are written out when the JVM exits normally, not just when close() is called
+		shutdownHook = new Thread(this::flushQuietly, "project-write-behind-shutdown");
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+
+	void submit(Project update)
+	{
+		if(!update.isDirty())
+		{
+			return;
+		}
+		
+		Integer projectId = update.getProjectId();
+		Project copy = copyDetails(update);
+
+		lock.lock();
+		try
+		{
+			long remaining = TimeUnit.MILLISECONDS.toNanos(offerTimeoutMillis);
+
+			while(!closed && pending.size() >= maxPending && !pending.containsKey(projectId))
+			{
+				if(remaining <= 0)
+				{
+					throw new DbException("Write-behind queue is full (" + maxPending + " projects waiting), try again later");
+				}
+
+				try
+				{
+					remaining = notFull.awaitNanos(remaining);
+				}
+				catch(InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					throw new DbException("Interrupted waiting for room in the write-behind queue", e);
+				}
+			}
+
+			if(closed)
+			{
+				throw new DbException("Write-behind queue is closed");
+			}
+
+			rebase(copy);
+
+			//remove first so a re-edited project moves to the back, behind the ones waiting longer
+			Project earlier = pending.remove(projectId);
+			pending.put(projectId, earlier == null ? copy : applyChanges(copy, earlier));
+			submitted++;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	//the changes still waiting for a project or being written, merged, or null
+	Project getPending(Integer projectId)
+	{
+		lock.lock();
+		try
+		{
+			Project writing = inFlight.get(projectId);
+			Project waiting = pending.get(projectId);
+			
+			if(writing == null && waiting == null)
+			{
+				return null;
+			}
+			
+			Project update = copyDetails(writing != null ? writing : waiting);
+			return writing != null && waiting != null ? applyChanges(waiting, update) : update;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	//drops a waiting update, e.g. because the project is being deleted
+	void discard(Integer projectId)
+	{
+		lock.lock();
+		try
+		{
+			if(pending.remove(projectId) != null)
+			{
+				notFull.signalAll();
+			}
+			inFlight.remove(projectId);
+			attempts.remove(projectId);
+			writtenVersions.remove(projectId);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/*
+	 * Writes everything waiting right now and returns once it is committed. Updates that couldn't be written
+	 * go back in the queue, behind nothing newer for the same project, or are given up on, and the flush
+	 * then fails with the first error after everything else was written.
+	 */
+	void flush()
+	{
+		flushLock.lock();
+		try
+		{
+			List<Project> batch;
+
+			lock.lock();
+			try
+			{
+				if(pending.isEmpty())
+				{
+					return;
+				}
+
+				batch = new ArrayList<>(pending.values());
+				inFlight = pending;
+				pending = new LinkedHashMap<>();
+				notFull.signalAll();
+			}
+			finally
+			{
+				lock.unlock();
+			}
+
+			List<Project> done = new ArrayList<>(batch.size());
+			List<Integer> missing = new ArrayList<>();
+			Map<Integer, RuntimeException> rejected = new LinkedHashMap<>();
+			RuntimeException unavailable = null;
+
+			try
+			{
+				missing.addAll(writer.apply(batch));
+				done.addAll(batch);
+			}
+			catch(RuntimeException e)
+			{
+				if(isUnavailable(e))
+				{
+					unavailable = e;
+				}
+				else if(batch.size() == 1)
+				{
+					rejected.put(batch.get(0).getProjectId(), e);
+				}
+				else
+				{
+					unavailable = writeOneByOne(batch, done, missing, rejected);
+				}
+			}
+
+			if(!missing.isEmpty())
+			{
+				System.out.println("Write-behind skipped updates for projects that no longer exist: " + missing);
+			}
+
+			//callers drop their cached copies before the overlay goes, so no reader sees the old state in between
+			if(!done.isEmpty())
+			{
+				onFlushed.accept(done);
+			}
+
+			List<FailedWrite> gaveUp = settle(done, missing, rejected, unavailable != null || !rejected.isEmpty());
+
+			for(FailedWrite failed : gaveUp)
+			{
+				System.out.println("Write-behind gave up on an update after " + failed.getAttempts() + " attempts: " + failed);
+				onFailed.accept(failed);
+			}
+
+			if(unavailable != null)
+			{
+				throw unavailable;
+			}
+
+			if(!rejected.isEmpty())
+			{
+				throw new DbException("Write-behind could not write the updates for projects " + rejected.keySet(),
+						rejected.values().iterator().next());
+			}
+		}
+		finally
+		{
+			flushLock.unlock();
+		}
+	}
+
+	WriteBehindStats getStats()
+	{
+		lock.lock();
+		try
+		{
+			return new WriteBehindStats(pending.size(), submitted, written, batches, failedBatches, deadLettered);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/*
+	 * Stops the timer and writes whatever is left. Never throws: an update that still can't be written is
+	 * given up on and handed to onFailed like any other, so one bad update doesn't cost the others.
+	 */
+	@Override
+	public void close()
+	{
+		lock.lock();
+		try
+		{
+			closed = true;
+			notFull.signalAll();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+
+		flusher.shutdown();
+
+		try
+		{
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		}
+		catch(IllegalStateException e)
+		{
+			//already shutting down, the hook is running or about to
+		}
+
+		try
+		{
+			//closed, so a rejected update is given up on straight away instead of waiting for a flush that won't come
+			flush();
+		}
+		catch(RuntimeException e)
+		{
+			System.out.println("Write-behind could not write everything on close: " + e);
+			giveUpOnPending(e);
+		}
+	}
+
+	private void flushQuietly()
+	{
+		try
+		{
+			flush();
+		}
+		catch(RuntimeException e)
+		{
+			System.out.println("Write-behind flush failed, will retry: " + e);
+		}
+	}
+
+	//retries a failed batch one update at a time, stopping at the first failure that isn't the update's fault
+	private RuntimeException writeOneByOne(List<Project> batch, List<Project> done, List<Integer> missing,
+			Map<Integer, RuntimeException> rejected)
+	{
+		for(Project update : batch)
+		{
+			try
+			{
+				missing.addAll(writer.apply(Collections.singletonList(update)));
+				done.add(update);
+			}
+			catch(RuntimeException e)
+			{
+				if(isUnavailable(e))
+				{
+					return e;
+				}
+				rejected.put(update.getProjectId(), e);
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * After a flush: written updates leave, rejected ones count an attempt and are given up on at
+	 * MAX_ATTEMPTS or once the queue is closed, and the rest go back, with anything newer for the same
+	 * project that arrived while the batch was out on top.
+	 */
+	private List<FailedWrite> settle(List<Project> done, List<Integer> missing, Map<Integer, RuntimeException> rejected,
+			boolean failed)
+	{
+		List<FailedWrite> gaveUp = new ArrayList<>();
+
+		lock.lock();
+		try
+		{
+			for(Project update : done)
+			{
+				inFlight.remove(update.getProjectId());
+				attempts.remove(update.getProjectId());
+
+				if(update.getVersion() != null && !missing.contains(update.getProjectId()))
+				{
+					wrote(update.getProjectId(), update.getVersion());
+				}
+			}
+
+			rejected.forEach((projectId, failure) ->
+			{
+				int tries = attempts.merge(projectId, 1, Integer::sum);
+				Project update = inFlight.get(projectId);
+
+				//discarded while it was being written
+				if(update == null)
+				{
+					attempts.remove(projectId);
+				}
+				else if(closed || tries >= MAX_ATTEMPTS || failure instanceof OptimisticLockException)
+				{
+					inFlight.remove(projectId);
+					attempts.remove(projectId);
+					gaveUp.add(new FailedWrite(update, failure, tries, System.currentTimeMillis()));
+				}
+			});
+
+			Map<Integer, Project> merged = inFlight;
+			pending.forEach((projectId, update) -> merged.merge(projectId, update, (retried, newer) -> applyChanges(newer, retried)));
+			pending = merged;
+			inFlight = new LinkedHashMap<>();
+
+			//edits that came in while the batch was out were read before it and move onto what it wrote
+			pending.values().forEach(this::rebase);
+
+			written += done.size() - missing.size();
+			deadLettered += gaveUp.size();
+			batches++;
+
+			if(failed)
+			{
+				failedBatches++;
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+		return gaveUp;
+	}
+
+	//the writer bumped the version of an update it wrote, so the row went from version - 1 to version. Under lock
+	private void wrote(Integer projectId, int version)
+	{
+		WrittenVersions run = writtenVersions.remove(projectId);
+
+		//a gap means someone else wrote in between, edits read before that aren't the queue's to move
+		if(run == null || run.to != version - 1)
+		{
+			run = new WrittenVersions(version - 1);
+		}
+		run.to = version;
+		writtenVersions.put(projectId, run);
+
+		if(writtenVersions.size() > MAX_WRITTEN_VERSIONS)
+		{
+			writtenVersions.remove(writtenVersions.keySet().iterator().next());
+		}
+	}
+
+	//an update read at a version only the queue's own flushes have replaced since gets the version they left. Under lock
+	private void rebase(Project update)
+	{
+		WrittenVersions run = update.getVersion() == null ? null : writtenVersions.get(update.getProjectId());
+
+		if(run != null && update.getVersion() >= run.from && update.getVersion() < run.to)
+		{
+			update.setVersion(run.to);
+		}
+	}
+
+	//on close, when the last flush couldn't write everything
+	private void giveUpOnPending(RuntimeException failure)
+	{
+		List<FailedWrite> gaveUp = new ArrayList<>();
+
+		lock.lock();
+		try
+		{
+			long now = System.currentTimeMillis();
+			pending.forEach((projectId, update) -> gaveUp.add(new FailedWrite(update, failure, attempts.getOrDefault(projectId, 0) + 1, now)));
+			pending = new LinkedHashMap<>();
+			attempts.clear();
+			deadLettered += gaveUp.size();
+			notFull.signalAll();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+
+		for(FailedWrite failed : gaveUp)
+		{
+			System.out.println("Write-behind gave up on an update: " + failed);
+			onFailed.accept(failed);
+		}
+	}
+
+	//the database couldn't be reached or the write hit a timeout or deadlock, none of which is the update's fault
+	private static boolean isUnavailable(Throwable failure)
+	{
+		for(Throwable cause = failure; cause != null; cause = cause.getCause())
+		{
+			if(cause instanceof SQLTransientException || cause instanceof SQLRecoverableException
+					|| cause instanceof SQLNonTransientConnectionException)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	//just the columns modifyProjectDetails writes, the version it checks and which of them changed, so a caller changing its object later doesn't change the queued update
+	static Project copyDetails(Project project)
+	{
+		Project copy = new Project();
+		copy.setProjectId(project.getProjectId());
+		copy.setVersion(project.getVersion());
+		
+		for(ProjectField field : ProjectField.values())
+		{
+			field.set(copy, field.get(project));
+		}
+		
+		copy.markClean();
+		project.getDirtyFields().forEach(copy::markDirty);
+		return copy;
+	}
+	
+	//from is the version before the first of a run of flushes, to the version the last one left
+	private static class WrittenVersions
+	{
+		private final int from;
+		private int to;
+
+		WrittenVersions(int from)
+		{
+			this.from = from;
+		}
+	}
+
+	//writes the changed fields of from onto to and returns to, to keeps its own version
+	static Project applyChanges(Project from, Project to)
+	{
+		for(ProjectField field : from.getDirtyFields())
+		{
+			field.set(to, field.get(from));
+			to.markDirty(field);
+		}
+		return to;
+	}
+}
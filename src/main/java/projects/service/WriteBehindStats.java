@@ -0,0 +1,65 @@
+package projects.service;
+
+public class WriteBehindStats
+{
+	private final int pending;
+	private final long submitted;
+	private final long written;
+	private final long batches;
+	private final long failedBatches;
+	private final long deadLettered;
+
+	WriteBehindStats(int pending, long submitted, long written, long batches, long failedBatches, long deadLettered)
+	{
+		this.pending = pending;
+		this.submitted = submitted;
+		this.written = written;
+		this.batches = batches;
+		this.failedBatches = failedBatches;
+		this.deadLettered = deadLettered;
+	}
+
+	public int getPending()
+	{
+		return pending;
+	}
+
+	public long getSubmitted()
+	{
+		return submitted;
+	}
+
+	public long getWritten()
+	{
+		return written;
+	}
+
+	public long getBatches()
+	{
+		return batches;
+	}
+
+	public long getFailedBatches()
+	{
+		return failedBatches;
+	}
+
+	//updates the queue gave up on, see ProjectService.getFailedWrites()
+	public long getDeadLettered()
+	{
+		return deadLettered;
+	}
+
+	//updates that never reached the database because a newer one for the same project replaced them
+	public long getCoalesced()
+	{
+		return Math.max(0, submitted - written - pending - deadLettered);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "pending=" + pending + ", submitted=" + submitted + ", written=" + written + ", coalesced=" + getCoalesced()
+				+ ", batches=" + batches + ", failedBatches=" + failedBatches + ", deadLettered=" + deadLettered;
+	}
+}
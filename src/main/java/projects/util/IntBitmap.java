@@ -0,0 +1,694 @@
+package projects.util;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/*
+ * Compressed set of non-negative ints laid out like a Roaring bitmap. Values are split by their high 16
+ * bits into chunks, a chunk with up to ARRAY_MAX values keeps them as a sorted char array (2 bytes each)
+ * and a fuller one as a plain 8KB bitmap. Dense runs of IDs cost a bit each, sparse ones 2 bytes each,
+ * and and/or work chunk by chunk without touching the values of chunks only one side has.
+ * Not thread safe.
+ */
+public class IntBitmap
+{
+	//past this many values a chunk's array would be bigger than its bitmap
+	private static final int ARRAY_MAX = 4096;
+	private static final int BITMAP_WORDS = 1024;
+
+	//high 16 bits of each chunk, sorted, with the chunk at the same index
+	private char[] keys = new char[4];
+	private Chunk[] chunks = new Chunk[4];
+	private int chunkCount;
+	private int cardinality;
+
+	public boolean add(int value)
+	{
+		checkValue(value);
+		int index = indexOf((char)(value >>> 16));
+		char low = (char)value;
+
+		if(index < 0)
+		{
+			insertChunk(-index - 1, (char)(value >>> 16), new ArrayChunk(new char[] {low}, 1));
+			cardinality++;
+			return true;
+		}
+
+		Chunk chunk = chunks[index];
+		int before = chunk.cardinality();
+		chunks[index] = chunk.add(low);
+
+		if(chunks[index].cardinality() == before)
+		{
+			return false;
+		}
+		cardinality++;
+		return true;
+	}
+
+	public boolean remove(int value)
+	{
+		if(value < 0)
+		{
+			return false;
+		}
+
+		int index = indexOf((char)(value >>> 16));
+
+		if(index < 0 || !chunks[index].contains((char)value))
+		{
+			return false;
+		}
+
+		Chunk chunk = chunks[index].remove((char)value);
+		cardinality--;
+
+		if(chunk.cardinality() == 0)
+		{
+			removeChunk(index);
+		}
+		else
+		{
+			chunks[index] = chunk;
+		}
+		return true;
+	}
+
+	public boolean contains(int value)
+	{
+		if(value < 0)
+		{
+			return false;
+		}
+
+		int index = indexOf((char)(value >>> 16));
+		return index >= 0 && chunks[index].contains((char)value);
+	}
+
+	public int cardinality()
+	{
+		return cardinality;
+	}
+
+	public boolean isEmpty()
+	{
+		return cardinality == 0;
+	}
+
+	//a new bitmap with the values in both
+	public IntBitmap and(IntBitmap other)
+	{
+		IntBitmap result = new IntBitmap();
+		int left = 0;
+		int right = 0;
+
+		while(left < chunkCount && right < other.chunkCount)
+		{
+			int compare = Character.compare(keys[left], other.keys[right]);
+
+			if(compare == 0)
+			{
+				Chunk chunk = chunks[left].and(other.chunks[right]);
+
+				if(chunk.cardinality() > 0)
+				{
+					result.appendChunk(keys[left], chunk);
+				}
+				left++;
+				right++;
+			}
+			else if(compare < 0)
+			{
+				left++;
+			}
+			else
+			{
+				right++;
+			}
+		}
+		return result;
+	}
+
+	//a new bitmap with the values in either
+	public IntBitmap or(IntBitmap other)
+	{
+		IntBitmap result = new IntBitmap();
+		int left = 0;
+		int right = 0;
+
+		while(left < chunkCount || right < other.chunkCount)
+		{
+			int compare = left == chunkCount ? 1 : right == other.chunkCount ? -1 : Character.compare(keys[left], other.keys[right]);
+
+			if(compare == 0)
+			{
+				result.appendChunk(keys[left], chunks[left++].or(other.chunks[right++]));
+			}
+			else if(compare < 0)
+			{
+				result.appendChunk(keys[left], chunks[left++].copy());
+			}
+			else
+			{
+				result.appendChunk(other.keys[right], other.chunks[right++].copy());
+			}
+		}
+		return result;
+	}
+
+	//how many values are in both, without building the intersection
+	public int andCardinality(IntBitmap other)
+	{
+		int count = 0;
+		int left = 0;
+		int right = 0;
+
+		while(left < chunkCount && right < other.chunkCount)
+		{
+			int compare = Character.compare(keys[left], other.keys[right]);
+
+			if(compare == 0)
+			{
+				count += chunks[left++].andCardinality(other.chunks[right++]);
+			}
+			else if(compare < 0)
+			{
+				left++;
+			}
+			else
+			{
+				right++;
+			}
+		}
+		return count;
+	}
+
+	//the values greater than after in increasing order, until action returns false
+	public void forEachAfter(int after, IntPredicate action)
+	{
+		if(after == Integer.MAX_VALUE)
+		{
+			return;
+		}
+
+		int from = Math.max(0, after + 1);
+		int index = indexOf((char)(from >>> 16));
+		index = index < 0 ? -index - 1 : index;
+
+		for(; index < chunkCount; index++)
+		{
+			//only the chunk from falls in starts part way through
+			int firstLow = keys[index] == (char)(from >>> 16) ? from & 0xFFFF : 0;
+
+			if(!chunks[index].forEachFrom(keys[index] << 16, firstLow, action))
+			{
+				return;
+			}
+		}
+	}
+
+	//heap used by the chunks, roughly
+	public long sizeInBytes()
+	{
+		long bytes = chunks.length * 8L + keys.length * 2L;
+
+		for(int index = 0; index < chunkCount; index++)
+		{
+			bytes += chunks[index].sizeInBytes();
+		}
+		return bytes;
+	}
+
+	private static void checkValue(int value)
+	{
+		if(value < 0)
+		{
+			throw new IllegalArgumentException("IntBitmap only holds values >= 0, got " + value);
+		}
+	}
+
+	private int indexOf(char key)
+	{
+		return Arrays.binarySearch(keys, 0, chunkCount, key);
+	}
+
+	private void insertChunk(int index, char key, Chunk chunk)
+	{
+		if(chunkCount == keys.length)
+		{
+			keys = Arrays.copyOf(keys, chunkCount * 2);
+			chunks = Arrays.copyOf(chunks, chunkCount * 2);
+		}
+
+		System.arraycopy(keys, index, keys, index + 1, chunkCount - index);
+		System.arraycopy(chunks, index, chunks, index + 1, chunkCount - index);
+		keys[index] = key;
+		chunks[index] = chunk;
+		chunkCount++;
+	}
+
+	//for and/or, which produce chunks in key order
+	private void appendChunk(char key, Chunk chunk)
+	{
+		insertChunk(chunkCount, key, chunk);
+		cardinality += chunk.cardinality();
+	}
+
+	private void removeChunk(int index)
+	{
+		System.arraycopy(keys, index + 1, keys, index, chunkCount - index - 1);
+		System.arraycopy(chunks, index + 1, chunks, index, chunkCount - index - 1);
+		chunks[--chunkCount] = null;
+	}
+
+	/*
+	 * The low 16 bits of the values sharing one key. add and remove return the chunk to keep, which is a
+	 * different kind of chunk when the cardinality crosses ARRAY_MAX. The binary operations return new chunks.
+	 */
+	private abstract static class Chunk
+	{
+		abstract int cardinality();
+
+		abstract boolean contains(char low);
+
+		abstract Chunk add(char low);
+
+		abstract Chunk remove(char low);
+
+		abstract Chunk and(Chunk other);
+
+		abstract Chunk or(Chunk other);
+
+		abstract int andCardinality(Chunk other);
+
+		abstract Chunk copy();
+
+		//false when action asked to stop
+		abstract boolean forEachFrom(int base, int firstLow, IntPredicate action);
+
+		abstract long sizeInBytes();
+	}
+
+	private static class ArrayChunk extends Chunk
+	{
+		private char[] values;
+		private int count;
+
+		ArrayChunk(char[] values, int count)
+		{
+			this.values = values;
+			this.count = count;
+		}
+
+		@Override
+		int cardinality()
+		{
+			return count;
+		}
+
+		@Override
+		boolean contains(char low)
+		{
+			return Arrays.binarySearch(values, 0, count, low) >= 0;
+		}
+
+		@Override
+		Chunk add(char low)
+		{
+			int index = Arrays.binarySearch(values, 0, count, low);
+
+			if(index >= 0)
+			{
+				return this;
+			}
+
+			if(count == ARRAY_MAX)
+			{
+				return toBitmap().add(low);
+			}
+
+			index = -index - 1;
+
+			if(count == values.length)
+			{
+				values = Arrays.copyOf(values, Math.min(ARRAY_MAX, Math.max(4, count * 2)));
+			}
+
+			System.arraycopy(values, index, values, index + 1, count - index);
+			values[index] = low;
+			count++;
+			return this;
+		}
+
+		@Override
+		Chunk remove(char low)
+		{
+			int index = Arrays.binarySearch(values, 0, count, low);
+
+			if(index >= 0)
+			{
+				System.arraycopy(values, index + 1, values, index, count - index - 1);
+				count--;
+			}
+			return this;
+		}
+
+		@Override
+		Chunk and(Chunk other)
+		{
+			char[] result = new char[Math.min(count, other.cardinality())];
+			int size = 0;
+
+			if(other instanceof BitmapChunk)
+			{
+				for(int index = 0; index < count; index++)
+				{
+					if(other.contains(values[index]))
+					{
+						result[size++] = values[index];
+					}
+				}
+				return new ArrayChunk(result, size);
+			}
+
+			ArrayChunk array = (ArrayChunk)other;
+			int left = 0;
+			int right = 0;
+
+			while(left < count && right < array.count)
+			{
+				if(values[left] == array.values[right])
+				{
+					result[size++] = values[left++];
+					right++;
+				}
+				else if(values[left] < array.values[right])
+				{
+					left++;
+				}
+				else
+				{
+					right++;
+				}
+			}
+			return new ArrayChunk(result, size);
+		}
+
+		@Override
+		Chunk or(Chunk other)
+		{
+			if(other instanceof BitmapChunk)
+			{
+				return other.or(this);
+			}
+
+			ArrayChunk array = (ArrayChunk)other;
+
+			if(count + array.count > ARRAY_MAX)
+			{
+				return toBitmap().or(array);
+			}
+
+			char[] result = new char[count + array.count];
+			int size = 0;
+			int left = 0;
+			int right = 0;
+
+			while(left < count || right < array.count)
+			{
+				if(right == array.count || (left < count && values[left] < array.values[right]))
+				{
+					result[size++] = values[left++];
+				}
+				else if(left == count || array.values[right] < values[left])
+				{
+					result[size++] = array.values[right++];
+				}
+				else
+				{
+					result[size++] = values[left++];
+					right++;
+				}
+			}
+			return new ArrayChunk(result, size);
+		}
+
+		@Override
+		int andCardinality(Chunk other)
+		{
+			int size = 0;
+
+			if(other instanceof BitmapChunk)
+			{
+				for(int index = 0; index < count; index++)
+				{
+					if(other.contains(values[index]))
+					{
+						size++;
+					}
+				}
+				return size;
+			}
+
+			ArrayChunk array = (ArrayChunk)other;
+			int left = 0;
+			int right = 0;
+
+			while(left < count && right < array.count)
+			{
+				if(values[left] == array.values[right])
+				{
+					size++;
+					left++;
+					right++;
+				}
+				else if(values[left] < array.values[right])
+				{
+					left++;
+				}
+				else
+				{
+					right++;
+				}
+			}
+			return size;
+		}
+
+		@Override
+		Chunk copy()
+		{
+			return new ArrayChunk(Arrays.copyOf(values, count), count);
+		}
+
+		@Override
+		boolean forEachFrom(int base, int firstLow, IntPredicate action)
+		{
+			int index = Arrays.binarySearch(values, 0, count, (char)firstLow);
+			index = index < 0 ? -index - 1 : index;
+
+			for(; index < count; index++)
+			{
+				if(!action.test(base | values[index]))
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		long sizeInBytes()
+		{
+			return 16 + values.length * 2L;
+		}
+
+		BitmapChunk toBitmap()
+		{
+			long[] words = new long[BITMAP_WORDS];
+
+			for(int index = 0; index < count; index++)
+			{
+				words[values[index] >>> 6] |= 1L << values[index];
+			}
+			return new BitmapChunk(words, count);
+		}
+	}
+
+	private static class BitmapChunk extends Chunk
+	{
+		private final long[] words;
+		private int count;
+
+		BitmapChunk(long[] words, int count)
+		{
+			this.words = words;
+			this.count = count;
+		}
+
+		@Override
+		int cardinality()
+		{
+			return count;
+		}
+
+		@Override
+		boolean contains(char low)
+		{
+			return (words[low >>> 6] & (1L << low)) != 0;
+		}
+
+		@Override
+		Chunk add(char low)
+		{
+			if(!contains(low))
+			{
+				words[low >>> 6] |= 1L << low;
+				count++;
+			}
+			return this;
+		}
+
+		@Override
+		Chunk remove(char low)
+		{
+			if(contains(low))
+			{
+				words[low >>> 6] &= ~(1L << low);
+				count--;
+			}
+			return count <= ARRAY_MAX ? toArray() : this;
+		}
+
+		@Override
+		Chunk and(Chunk other)
+		{
+			if(other instanceof ArrayChunk)
+			{
+				return other.and(this);
+			}
+
+			long[] result = new long[BITMAP_WORDS];
+			long[] otherWords = ((BitmapChunk)other).words;
+			int size = 0;
+
+			for(int index = 0; index < BITMAP_WORDS; index++)
+			{
+				result[index] = words[index] & otherWords[index];
+				size += Long.bitCount(result[index]);
+			}
+
+			BitmapChunk chunk = new BitmapChunk(result, size);
+			return size <= ARRAY_MAX ? chunk.toArray() : chunk;
+		}
+
+		@Override
+		Chunk or(Chunk other)
+		{
+			long[] result = words.clone();
+			int size = count;
+
+			if(other instanceof ArrayChunk)
+			{
+				ArrayChunk array = (ArrayChunk)other;
+
+				for(int index = 0; index < array.count; index++)
+				{
+					char low = array.values[index];
+					long bit = 1L << low;
+
+					if((result[low >>> 6] & bit) == 0)
+					{
+						result[low >>> 6] |= bit;
+						size++;
+					}
+				}
+				return new BitmapChunk(result, size);
+			}
+
+			//two bitmaps only ever grow, no need to check for an array here
+			long[] otherWords = ((BitmapChunk)other).words;
+			size = 0;
+
+			for(int index = 0; index < BITMAP_WORDS; index++)
+			{
+				result[index] |= otherWords[index];
+				size += Long.bitCount(result[index]);
+			}
+			return new BitmapChunk(result, size);
+		}
+
+		@Override
+		int andCardinality(Chunk other)
+		{
+			if(other instanceof ArrayChunk)
+			{
+				return other.andCardinality(this);
+			}
+
+			long[] otherWords = ((BitmapChunk)other).words;
+			int size = 0;
+
+			for(int index = 0; index < BITMAP_WORDS; index++)
+			{
+				size += Long.bitCount(words[index] & otherWords[index]);
+			}
+			return size;
+		}
+
+		@Override
+		Chunk copy()
+		{
+			return new BitmapChunk(words.clone(), count);
+		}
+
+		@Override
+		boolean forEachFrom(int base, int firstLow, IntPredicate action)
+		{
+			for(int index = firstLow >>> 6; index < BITMAP_WORDS; index++)
+			{
+				long word = words[index];
+
+				//the first word can start part way through
+				if(index == firstLow >>> 6)
+				{
+					word &= -1L << firstLow;
+				}
+
+				while(word != 0)
+				{
+					if(!action.test(base | (index << 6) | Long.numberOfTrailingZeros(word)))
+					{
+						return false;
+					}
+					word &= word - 1;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		long sizeInBytes()
+		{
+			return 16 + BITMAP_WORDS * 8L;
+		}
+
+		ArrayChunk toArray()
+		{
+			char[] values = new char[count];
+			int size = 0;
+
+			for(int index = 0; index < BITMAP_WORDS; index++)
+			{
+				long word = words[index];
+
+				while(word != 0)
+				{
+					values[size++] = (char)((index << 6) | Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+			return new ArrayChunk(values, size);
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package projects.util;
+
+import java.util.Arrays;
+
+/*
+ * Open addressing hash map from a primitive int to a primitive float, the posting lists and score
+ * accumulators of the in-memory search index. Like IntObjectMap it avoids boxing, and removal shifts the
+ * following entries back instead of leaving tombstones, so a list that churns doesn't slow down.
+ * Not thread safe.
+ */
+public class IntFloatMap
+{
+	private static final float LOAD_FACTOR = 0.5f;
+
+	private int[] keys;
+	private float[] values;
+	private boolean[] used;
+	private int size;
+	private int resizeAt;
+
+	@FunctionalInterface
+	public interface EntryConsumer
+	{
+		void accept(int key, float value);
+	}
+
+	public IntFloatMap()
+	{
+		this(4);
+	}
+
+	public IntFloatMap(int expectedSize)
+	{
+		int capacity = Integer.highestOneBit(Math.max(4, (int)(expectedSize / LOAD_FACTOR)) - 1) << 1;
+		allocate(capacity);
+	}
+
+	public float getOrDefault(int key, float defaultValue)
+	{
+		int slot = find(key);
+		return slot < 0 ? defaultValue : values[slot];
+	}
+
+	public void put(int key, float value)
+	{
+		int slot = slotFor(key);
+
+		if(used[slot])
+		{
+			values[slot] = value;
+			return;
+		}
+		insert(slot, key, value);
+	}
+
+	//adds delta to the value for key, a missing key counts as 0
+	public void add(int key, float delta)
+	{
+		int slot = slotFor(key);
+
+		if(used[slot])
+		{
+			values[slot] += delta;
+			return;
+		}
+		insert(slot, key, delta);
+	}
+
+	public boolean remove(int key)
+	{
+		int hole = find(key);
+
+		if(hole < 0)
+		{
+			return false;
+		}
+
+		//pull back every entry after the hole that would otherwise no longer be reachable from its home slot
+		int mask = keys.length - 1;
+		int next = (hole + 1) & mask;
+
+		while(used[next])
+		{
+			int home = mix(keys[next]) & mask;
+
+			if(((next - home) & mask) >= ((next - hole) & mask))
+			{
+				keys[hole] = keys[next];
+				values[hole] = values[next];
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+
+		used[hole] = false;
+		size--;
+		return true;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	public void forEach(EntryConsumer action)
+	{
+		for(int slot = 0; slot < keys.length; slot++)
+		{
+			if(used[slot])
+			{
+				action.accept(keys[slot], values[slot]);
+			}
+		}
+	}
+
+	public void clear()
+	{
+		Arrays.fill(used, false);
+		size = 0;
+	}
+
+	//the slot holding key, or the empty slot it would go in
+	private int slotFor(int key)
+	{
+		int mask = keys.length - 1;
+		int slot = mix(key) & mask;
+
+		while(used[slot] && keys[slot] != key)
+		{
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void insert(int slot, int key, float value)
+	{
+		used[slot] = true;
+		keys[slot] = key;
+		values[slot] = value;
+
+		if(++size > resizeAt)
+		{
+			rehash(keys.length << 1);
+		}
+	}
+
+	private int find(int key)
+	{
+		int slot = slotFor(key);
+		return used[slot] ? slot : -1;
+	}
+
+	private void rehash(int capacity)
+	{
+		int[] oldKeys = keys;
+		float[] oldValues = values;
+		boolean[] oldUsed = used;
+
+		allocate(capacity);
+
+		for(int slot = 0; slot < oldKeys.length; slot++)
+		{
+			if(oldUsed[slot])
+			{
+				int target = slotFor(oldKeys[slot]);
+				used[target] = true;
+				keys[target] = oldKeys[slot];
+				values[target] = oldValues[slot];
+			}
+		}
+	}
+
+	private void allocate(int capacity)
+	{
+		keys = new int[capacity];
+		values = new float[capacity];
+		used = new boolean[capacity];
+		resizeAt = (int)(capacity * LOAD_FACTOR);
+	}
+
+	//IDs are sequential, so spread them out before masking or they all land in neighbouring slots
+	private static int mix(int key)
+	{
+		int hash = key * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+}
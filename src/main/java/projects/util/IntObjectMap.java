@@ -0,0 +1,210 @@
+package projects.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/*
+ * Open addressing hash map keyed by a primitive int, used where the DAO stitches rows together by ID.
+ * It skips the Integer boxing and entry objects a HashMap<Integer, V> would allocate per row.
+ * Not thread safe.
+ */
+public class IntObjectMap<V>
+{
+	private static final float LOAD_FACTOR = 0.5f;
+
+	private int[] keys;
+	private Object[] values;
+	private boolean[] used;
+	private int size;
+	private int resizeAt;
+
+	public IntObjectMap()
+	{
+		this(16);
+	}
+
+	public IntObjectMap(int expectedSize)
+	{
+		int capacity = Integer.highestOneBit(Math.max(4, (int)(expectedSize / LOAD_FACTOR)) - 1) << 1;
+		allocate(capacity);
+	}
+
+	@SuppressWarnings("unchecked")
+	public V get(int key)
+	{
+		int slot = find(key);
+		return slot < 0 ? null : (V)values[slot];
+	}
+
+	public boolean containsKey(int key)
+	{
+		return find(key) >= 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value)
+	{
+		int mask = keys.length - 1;
+		int slot = mix(key) & mask;
+
+		while(used[slot])
+		{
+			if(keys[slot] == key)
+			{
+				V old = (V)values[slot];
+				values[slot] = value;
+				return old;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		used[slot] = true;
+		keys[slot] = key;
+		values[slot] = value;
+
+		if(++size > resizeAt)
+		{
+			rehash(keys.length << 1);
+		}
+		return null;
+	}
+
+	public V computeIfAbsent(int key, IntFunction<V> mapping)
+	{
+		V value = get(key);
+
+		if(value == null)
+		{
+			value = mapping.apply(key);
+			put(key, value);
+		}
+		return value;
+	}
+
+	//shifts the following entries back into the hole so lookups never need tombstones
+	@SuppressWarnings("unchecked")
+	public V remove(int key)
+	{
+		int hole = find(key);
+
+		if(hole < 0)
+		{
+			return null;
+		}
+
+		V old = (V)values[hole];
+		int mask = keys.length - 1;
+		int next = (hole + 1) & mask;
+
+		while(used[next])
+		{
+			int home = mix(keys[next]) & mask;
+
+			if(((next - home) & mask) >= ((next - hole) & mask))
+			{
+				keys[hole] = keys[next];
+				values[hole] = values[next];
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+
+		used[hole] = false;
+		values[hole] = null;
+		size--;
+		return old;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	public List<V> values()
+	{
+		List<V> result = new ArrayList<>(size);
+
+		for(int slot = 0; slot < keys.length; slot++)
+		{
+			if(used[slot])
+			{
+				result.add((V)values[slot]);
+			}
+		}
+		return result;
+	}
+
+	public void clear()
+	{
+		Arrays.fill(used, false);
+		Arrays.fill(values, null);
+		size = 0;
+	}
+
+	private int find(int key)
+	{
+		int mask = keys.length - 1;
+		int slot = mix(key) & mask;
+
+		while(used[slot])
+		{
+			if(keys[slot] == key)
+			{
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private void rehash(int capacity)
+	{
+		int[] oldKeys = keys;
+		Object[] oldValues = values;
+		boolean[] oldUsed = used;
+
+		allocate(capacity);
+		size = 0;
+
+		for(int slot = 0; slot < oldKeys.length; slot++)
+		{
+			if(oldUsed[slot])
+			{
+				int mask = keys.length - 1;
+				int target = mix(oldKeys[slot]) & mask;
+
+				while(used[target])
+				{
+					target = (target + 1) & mask;
+				}
+				used[target] = true;
+				keys[target] = oldKeys[slot];
+				values[target] = oldValues[slot];
+				size++;
+			}
+		}
+	}
+
+	private void allocate(int capacity)
+	{
+		keys = new int[capacity];
+		values = new Object[capacity];
+		used = new boolean[capacity];
+		resizeAt = (int)(capacity * LOAD_FACTOR);
+	}
+
+	//IDs are sequential, so spread them out before masking or they all land in neighbouring slots
+	private static int mix(int key)
+	{
+		int hash = key * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+}
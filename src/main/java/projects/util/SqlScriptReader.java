@@ -0,0 +1,295 @@
+package projects.util;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+
+/*
+ * Splits a SQL script into statements in one pass over a Reader, so only the statement being built is ever
+ * held in memory. Understands quoted strings and identifiers, -- and # line comments, block comments
+ * and the mysql client's DELIMITER command. Whitespace outside of quotes is collapsed to a single space.
+ */
+public class SqlScriptReader implements Closeable
+{
+	private static final String DELIMITER_COMMAND = "DELIMITER";
+
+	//enough lookahead for the DELIMITER keyword or a custom delimiter
+	private static final int LOOKAHEAD = 64;
+
+	private final PushbackReader in;
+	private final StringBuilder statement = new StringBuilder();
+	private String delimiter = ";";
+
+	public SqlScriptReader(Reader reader)
+	{
+		in = new PushbackReader(new BufferedReader(reader), LOOKAHEAD);
+	}
+
+	//returns the next statement without its delimiter, or null once the script is used up
+	public String nextStatement() throws IOException
+	{
+		statement.setLength(0);
+		boolean pendingSpace = false;
+		int c;
+
+		while((c = in.read()) != -1)
+		{
+			if(statement.length() == 0 && (c == 'D' || c == 'd') && readDelimiterCommand(c))
+			{
+				continue;
+			}
+
+			if(Character.isWhitespace(c))
+			{
+				pendingSpace = statement.length() > 0;
+				continue;
+			}
+
+			if(c == '-' && isLineComment() || c == '#')
+			{
+				skipLine();
+				pendingSpace = statement.length() > 0;
+				continue;
+			}
+
+			if(c == '/' && peek() == '*')
+			{
+				in.read();
+
+				//mysql runs /*! ... */ as part of the statement, so those are kept
+				if(peek() == '!')
+				{
+					appendSpace(pendingSpace);
+					statement.append("/*");
+					copyBlockComment();
+				}
+				else
+				{
+					skipBlockComment();
+					pendingSpace = statement.length() > 0;
+					continue;
+				}
+			}
+			else if(c == delimiter.charAt(0) && matchesRest(delimiter))
+			{
+				if(statement.length() > 0)
+				{
+					return statement.toString();
+				}
+				//empty statement, e.g. ";;"
+				continue;
+			}
+			else if(c == '\'' || c == '"' || c == '`')
+			{
+				appendSpace(pendingSpace);
+				copyQuoted((char)c);
+			}
+			else
+			{
+				appendSpace(pendingSpace);
+				statement.append((char)c);
+			}
+
+			pendingSpace = false;
+		}
+
+		//last statement may be missing its delimiter
+		return statement.length() > 0 ? statement.toString() : null;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		in.close();
+	}
+
+	private void appendSpace(boolean pendingSpace)
+	{
+		if(pendingSpace)
+		{
+			statement.append(' ');
+		}
+	}
+
+	//"DELIMITER $$" at the start of a statement, the rest of the line is the new delimiter
+	private boolean readDelimiterCommand(int first) throws IOException
+	{
+		char[] word = new char[DELIMITER_COMMAND.length()];
+		word[0] = (char)first;
+		int read = 1;
+
+		while(read < word.length)
+		{
+			int c = in.read();
+
+			if(c == -1)
+			{
+				break;
+			}
+			word[read++] = (char)c;
+		}
+
+		int next = peek();
+		boolean isCommand = read == word.length && DELIMITER_COMMAND.equalsIgnoreCase(new String(word))
+				&& (next == ' ' || next == '\t');
+
+		if(!isCommand)
+		{
+			in.unread(word, 1, read - 1);
+			return false;
+		}
+
+		StringBuilder line = new StringBuilder();
+		int c;
+
+		while((c = in.read()) != -1 && c != '\n')
+		{
+			line.append((char)c);
+		}
+
+		String newDelimiter = line.toString().trim();
+
+		if(newDelimiter.isEmpty() || newDelimiter.length() > LOOKAHEAD)
+		{
+			throw new IOException("Invalid DELIMITER command: " + line.toString().trim());
+		}
+
+		delimiter = newDelimiter;
+		return true;
+	}
+
+	//"--" only starts a comment when followed by whitespace or the end of the script, "a--1" is still arithmetic
+	private boolean isLineComment() throws IOException
+	{
+		int second = in.read();
+
+		if(second != '-')
+		{
+			unread(second);
+			return false;
+		}
+
+		int third = peek();
+
+		if(third == -1 || Character.isWhitespace(third))
+		{
+			return true;
+		}
+
+		in.unread(second);
+		return false;
+	}
+
+	//the first character of the delimiter has already been read
+	private boolean matchesRest(String expected) throws IOException
+	{
+		int length = expected.length();
+
+		for(int i = 1; i < length; i++)
+		{
+			int c = in.read();
+
+			if(c != expected.charAt(i))
+			{
+				unread(c);
+
+				for(int j = i - 1; j >= 1; j--)
+				{
+					in.unread(expected.charAt(j));
+				}
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void skipLine() throws IOException
+	{
+		int c;
+
+		while((c = in.read()) != -1 && c != '\n')
+		{
+			//skip
+		}
+	}
+
+	//the opening /* has already been read
+	private void skipBlockComment() throws IOException
+	{
+		int previous = 0;
+		int c;
+
+		while((c = in.read()) != -1)
+		{
+			if(previous == '*' && c == '/')
+			{
+				return;
+			}
+			previous = c;
+		}
+	}
+
+	private void copyBlockComment() throws IOException
+	{
+		int previous = 0;
+		int c;
+
+		while((c = in.read()) != -1)
+		{
+			statement.append((char)c);
+
+			if(previous == '*' && c == '/')
+			{
+				return;
+			}
+			previous = c;
+		}
+	}
+
+	//copies a quoted string or identifier as is, a doubled quote or a backslash escape does not end it
+	private void copyQuoted(char quote) throws IOException
+	{
+		statement.append(quote);
+		int c;
+
+		while((c = in.read()) != -1)
+		{
+			statement.append((char)c);
+
+			if(c == '\\' && quote != '`')
+			{
+				int escaped = in.read();
+
+				if(escaped != -1)
+				{
+					statement.append((char)escaped);
+				}
+			}
+			else if(c == quote)
+			{
+				if(peek() != quote)
+				{
+					return;
+				}
+				statement.append((char)in.read());
+			}
+		}
+	}
+
+	private int peek() throws IOException
+	{
+		int c = in.read();
+		unread(c);
+		return c;
+	}
+
+	private void unread(int c) throws IOException
+	{
+		if(c != -1)
+		{
+			in.unread(c);
+		}
+	}
+}
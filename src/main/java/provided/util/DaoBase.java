@@ -3,18 +3,13 @@
  */
 package provided.util;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.sql.Time;
-import java.sql.Timestamp;
 import java.sql.Types;
-import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.Objects;
 
@@ -204,6 +199,10 @@ public abstract class DaoBase {
    * name is numServings, the column name must be num_servings.</li>
    * <li>The value is assigned to the field in the object.</li>
    * </ol>
+   *
+   * The first three steps and the name conversion are only done the first time a class is
+   * extracted; the results are cached by {@link RowMapper}. The column indexes are looked up once per
+   * set of column labels.
    * 
    * Example: if a query returns values for a recipe, a Recipe object is returned. So:
    * 
@@ -231,59 +230,49 @@ public abstract class DaoBase {
    * @return A populated class.
    */
   protected <T> T extract(ResultSet rs, Class<T> classType) {
-    try {
-      /* Obtain the constructor and create an object of the correct type. */
-      Constructor<T> con = classType.getConstructor();
-      T obj = con.newInstance();
-
-      /* Get the list of fields and loop through them. */
-      for(Field field : classType.getDeclaredFields()) {
-        String colName = camelCaseToSnakeCase(field.getName());
-        Class<?> fieldType = field.getType();
-
-        /*
-         * Set the field accessible flag which means that we can populate even private fields
-         * without using the setter.
-         */
-        field.setAccessible(true);
-        Object fieldValue = null;
-
-        try {
-          fieldValue = rs.getObject(colName);
-        }
-        catch(SQLException e) {
-          /*
-           * An exception caught here means that the field name isn't in the result set. Don't take
-           * any action.
-           */
-        }
-
-        /*
-         * Only set the value in the object if there is a value with the same name in the result
-         * set. This will preserve instance variables (like lists) that are assigned values when the
-         * object is created.
-         */
-        if(Objects.nonNull(fieldValue)) {
-          /*
-           * Convert the following types: Time -> LocalTime, and Timestamp -> LocalDateTime.
-           */
-          if(fieldValue instanceof Time && fieldType.equals(LocalTime.class)) {
-            fieldValue = ((Time)fieldValue).toLocalTime();
-          }
-          else if(fieldValue instanceof Timestamp && fieldType.equals(LocalDateTime.class)) {
-            fieldValue = ((Timestamp)fieldValue).toLocalDateTime();
-          }
-
-          field.set(obj, fieldValue);
-        }
-      }
+    /*
+     * Reuse a mapper bound to a result set with the same columns. This keeps row-by-row callers from
+     * resolving the column indexes again for every row.
+     */
+    return RowMapper.forColumns(rs, classType).extract(rs);
+  }
 
-      return obj;
+  /**
+   * This returns a mapper that extracts objects of the given type from the rows of the given result
+   * set. It does the same thing as {@link #extract(ResultSet, Class)}, but the reflection metadata
+   * and column lookups are done once when the mapper is created instead of once per row. Use it
+   * when looping through a result set:
+   *
+   * <pre>
+   * RowMapper&lt;Recipe&gt; mapper = rowMapper(rs, Recipe.class);
+   *
+   * while(rs.next()) {
+   *   recipes.add(mapper.extract(rs));
+   * }
+   * </pre>
+   *
+   * @param <T> The Generic for the type of object to create and return.
+   * @param rs The result set from which to extract values.
+   * @param classType The actual class type of the objects to create.
+   * @return A mapper bound to the result set's columns.
+   */
+  protected <T> RowMapper<T> rowMapper(ResultSet rs, Class<T> classType) {
+    return RowMapper.bind(rs, classType);
+  }
 
-    }
-    catch(Exception e) {
-      throw new DaoException("Unable to create object of type " + classType.getName(), e);
-    }
+  /**
+   * This returns the comma-separated list of columns that map to the fields of the given class. Use
+   * it to select only the columns an entity or projection needs instead of "SELECT *":
+   *
+   * <pre>
+   * String sql = "SELECT " + columnList(RecipeSummary.class) + " FROM recipe";
+   * </pre>
+   *
+   * @param classType The entity or projection class.
+   * @return The column list, like "recipe_id, recipe_name".
+   */
+  protected static String columnList(Class<?> classType) {
+    return String.join(", ", RowMapper.columnNames(classType));
   }
 
   /**
@@ -292,7 +281,7 @@ public abstract class DaoBase {
    * @param identifier The name in camel case to convert.
    * @return The name converted to snake case.
    */
-  private String camelCaseToSnakeCase(String identifier) {
+  static String camelCaseToSnakeCase(String identifier) {
     StringBuilder nameBuilder = new StringBuilder();
 
     for(char ch : identifier.toCharArray()) {
@@ -0,0 +1,306 @@
+/**
+ *
+ */
+package provided.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import provided.util.DaoBase.DaoException;
+
+/**
+ * This maps rows of one result set to objects of one entity class. It is obtained from
+ * {@link DaoBase#rowMapper(ResultSet, Class)} after the query is executed and then used for every row
+ * in the result set:
+ *
+ * <pre>
+ * RowMapper&lt;Recipe&gt; mapper = rowMapper(rs, Recipe.class);
+ *
+ * while(rs.next()) {
+ *   recipes.add(mapper.extract(rs));
+ * }
+ * </pre>
+ *
+ * All of the reflection work (finding the constructor and fields, converting field names to column
+ * names) is done once per class and cached. The column indexes are resolved once per result set, so a
+ * field whose column is not in the result set is simply skipped instead of being looked up (and
+ * failing) on every row.
+ *
+ * @author Promineo
+ *
+ * @param <T> The entity type created by this mapper.
+ */
+public final class RowMapper<T> {
+  private static final MethodType SETTER_TYPE =
+      MethodType.methodType(void.class, Object.class, Object.class);
+
+  /** One metadata entry per entity class, built the first time the class is extracted. */
+  private static final ClassValue<EntityMetadata> METADATA = new ClassValue<>() {
+    @Override
+    protected EntityMetadata computeValue(Class<?> type) {
+      return new EntityMetadata(type);
+    }
+  };
+
+  /** How many column layouts are remembered per class. Queries are fixed strings, so few are used. */
+  private static final int MAX_LAYOUTS = 32;
+
+  private final Class<T> classType;
+  private final EntityMetadata metadata;
+  private final int[] columnIndexes;
+  private final int[] fieldIndexes;
+
+  private RowMapper(Class<T> classType, EntityMetadata metadata, ResultSetMetaData meta)
+      throws SQLException {
+    this.classType = classType;
+    this.metadata = metadata;
+
+    /* Map each column label to its one-based index. The first column wins on duplicate labels. */
+    Map<String, Integer> labels = new HashMap<>();
+
+    for(int col = meta.getColumnCount(); col > 0; col--) {
+      labels.put(meta.getColumnLabel(col).toLowerCase(Locale.ROOT), col);
+    }
+
+    /* Keep only the fields that have a column in this result set. */
+    List<int[]> present = new ArrayList<>();
+
+    for(int pos = 0; pos < metadata.columnNames.length; pos++) {
+      Integer col = labels.get(metadata.columnNames[pos]);
+
+      if(Objects.nonNull(col)) {
+        present.add(new int[] {pos, col});
+      }
+    }
+
+    columnIndexes = new int[present.size()];
+    fieldIndexes = new int[present.size()];
+
+    for(int pos = 0; pos < present.size(); pos++) {
+      fieldIndexes[pos] = present.get(pos)[0];
+      columnIndexes[pos] = present.get(pos)[1];
+    }
+  }
+
+  /**
+   * Binds a mapper for the given class to the columns of the given result set.
+   *
+   * @param <T> The entity type.
+   * @param rs The result set. It does not need to be positioned on a row.
+   * @param classType The entity class. It must have a public zero-argument constructor.
+   * @return The bound mapper.
+   */
+  static <T> RowMapper<T> bind(ResultSet rs, Class<T> classType) {
+    try {
+      return new RowMapper<>(classType, METADATA.get(classType), rs.getMetaData());
+    }
+    catch(SQLException e) {
+      throw new DaoException("Unable to read result set metadata for " + classType.getName(), e);
+    }
+  }
+
+  /**
+   * Returns a mapper for the given class and the columns of the given result set, reusing one bound
+   * earlier to a result set with the same column labels. Only the labels are kept, never the result
+   * set, so nothing holds on to a closed result set or its connection.
+   *
+   * @param <T> The entity type.
+   * @param rs The result set. It does not need to be positioned on a row.
+   * @param classType The entity class. It must have a public zero-argument constructor.
+   * @return A mapper for the result set's columns.
+   */
+  @SuppressWarnings("unchecked")
+  static <T> RowMapper<T> forColumns(ResultSet rs, Class<T> classType) {
+    EntityMetadata metadata = METADATA.get(classType);
+
+    try {
+      ResultSetMetaData meta = rs.getMetaData();
+      StringBuilder layout = new StringBuilder();
+
+      for(int col = 1; col <= meta.getColumnCount(); col++) {
+        layout.append(meta.getColumnLabel(col)).append(',');
+      }
+
+      String key = layout.toString();
+      RowMapper<?> mapper = metadata.layouts.get(key);
+
+      if(Objects.isNull(mapper)) {
+        mapper = new RowMapper<>(classType, metadata, meta);
+
+        /* Past the limit something builds its SQL on the fly, so stop remembering instead of growing. */
+        if(metadata.layouts.size() < MAX_LAYOUTS) {
+          metadata.layouts.putIfAbsent(key, mapper);
+        }
+      }
+
+      return (RowMapper<T>)mapper;
+    }
+    catch(SQLException e) {
+      throw new DaoException("Unable to read result set metadata for " + classType.getName(), e);
+    }
+  }
+
+  /**
+   * Returns the snake case column names of the fields that {@link #extract(ResultSet)} can populate
+   * for the given class, in field declaration order. Collection, map and array fields (like the
+   * child lists in an entity) are left out since they never come from a column.
+   *
+   * @param classType The entity class.
+   * @return The column names.
+   */
+  static List<String> columnNames(Class<?> classType) {
+    EntityMetadata metadata = METADATA.get(classType);
+    List<String> names = new ArrayList<>();
+
+    for(int pos = 0; pos < metadata.columnNames.length; pos++) {
+      Class<?> fieldType = metadata.fieldTypes[pos];
+
+      if(!Collection.class.isAssignableFrom(fieldType) && !Map.class.isAssignableFrom(fieldType)
+          && !fieldType.isArray()) {
+        names.add(metadata.columnNames[pos]);
+      }
+    }
+
+    return names;
+  }
+
+  /**
+   * Creates an object from the current row of the result set. Only columns that are present in the
+   * result set and are not null are assigned, so list fields initialized in the entity are
+   * preserved.
+   *
+   * @param rs The result set positioned on the row to extract. It must have the columns of the result
+   *        set the mapper was bound to.
+   * @return The populated object.
+   */
+  @SuppressWarnings("unchecked")
+  public T extract(ResultSet rs) {
+    try {
+      Object obj = metadata.constructor.invokeExact();
+
+      for(int pos = 0; pos < columnIndexes.length; pos++) {
+        int field = fieldIndexes[pos];
+        Object fieldValue = rs.getObject(columnIndexes[pos]);
+
+        if(Objects.nonNull(fieldValue)) {
+          metadata.setters[field].invokeExact(obj,
+              convert(fieldValue, metadata.fieldTypes[field]));
+        }
+      }
+
+      return (T)obj;
+    }
+    catch(Throwable e) {
+      throw new DaoException("Unable to create object of type " + classType.getName(), e);
+    }
+  }
+
+  /**
+   * Converts the JDBC value to the field type where the driver returns a different but compatible
+   * type: Time -> LocalTime, Timestamp -> LocalDateTime, and numeric widening or narrowing for
+   * computed columns like COUNT(*) or SUM().
+   */
+  private static Object convert(Object value, Class<?> fieldType) {
+    if(fieldType.isInstance(value)) {
+      return value;
+    }
+
+    if(value instanceof Time && fieldType.equals(LocalTime.class)) {
+      return ((Time)value).toLocalTime();
+    }
+
+    if(value instanceof Timestamp && fieldType.equals(LocalDateTime.class)) {
+      return ((Timestamp)value).toLocalDateTime();
+    }
+
+    if(value instanceof Number) {
+      Number number = (Number)value;
+
+      if(fieldType.equals(Integer.class)) {
+        return number.intValue();
+      }
+
+      if(fieldType.equals(Long.class)) {
+        return number.longValue();
+      }
+
+      if(fieldType.equals(BigDecimal.class)) {
+        return new BigDecimal(number.toString());
+      }
+    }
+
+    return value;
+  }
+
+  /**
+   * The per-class reflection results: the constructor and a setter handle for each instance field.
+   * Static, final and transient fields are not mapped.
+   */
+  private static class EntityMetadata {
+    private final MethodHandle constructor;
+    private final String[] columnNames;
+    private final MethodHandle[] setters;
+    private final Class<?>[] fieldTypes;
+
+    /** Mappers by column labels, for {@link RowMapper#forColumns(ResultSet, Class)}. */
+    private final Map<String, RowMapper<?>> layouts = new ConcurrentHashMap<>();
+
+    EntityMetadata(Class<?> classType) {
+      try {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        Constructor<?> con = classType.getConstructor();
+        constructor = lookup.unreflectConstructor(con).asType(MethodType.methodType(Object.class));
+
+        List<Field> fields = new ArrayList<>();
+
+        for(Field field : classType.getDeclaredFields()) {
+          int modifiers = field.getModifiers();
+
+          if(!Modifier.isStatic(modifiers) && !Modifier.isFinal(modifiers)
+              && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+            fields.add(field);
+          }
+        }
+
+        columnNames = new String[fields.size()];
+        setters = new MethodHandle[fields.size()];
+        fieldTypes = new Class<?>[fields.size()];
+
+        for(int pos = 0; pos < fields.size(); pos++) {
+          Field field = fields.get(pos);
+
+          /*
+           * Set the field accessible flag which means that we can populate even private fields
+           * without using the setter.
+           */
+          field.setAccessible(true);
+          columnNames[pos] = DaoBase.camelCaseToSnakeCase(field.getName());
+          setters[pos] = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+          fieldTypes[pos] = field.getType();
+        }
+      }
+      catch(ReflectiveOperationException e) {
+        throw new DaoException("Unable to map objects of type " + classType.getName(), e);
+      }
+    }
+  }
+}
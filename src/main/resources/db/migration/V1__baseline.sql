@@ -0,0 +1,44 @@
+-- Baseline schema. IF NOT EXISTS lets this run against a database that was set up by project_schema.sql.
+
+CREATE TABLE IF NOT EXISTS project(
+project_id INT AUTO_INCREMENT NOT NULL,
+project_name varchar(128) NOT NULL,
+estimated_hours decimal(7,2),
+actual_hours decimal(7,2),
+difficulty int,
+notes text,
+primary KEY (project_id)
+);
+
+CREATE TABLE IF NOT EXISTS material(
+material_id int AUTO_INCREMENT NOT NULL,
+project_id int NOT NULL,
+material_name varchar(128) NOT NULL,
+num_required int,
+cost decimal(7,2),
+primary key (material_id),
+foreign key (project_id) REFERENCES project(project_id) on delete cascade
+);
+
+CREATE TABLE IF NOT EXISTS step(
+step_id int AUTO_INCREMENT NOT NULL,
+project_id int NOT NULL,
+step_text text NOT NULL,
+step_order int NOT null,
+primary key (step_id),
+foreign key (project_id) REFERENCES project(project_id) on delete cascade
+);
+
+CREATE TABLE IF NOT EXISTS category(
+category_id int AUTO_INCREMENT NOT NULL,
+category_name varchar(128) NOT null,
+primary key (category_id)
+);
+
+CREATE TABLE IF NOT EXISTS project_category(
+project_id int NOT NULL,
+category_id int NOT null,
+PRIMARY KEY (project_id, category_id),
+FOREIGN KEY (project_id) REFERENCES project(project_id) on delete cascade,
+FOREIGN KEY (category_id) REFERENCES category(category_id) on delete cascade
+);
@@ -0,0 +1,9 @@
+-- Child rows are always looked up by project, steps are also read back in step_order.
+-- MySQL can drop the index it made for a foreign key once one of these serves that key instead.
+
+CREATE INDEX material_project_idx ON material(project_id);
+
+CREATE INDEX step_project_order_idx ON step(project_id, step_order);
+
+-- project_category's primary key already leads with project_id, this covers lookups by category.
+CREATE INDEX project_category_category_idx ON project_category(category_id, project_id);
@@ -0,0 +1,6 @@
+-- Row versions for optimistic locking. An update only applies when the version it read is still the
+-- current one and bumps it, so concurrent editors find out about each other without holding row locks.
+-- Existing rows start at 0 like new ones. Materials and steps are only inserted and deleted with their
+-- project, never updated on their own, so only project has a version.
+
+ALTER TABLE project ADD COLUMN version INT NOT NULL DEFAULT 0;
@@ -0,0 +1,8 @@
+-- FULLTEXT indexes for FullTextSearchBackend, one per table so each can be matched on its own.
+-- InnoDB adds a hidden FTS_DOC_ID column the first time a table gets one, which rebuilds the table.
+
+CREATE FULLTEXT INDEX project_search_idx ON project(project_name, notes);
+
+CREATE FULLTEXT INDEX step_search_idx ON step(step_text);
+
+CREATE FULLTEXT INDEX material_search_idx ON material(material_name);
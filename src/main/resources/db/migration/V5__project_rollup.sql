@@ -0,0 +1,21 @@
+-- One row of precomputed totals per project, so a dashboard reads a project's material count, material
+-- cost and step count without loading and summing its materials. ProjectDao keeps the row up to date in
+-- the same transaction that writes the project's materials and steps. material_cost is
+-- SUM(num_required * cost), a material without a quantity or cost adds nothing.
+
+CREATE TABLE project_rollup(
+project_id int NOT NULL,
+material_count int NOT NULL DEFAULT 0,
+material_cost decimal(14,2) NOT NULL DEFAULT 0,
+step_count int NOT NULL DEFAULT 0,
+PRIMARY KEY (project_id),
+FOREIGN KEY (project_id) REFERENCES project(project_id) on delete cascade
+);
+
+-- Existing projects get their rows here, afterwards only writes change them.
+INSERT INTO project_rollup (project_id, material_count, material_cost, step_count)
+SELECT p.project_id,
+(SELECT COUNT(*) FROM material m WHERE m.project_id = p.project_id),
+(SELECT COALESCE(SUM(m.num_required * m.cost), 0) FROM material m WHERE m.project_id = p.project_id),
+(SELECT COUNT(*) FROM step s WHERE s.project_id = p.project_id)
+FROM project p;
@@ -1,3 +1,5 @@
+DROP TABLE IF EXISTS schema_history;
+DROP TABLE IF EXISTS project_rollup;
 DROP TABLE IF EXISTS project_category;
 DROP TABLE IF EXISTS category;
 DROP TABLE IF EXISTS step;
@@ -20,7 +22,8 @@ project_id int NOT NULL,
 material_name varchar(128) NOT NULL,
 num_required int,
 cost decimal(7,2),
-primary key (material_id)
+primary key (material_id), 
+foreign key (project_id)REFERENCES project(project_id) on delete cascade
 );
 
 CREATE TABLE step(
@@ -28,7 +31,8 @@ step_id int AUTO_INCREMENT NOT NULL,
 project_id int NOT NULL,
 step_text text NOT NULL,
 step_order int NOT null,
-primary key (step_id)
+primary key (step_id), 
+foreign key (project_id)REFERENCES project(project_id) on delete cascade
 );
 
 CREATE TABLE category(
@@ -41,6 +45,6 @@ CREATE TABLE project_category(
 project_id int NOT NULL,
 category_id int NOT null,
 PRIMARY KEY (project_id, category_id),
-FOREIGN KEY (project_id) REFERENCES project(project_id),
-FOREIGN KEY (category_id) REFERENCES category(category_id)
+FOREIGN KEY (project_id) REFERENCES project(project_id) on delete cascade,
+FOREIGN KEY (category_id) REFERENCES category(category_id) on delete cascade
 );
\ No newline at end of file
@@ -0,0 +1,176 @@
+package projects.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import projects.entity.Project;
+import projects.exception.DbException;
+import projects.exception.OptimisticLockException;
+
+class WriteBehindQueueTest
+{
+	private static final int PROJECT_ID = 1;
+
+	//stands in for the project table, project ID to the row's version
+	private final Map<Integer, Integer> versions = new ConcurrentHashMap<>();
+	private final List<FailedWrite> failed = new ArrayList<>();
+
+	//holds the writer inside a flush until released, when a test needs a batch in flight
+	private volatile CountDownLatch writing;
+	private volatile CountDownLatch release;
+
+	private WriteBehindQueue queue;
+
+	@BeforeEach
+	void setUp()
+	{
+		versions.put(PROJECT_ID, 0);
+
+		//long window, the tests flush by hand
+		queue = new WriteBehindQueue(this::write, batch -> {}, failed::add, 60_000, 100, 1_000);
+	}
+
+	@AfterEach
+	void tearDown()
+	{
+		queue.close();
+	}
+
+	@Test
+	void editAgainWithTheSameObjectAfterAFlush()
+	{
+		Project project = readProject();
+
+		project.setProjectName("first");
+		queue.submit(project);
+		queue.flush();
+
+		//the caller still holds the object read at version 0, the row is at 1 now
+		project.setNotes("second");
+		queue.submit(project);
+		queue.flush();
+
+		assertTrue(failed.isEmpty(), () -> "dead-lettered " + failed);
+		assertEquals(0, queue.getStats().getDeadLettered());
+		assertEquals(2, versions.get(PROJECT_ID));
+	}
+
+	@Test
+	void editWhileTheEarlierBatchIsBeingWritten() throws Exception
+	{
+		Project project = readProject();
+		project.setProjectName("first");
+		queue.submit(project);
+
+		writing = new CountDownLatch(1);
+		release = new CountDownLatch(1);
+		ExecutorService flusher = Executors.newSingleThreadExecutor();
+
+		try
+		{
+			Future<?> first = flusher.submit(queue::flush);
+			assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+			Project again = readProject();
+			again.setNotes("second");
+			queue.submit(again);
+
+			release.countDown();
+			first.get(5, TimeUnit.SECONDS);
+		}
+		finally
+		{
+			flusher.shutdownNow();
+		}
+
+		writing = null;
+		queue.flush();
+
+		assertTrue(failed.isEmpty(), () -> "dead-lettered " + failed);
+		assertEquals(2, versions.get(PROJECT_ID));
+	}
+
+	@Test
+	void editLosingToSomeoneElseIsStillAConflict()
+	{
+		Project project = readProject();
+		project.setProjectName("first");
+		queue.submit(project);
+		queue.flush();
+
+		//another process writes after the queue did, the caller never saw it
+		versions.put(PROJECT_ID, versions.get(PROJECT_ID) + 1);
+
+		project.setNotes("second");
+		queue.submit(project);
+		assertThrows(DbException.class, queue::flush);
+
+		assertEquals(1, failed.size());
+		assertTrue(failed.get(0).getFailure() instanceof OptimisticLockException);
+	}
+
+	private Project readProject()
+	{
+		Project project = new Project();
+		project.setProjectId(PROJECT_ID);
+		project.setVersion(versions.get(PROJECT_ID));
+		project.markClean();
+		return project;
+	}
+
+	//checks and bumps versions like ProjectDao.modifyProjectsDetails, all or nothing
+	private List<Integer> write(List<Project> batch)
+	{
+		CountDownLatch started = writing;
+
+		if(started != null)
+		{
+			started.countDown();
+
+			try
+			{
+				release.await(5, TimeUnit.SECONDS);
+			}
+			catch(InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		for(Project update : batch)
+		{
+			Integer current = versions.get(update.getProjectId());
+
+			if(update.getVersion() != null && !update.getVersion().equals(current))
+			{
+				throw new OptimisticLockException(update.getProjectId(), update.getVersion(), current);
+			}
+		}
+
+		for(Project update : batch)
+		{
+			versions.merge(update.getProjectId(), 1, Integer::sum);
+
+			if(update.getVersion() != null)
+			{
+				update.setVersion(update.getVersion() + 1);
+			}
+		}
+		return new ArrayList<>();
+	}
+}